@@ -0,0 +1,149 @@
+package cc.remer.photobook.adapter.image;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * BlurHash encoder (https://blurha.sh). The image is reduced to a few DCT components in linear RGB and encoded
+ * as a short base 83 string that clients decode into a blurred placeholder.
+ */
+public final class BlurHash {
+
+    /**
+     * Length of a hash with the most components, 9 by 9: size flag, maximum AC value, 4 characters of DC and
+     * 2 per AC component.
+     */
+    public static final int MAX_LENGTH = 4 + 2 * 9 * 9;
+
+    private static final String BASE83 =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            double value = i / 255.0;
+            SRGB_TO_LINEAR[i] = (float) (value <= 0.04045 ? value / 12.92 : Math.pow((value + 0.055) / 1.055, 2.4));
+        }
+    }
+
+    private BlurHash() {
+    }
+
+    /**
+     * Encodes the image with 4 components along its longer side and 3 along the shorter one.
+     */
+    public static String encode(BufferedImage image) {
+        return image.getWidth() >= image.getHeight() ? encode(image, 4, 3) : encode(image, 3, 4);
+    }
+
+    public static String encode(BufferedImage image, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > 9 || componentsY < 1 || componentsY > 9) {
+            throw new IllegalArgumentException("BlurHash components must be between 1 and 9");
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        // The basis functions are separable, so the cosines are computed once per row and column
+        double[][] cosX = cosines(componentsX, width);
+        double[][] cosY = cosines(componentsY, height);
+
+        double[][] factors = new double[componentsX * componentsY][3];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = pixels[y * width + x];
+                float r = SRGB_TO_LINEAR[(rgb >> 16) & 0xFF];
+                float g = SRGB_TO_LINEAR[(rgb >> 8) & 0xFF];
+                float b = SRGB_TO_LINEAR[rgb & 0xFF];
+                for (int j = 0; j < componentsY; j++) {
+                    for (int i = 0; i < componentsX; i++) {
+                        double basis = cosX[i][x] * cosY[j][y];
+                        double[] factor = factors[j * componentsX + i];
+                        factor[0] += basis * r;
+                        factor[1] += basis * g;
+                        factor[2] += basis * b;
+                    }
+                }
+            }
+        }
+
+        double scale = 1.0 / ((double) width * height);
+        for (int k = 0; k < factors.length; k++) {
+            double normalisation = k == 0 ? 1 : 2;
+            for (int c = 0; c < 3; c++) {
+                factors[k][c] *= normalisation * scale;
+            }
+        }
+
+        StringBuilder hash = new StringBuilder(4 + 2 * factors.length);
+        encode83((componentsX - 1) + (componentsY - 1) * 9, 1, hash);
+
+        double maximumValue;
+        if (factors.length > 1) {
+            double actualMaximum = 0;
+            for (int k = 1; k < factors.length; k++) {
+                for (int c = 0; c < 3; c++) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(factors[k][c]));
+                }
+            }
+            int quantisedMaximum = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximumValue = (quantisedMaximum + 1) / 166.0;
+            encode83(quantisedMaximum, 1, hash);
+        } else {
+            maximumValue = 1;
+            encode83(0, 1, hash);
+        }
+
+        encode83(encodeDc(factors[0]), 4, hash);
+        for (int k = 1; k < factors.length; k++) {
+            encode83(encodeAc(factors[k], maximumValue), 2, hash);
+        }
+        return hash.toString();
+    }
+
+    private static double[][] cosines(int components, int length) {
+        double[][] cosines = new double[components][length];
+        for (int i = 0; i < components; i++) {
+            for (int p = 0; p < length; p++) {
+                cosines[i][p] = Math.cos(Math.PI * i * p / length);
+            }
+        }
+        return cosines;
+    }
+
+    private static int encodeDc(double[] value) {
+        return (linearToSrgb(value[0]) << 16) + (linearToSrgb(value[1]) << 8) + linearToSrgb(value[2]);
+    }
+
+    private static int encodeAc(double[] value, double maximumValue) {
+        int r = quantiseAc(value[0] / maximumValue);
+        int g = quantiseAc(value[1] / maximumValue);
+        int b = quantiseAc(value[2] / maximumValue);
+        return r * 19 * 19 + g * 19 + b;
+    }
+
+    private static int quantiseAc(double value) {
+        double signedRoot = Math.copySign(Math.sqrt(Math.abs(value)), value);
+        return (int) Math.max(0, Math.min(18, Math.floor(signedRoot * 9 + 9.5)));
+    }
+
+    private static int linearToSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        if (v <= 0.0031308) {
+            return (int) (v * 12.92 * 255 + 0.5);
+        }
+        return (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void encode83(int value, int length, StringBuilder hash) {
+        int divisor = 1;
+        for (int i = 1; i < length; i++) {
+            divisor *= 83;
+        }
+        for (int i = 0; i < length; i++) {
+            hash.append(BASE83.charAt((value / divisor) % 83));
+            divisor /= 83;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package cc.remer.photobook.adapter.image;
+
+import javax.imageio.stream.ImageOutputStreamImpl;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * In-memory, seekable image output stream that keeps its buffer when cleared, so one instance can take the
+ * output of any number of encodes. Unlike {@code MemoryCacheImageOutputStream} it is never closed between uses.
+ */
+final class GrowableImageOutputStream extends ImageOutputStreamImpl {
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    private byte[] buffer;
+    private int length;
+
+    GrowableImageOutputStream(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        return buffer[(int) streamPos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        bitOffset = 0;
+        if (streamPos >= length) {
+            return -1;
+        }
+        int n = (int) Math.min(len, length - streamPos);
+        System.arraycopy(buffer, (int) streamPos, b, off, n);
+        streamPos += n;
+        return n;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkClosed();
+        flushBits();
+        ensureCapacity(streamPos + 1);
+        buffer[(int) streamPos++] = (byte) b;
+        length = (int) Math.max(length, streamPos);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        flushBits();
+        ensureCapacity(streamPos + len);
+        System.arraycopy(b, off, buffer, (int) streamPos, len);
+        streamPos += len;
+        length = (int) Math.max(length, streamPos);
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Empties the stream, keeping the buffer.
+     */
+    void clear() {
+        streamPos = 0;
+        flushedPos = 0;
+        bitOffset = 0;
+        length = 0;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private void ensureCapacity(long required) throws IOException {
+        if (required > MAX_CAPACITY) {
+            throw new IOException("Encoded image exceeds the maximum array size");
+        }
+        if (required > buffer.length) {
+            long grown = Math.min(2L * buffer.length, MAX_CAPACITY);
+            buffer = Arrays.copyOf(buffer, (int) Math.max(required, grown));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package cc.remer.photobook.adapter.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Resamples an image to exact dimensions. Which engine is used is configured in {@code thumbnail.resize}.
+ */
+public interface ImageResizer {
+
+    /**
+     * Resamples the source into the given TYPE_INT_RGB destination, filling all of it.
+     */
+    void resize(BufferedImage source, BufferedImage destination) throws IOException;
+
+    default BufferedImage resize(BufferedImage source, int width, int height) throws IOException {
+        BufferedImage destination = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        resize(source, destination);
+        return destination;
+    }
+}
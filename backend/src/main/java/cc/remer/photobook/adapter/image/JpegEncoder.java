@@ -0,0 +1,150 @@
+package cc.remer.photobook.adapter.image;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Encodes JPEGs with one {@link ImageWriter} and one output buffer per thread, both reused across images, so
+ * an encode allocates little more than the returned bytes. Writers that failed are discarded.
+ * <p>
+ * A {@link JpegProfile} selects progressive scans and optimized Huffman tables through the write param. Chroma
+ * subsampling and the JFIF header are only reachable through the image metadata, which is built once per thread,
+ * profile and image type.
+ */
+public class JpegEncoder {
+
+    private static final int INITIAL_BUFFER_SIZE = 256 * 1024;
+    // Buffers that grew beyond this for an unusually large image are not kept
+    private static final int RETAINED_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final ThreadLocal<Writer> writers = new ThreadLocal<>();
+
+    public byte[] encode(BufferedImage image, double quality) throws IOException {
+        return encode(image, JpegProfile.baseline(quality));
+    }
+
+    public byte[] encode(BufferedImage image, JpegProfile profile) throws IOException {
+        Writer writer = writers.get();
+        if (writer == null) {
+            writer = new Writer();
+            writers.set(writer);
+        }
+
+        try {
+            byte[] bytes = writer.write(opaque(image), profile);
+            if (writer.output.capacity() > RETAINED_BUFFER_SIZE) {
+                writers.remove();
+                writer.dispose();
+            }
+            return bytes;
+        } catch (IOException | RuntimeException e) {
+            writers.remove();
+            writer.dispose();
+            throw e;
+        }
+    }
+
+    // JPEG has no alpha channel; the writer would store ARGB as four color components
+    private static BufferedImage opaque(BufferedImage image) {
+        if (!image.getColorModel().hasAlpha()) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return rgb;
+    }
+
+    private static final class Writer {
+
+        private static final String NATIVE_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+        private final ImageWriter imageWriter;
+        private final JPEGImageWriteParam param;
+        private final GrowableImageOutputStream output = new GrowableImageOutputStream(INITIAL_BUFFER_SIZE);
+        private final Map<MetadataKey, IIOMetadata> metadata = new HashMap<>();
+
+        private Writer() {
+            this.imageWriter = ImageIO.getImageWritersByFormatName("jpeg").next();
+            this.param = (JPEGImageWriteParam) imageWriter.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            imageWriter.setOutput(output);
+        }
+
+        private byte[] write(BufferedImage image, JpegProfile profile) throws IOException {
+            output.clear();
+            // The quality overrides the quantization tables of the metadata
+            param.setCompressionQuality((float) profile.quality());
+            param.setProgressiveMode(profile.progressive()
+                    ? ImageWriteParam.MODE_DEFAULT
+                    : ImageWriteParam.MODE_DISABLED);
+            param.setOptimizeHuffmanTables(profile.optimizeHuffman());
+            imageWriter.write(null, new IIOImage(image, null, metadata(image, profile)), param);
+            return output.toByteArray();
+        }
+
+        // Null leaves the writer's defaults: 4:2:0 and a JFIF header
+        private IIOMetadata metadata(BufferedImage image, JpegProfile profile) throws IOException {
+            if (!profile.stripMetadata() && profile.chromaSubsampling() == JpegProfile.ChromaSubsampling.YUV420) {
+                return null;
+            }
+            // Custom image types cannot be told apart by their type, so their metadata is not kept
+            if (image.getType() == BufferedImage.TYPE_CUSTOM) {
+                return createMetadata(image, profile);
+            }
+            MetadataKey key = new MetadataKey(image.getType(), profile.progressive(), profile.chromaSubsampling(),
+                    profile.stripMetadata());
+            IIOMetadata cached = metadata.get(key);
+            if (cached == null) {
+                cached = createMetadata(image, profile);
+                metadata.put(key, cached);
+            }
+            return cached;
+        }
+
+        private IIOMetadata createMetadata(BufferedImage image, JpegProfile profile) throws IOException {
+            IIOMetadata imageMetadata = imageWriter.getDefaultImageMetadata(
+                    ImageTypeSpecifier.createFromRenderedImage(image), param);
+            IIOMetadataNode root = (IIOMetadataNode) imageMetadata.getAsTree(NATIVE_FORMAT);
+
+            if (profile.stripMetadata()) {
+                // Without the JFIF segment decoders assume YCbCr for three components, which is what is written
+                IIOMetadataNode variety = (IIOMetadataNode) root.getElementsByTagName("JPEGvariety").item(0);
+                while (variety != null && variety.hasChildNodes()) {
+                    variety.removeChild(variety.getFirstChild());
+                }
+            }
+
+            // The first component is luma, the chroma components always keep a factor of 1
+            IIOMetadataNode luma = (IIOMetadataNode) root.getElementsByTagName("componentSpec").item(0);
+            if (luma != null && root.getElementsByTagName("componentSpec").getLength() > 1) {
+                String factor = String.valueOf(profile.chromaSubsampling().lumaSamplingFactor());
+                luma.setAttribute("HsamplingFactor", factor);
+                luma.setAttribute("VsamplingFactor", factor);
+            }
+
+            imageMetadata.setFromTree(NATIVE_FORMAT, root);
+            return imageMetadata;
+        }
+
+        private void dispose() {
+            imageWriter.dispose();
+        }
+    }
+
+    private record MetadataKey(int imageType, boolean progressive, JpegProfile.ChromaSubsampling chromaSubsampling,
+                               boolean stripMetadata) {
+    }
+}
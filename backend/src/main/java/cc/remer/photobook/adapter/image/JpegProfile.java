@@ -0,0 +1,55 @@
+package cc.remer.photobook.adapter.image;
+
+/**
+ * How a JPEG is encoded beyond its quality. {@link #baseline} is what the JDK writer does by default: a single
+ * baseline scan, the standard Huffman tables, 4:2:0 chroma subsampling and a JFIF header.
+ */
+public record JpegProfile(double quality, boolean progressive, boolean optimizeHuffman,
+                          ChromaSubsampling chromaSubsampling, boolean stripMetadata) {
+
+    public static JpegProfile baseline(double quality) {
+        return new JpegProfile(quality, false, false, ChromaSubsampling.YUV420, false);
+    }
+
+    /**
+     * The encoder settings without the quality, e.g. {@code prog-420-opt-strip}.
+     */
+    public String key() {
+        return (progressive ? "prog" : "base") + "-" + chromaSubsampling.key
+                + (optimizeHuffman ? "-opt" : "") + (stripMetadata ? "-strip" : "");
+    }
+
+    public enum ChromaSubsampling {
+        // Color at a quarter of the resolution of brightness, what almost every JPEG uses
+        YUV420("4:2:0", "420", 2),
+        // Full color resolution, sharper colored edges at noticeably more bytes
+        YUV444("4:4:4", "444", 1);
+
+        private final String value;
+        private final String key;
+        private final int lumaSamplingFactor;
+
+        ChromaSubsampling(String value, String key, int lumaSamplingFactor) {
+            this.value = value;
+            this.key = key;
+            this.lumaSamplingFactor = lumaSamplingFactor;
+        }
+
+        /**
+         * Horizontal and vertical sampling factor of the luma component relative to both chroma components.
+         */
+        public int lumaSamplingFactor() {
+            return lumaSamplingFactor;
+        }
+
+        public static ChromaSubsampling fromValue(String value) {
+            for (ChromaSubsampling subsampling : values()) {
+                if (subsampling.value.equals(value) || subsampling.key.equals(value)) {
+                    return subsampling;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported chroma subsampling: " + value
+                    + ", expected 4:2:0 or 4:4:4");
+        }
+    }
+}
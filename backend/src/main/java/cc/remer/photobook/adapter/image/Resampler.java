@@ -0,0 +1,11 @@
+package cc.remer.photobook.adapter.image;
+
+/**
+ * One vertical resampling pass over a single channel. Both planes are row-major with {@code width} floats per
+ * row; {@code dst} receives {@code weights.outputLength} rows. The horizontal pass runs the same code on the
+ * transposed plane, so all arithmetic happens along contiguous rows.
+ */
+interface Resampler {
+
+    void resample(float[] src, int width, float[] dst, ResizeWeights weights);
+}
@@ -0,0 +1,50 @@
+package cc.remer.photobook.adapter.image;
+
+/**
+ * Reconstruction filters for {@link SeparableResizer}. The support is the radius in source pixels at scale 1;
+ * when downscaling it is stretched by the scale factor so every source pixel contributes.
+ */
+public enum ResizeKernel {
+
+    // Keys' cubic convolution with a = -0.5 (Catmull-Rom)
+    BICUBIC(2.0) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            if (x < 1.0) {
+                return (1.5 * x - 2.5) * x * x + 1.0;
+            }
+            if (x < 2.0) {
+                return ((-0.5 * x + 2.5) * x - 4.0) * x + 2.0;
+            }
+            return 0.0;
+        }
+    },
+
+    LANCZOS3(3.0) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            if (x < 1e-8) {
+                return 1.0;
+            }
+            if (x >= 3.0) {
+                return 0.0;
+            }
+            double px = Math.PI * x;
+            return 3.0 * Math.sin(px) * Math.sin(px / 3.0) / (px * px);
+        }
+    };
+
+    private final double support;
+
+    ResizeKernel(double support) {
+        this.support = support;
+    }
+
+    double support() {
+        return support;
+    }
+
+    abstract double weight(double x);
+}
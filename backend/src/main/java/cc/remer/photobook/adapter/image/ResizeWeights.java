@@ -0,0 +1,60 @@
+package cc.remer.photobook.adapter.image;
+
+/**
+ * Precomputed, normalized filter taps for resampling one axis. Output index {@code i} is the weighted sum of
+ * {@code count[i]} source lines starting at {@code start[i]}, with its weights at {@code i * stride}.
+ */
+final class ResizeWeights {
+
+    final ResizeKernel kernel;
+    final int inputLength;
+    final int outputLength;
+    final int stride;
+    final int[] start;
+    final int[] count;
+    final float[] weights;
+
+    private ResizeWeights(ResizeKernel kernel, int inputLength, int outputLength, int stride) {
+        this.kernel = kernel;
+        this.inputLength = inputLength;
+        this.outputLength = outputLength;
+        this.stride = stride;
+        this.start = new int[outputLength];
+        this.count = new int[outputLength];
+        this.weights = new float[outputLength * stride];
+    }
+
+    static ResizeWeights compute(ResizeKernel kernel, int inputLength, int outputLength) {
+        double scale = (double) inputLength / outputLength;
+        double filterScale = Math.max(1.0, scale);
+        double support = kernel.support() * filterScale;
+
+        ResizeWeights result = new ResizeWeights(kernel, inputLength, outputLength, (int) Math.ceil(2 * support) + 2);
+        for (int i = 0; i < outputLength; i++) {
+            double center = (i + 0.5) * scale;
+            int from = Math.max(0, (int) Math.floor(center - support));
+            int to = Math.min(inputLength, (int) Math.ceil(center + support));
+
+            int offset = i * result.stride;
+            double sum = 0;
+            for (int j = from; j < to; j++) {
+                double weight = kernel.weight((j + 0.5 - center) / filterScale);
+                result.weights[offset + j - from] = (float) weight;
+                sum += weight;
+            }
+            if (sum != 0) {
+                for (int j = 0; j < to - from; j++) {
+                    result.weights[offset + j] = (float) (result.weights[offset + j] / sum);
+                }
+            }
+
+            result.start[i] = from;
+            result.count[i] = to - from;
+        }
+        return result;
+    }
+
+    boolean matches(ResizeKernel kernel, int inputLength, int outputLength) {
+        return this.kernel == kernel && this.inputLength == inputLength && this.outputLength == outputLength;
+    }
+}
@@ -0,0 +1,22 @@
+package cc.remer.photobook.adapter.image;
+
+final class ScalarResampler implements Resampler {
+
+    @Override
+    public void resample(float[] src, int width, float[] dst, ResizeWeights weights) {
+        for (int y = 0; y < weights.outputLength; y++) {
+            int dstOffset = y * width;
+            int weightOffset = y * weights.stride;
+            int first = weights.start[y];
+            int taps = weights.count[y];
+
+            for (int x = 0; x < width; x++) {
+                float sum = 0f;
+                for (int k = 0; k < taps; k++) {
+                    sum += weights.weights[weightOffset + k] * src[(first + k) * width + x];
+                }
+                dst[dstOffset + x] = sum;
+            }
+        }
+    }
+}
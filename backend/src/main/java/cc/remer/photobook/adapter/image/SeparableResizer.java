@@ -0,0 +1,184 @@
+package cc.remer.photobook.adapter.image;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Separable convolution resizer working on primitive rasters. Each color channel is unpacked into a float
+ * plane, resampled vertically, transposed and resampled vertically again, then packed into the destination, so
+ * only one channel is expanded at a time. The planes and filter weights are kept per thread and reused by the
+ * next resize. Alpha is dropped, thumbnails are stored as JPEG.
+ */
+public class SeparableResizer implements ImageResizer {
+
+    private static final int TRANSPOSE_BLOCK = 64;
+    // 16MB per plane; covers the subsampled decode of common photos, larger ones allocate per resize
+    private static final int RETAINED_FLOATS = 4 * 1024 * 1024;
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final ResizeKernel kernel;
+    private final Resampler resampler;
+
+    private SeparableResizer(ResizeKernel kernel, Resampler resampler) {
+        this.kernel = kernel;
+        this.resampler = resampler;
+    }
+
+    public static SeparableResizer scalar(ResizeKernel kernel) {
+        return new SeparableResizer(kernel, new ScalarResampler());
+    }
+
+    /**
+     * Uses the Vector API; callers have to check {@link #isVectorApiAvailable()} first.
+     */
+    public static SeparableResizer vector(ResizeKernel kernel) {
+        return new SeparableResizer(kernel, new VectorResampler());
+    }
+
+    public static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    @Override
+    public void resize(BufferedImage source, BufferedImage destination) {
+        if (destination.getType() != BufferedImage.TYPE_INT_RGB || !hasPlainRaster(destination)) {
+            throw new IllegalArgumentException("Destination must be a plain TYPE_INT_RGB image");
+        }
+
+        BufferedImage image = hasPlainRaster(source) ? source : toIntRgb(source);
+        int sourceWidth = image.getWidth();
+        int sourceHeight = image.getHeight();
+        int width = destination.getWidth();
+        int height = destination.getHeight();
+
+        Scratch scratch = SCRATCH.get();
+        try {
+            ResizeWeights vertical = scratch.vertical = weights(scratch.vertical, sourceHeight, height);
+            ResizeWeights horizontal = scratch.horizontal = weights(scratch.horizontal, sourceWidth, width);
+            float[] plane = scratch.plane = Scratch.fit(scratch.plane, sourceWidth * sourceHeight);
+            float[] columns = scratch.columns = Scratch.fit(scratch.columns, sourceWidth * height);
+            float[] transposed = scratch.transposed = Scratch.fit(scratch.transposed, sourceWidth * height);
+            float[] rows = scratch.rows = Scratch.fit(scratch.rows, width * height);
+
+            int[] result = ((DataBufferInt) destination.getRaster().getDataBuffer()).getData();
+            Arrays.fill(result, 0, width * height, 0);
+
+            for (int channel = 0; channel < 3; channel++) {
+                unpack(image, channel, plane, sourceWidth * sourceHeight);
+                resampler.resample(plane, sourceWidth, columns, vertical);
+                transpose(columns, sourceWidth, height, transposed);
+                // Rows are source columns now: width rows of height floats
+                resampler.resample(transposed, height, rows, horizontal);
+                pack(rows, width, height, 16 - 8 * channel, result);
+            }
+        } finally {
+            scratch.trim();
+        }
+    }
+
+    private ResizeWeights weights(ResizeWeights cached, int inputLength, int outputLength) {
+        // Photos of one camera share their dimensions, so the last weights usually fit
+        return cached != null && cached.matches(kernel, inputLength, outputLength)
+                ? cached
+                : ResizeWeights.compute(kernel, inputLength, outputLength);
+    }
+
+    private static void unpack(BufferedImage image, int channel, float[] plane, int length) {
+        WritableRaster raster = image.getRaster();
+        if (raster.getDataBuffer() instanceof DataBufferInt buffer) {
+            int[] pixels = buffer.getData();
+            int shift = 16 - 8 * channel;
+            for (int i = 0; i < length; i++) {
+                plane[i] = (pixels[i] >> shift) & 0xFF;
+            }
+        } else {
+            // TYPE_3BYTE_BGR, as decoded from JPEG
+            byte[] pixels = ((DataBufferByte) raster.getDataBuffer()).getData();
+            int offset = 2 - channel;
+            for (int i = 0; i < length; i++) {
+                plane[i] = pixels[i * 3 + offset] & 0xFF;
+            }
+        }
+    }
+
+    private static void transpose(float[] src, int width, int height, float[] dst) {
+        for (int blockY = 0; blockY < height; blockY += TRANSPOSE_BLOCK) {
+            int maxY = Math.min(blockY + TRANSPOSE_BLOCK, height);
+            for (int blockX = 0; blockX < width; blockX += TRANSPOSE_BLOCK) {
+                int maxX = Math.min(blockX + TRANSPOSE_BLOCK, width);
+                for (int y = blockY; y < maxY; y++) {
+                    for (int x = blockX; x < maxX; x++) {
+                        dst[x * height + y] = src[y * width + x];
+                    }
+                }
+            }
+        }
+    }
+
+    // The plane is transposed: x * height + y
+    private static void pack(float[] plane, int width, int height, int shift, int[] result) {
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                int value = Math.clamp(Math.round(plane[x * height + y]), 0, 255);
+                result[y * width + x] |= value << shift;
+            }
+        }
+    }
+
+    // Rasters that can be read as packed int or BGR byte arrays starting at pixel (0, 0)
+    private static boolean hasPlainRaster(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (raster.getParent() != null || raster.getDataBuffer().getNumBanks() != 1
+                || raster.getDataBuffer().getOffset() != 0) {
+            return false;
+        }
+        long pixels = (long) image.getWidth() * image.getHeight();
+        return switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB ->
+                    raster.getDataBuffer().getSize() == pixels;
+            case BufferedImage.TYPE_3BYTE_BGR -> raster.getDataBuffer().getSize() == pixels * 3;
+            default -> false;
+        };
+    }
+
+    /**
+     * Working planes of one thread, kept between resizes unless they grew beyond {@link #RETAINED_FLOATS}.
+     */
+    private static final class Scratch {
+
+        private float[] plane;
+        private float[] columns;
+        private float[] transposed;
+        private float[] rows;
+        private ResizeWeights vertical;
+        private ResizeWeights horizontal;
+
+        private static float[] fit(float[] array, int length) {
+            return array != null && array.length >= length ? array : new float[length];
+        }
+
+        private void trim() {
+            plane = retained(plane);
+            columns = retained(columns);
+            transposed = retained(transposed);
+            rows = retained(rows);
+        }
+
+        private static float[] retained(float[] array) {
+            return array != null && array.length <= RETAINED_FLOATS ? array : null;
+        }
+    }
+
+    private static BufferedImage toIntRgb(BufferedImage source) {
+        BufferedImage converted = new BufferedImage(source.getWidth(), source.getHeight(),
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = converted.createGraphics();
+        graphics.drawImage(source, 0, 0, null);
+        graphics.dispose();
+        return converted;
+    }
+}
@@ -0,0 +1,25 @@
+package cc.remer.photobook.adapter.image;
+
+import net.coobird.thumbnailator.Thumbnails;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * Thumbnailator's progressive bilinear scaling through Java2D. Allocates its own result, which is then copied
+ * into the destination.
+ */
+public class ThumbnailatorResizer implements ImageResizer {
+
+    @Override
+    public void resize(BufferedImage source, BufferedImage destination) throws IOException {
+        BufferedImage resized = Thumbnails.of(source)
+                .forceSize(destination.getWidth(), destination.getHeight())
+                .asBufferedImage();
+
+        Graphics2D graphics = destination.createGraphics();
+        graphics.drawImage(resized, 0, 0, null);
+        graphics.dispose();
+    }
+}
@@ -0,0 +1,151 @@
+package cc.remer.photobook.adapter.image;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+
+/**
+ * Cuts an image into a Deep Zoom tile pyramid while its rows are pushed in from top to bottom. The highest
+ * level is the image itself, every level below halves the one above (rounding up) down to a single pixel at
+ * level 0. Each level only buffers one row of tiles and hands every pair of its rows on to the level below, so
+ * memory grows with the width of the image, never with its area.
+ */
+public final class TilePyramid {
+
+    private final int tileSize;
+    private final TileSink sink;
+    private final Level[] levels;
+    private int tileCount;
+
+    public TilePyramid(int width, int height, int tileSize, TileSink sink) {
+        this.tileSize = tileSize;
+        this.sink = sink;
+
+        int maxLevel = maxLevel(width, height);
+        this.levels = new Level[maxLevel + 1];
+        int levelWidth = width;
+        int levelHeight = height;
+        for (int level = maxLevel; level >= 0; level--) {
+            levels[level] = new Level(level, levelWidth, levelHeight);
+            levelWidth = Math.ceilDiv(levelWidth, 2);
+            levelHeight = Math.ceilDiv(levelHeight, 2);
+        }
+    }
+
+    // ceil(log2(max(width, height)))
+    private static int maxLevel(int width, int height) {
+        int longest = Math.max(width, height);
+        return longest <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(longest - 1);
+    }
+
+    /**
+     * Adds the next rows of the image as packed RGB, {@code rows} times the image width.
+     */
+    public void push(int[] pixels, int rows) throws IOException {
+        Level top = levels[levels.length - 1];
+        for (int row = 0; row < rows; row++) {
+            top.addRow(pixels, row * top.width);
+        }
+    }
+
+    public boolean isComplete() {
+        return levels[0].received == levels[0].height;
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    @FunctionalInterface
+    public interface TileSink {
+        /**
+         * The tile is only valid until this method returns.
+         */
+        void accept(int level, int column, int row, BufferedImage tile) throws IOException;
+    }
+
+    private final class Level {
+        private final int level;
+        private final int width;
+        private final int height;
+        private final int[] buffer;
+        private int buffered;
+        private int received;
+        private int tileRow;
+        // A row waiting for its partner before it is halved into the level below
+        private final int[] pending;
+        private boolean hasPending;
+        private final int[] halved;
+
+        private Level(int level, int width, int height) {
+            this.level = level;
+            this.width = width;
+            this.height = height;
+            this.buffer = new int[width * Math.min(tileSize, height)];
+            this.pending = new int[width];
+            this.halved = new int[Math.ceilDiv(width, 2)];
+        }
+
+        private void addRow(int[] pixels, int offset) throws IOException {
+            if (received == height) {
+                throw new IllegalStateException("Level " + level + " already has all " + height + " rows");
+            }
+            System.arraycopy(pixels, offset, buffer, buffered * width, width);
+            buffered++;
+            received++;
+
+            if (level > 0) {
+                if (!hasPending) {
+                    System.arraycopy(pixels, offset, pending, 0, width);
+                    hasPending = true;
+                } else {
+                    halve(pending, 0, pixels, offset);
+                    hasPending = false;
+                }
+                // An odd last row is halved on its own
+                if (received == height && hasPending) {
+                    halve(pending, 0, pending, 0);
+                    hasPending = false;
+                }
+            }
+
+            if (buffered == tileSize || received == height) {
+                flush();
+            }
+        }
+
+        private void halve(int[] upper, int upperOffset, int[] lower, int lowerOffset) throws IOException {
+            for (int x = 0; x < halved.length; x++) {
+                int left = 2 * x;
+                int right = Math.min(left + 1, width - 1);
+                halved[x] = average(upper[upperOffset + left], upper[upperOffset + right],
+                        lower[lowerOffset + left], lower[lowerOffset + right]);
+            }
+            // Copied by the level below, so the row can be reused
+            levels[level - 1].addRow(halved, 0);
+        }
+
+        private void flush() throws IOException {
+            for (int column = 0; column * tileSize < width; column++) {
+                int x = column * tileSize;
+                int tileWidth = Math.min(tileSize, width - x);
+                BufferedImage tile = new BufferedImage(tileWidth, buffered, BufferedImage.TYPE_INT_RGB);
+                int[] tilePixels = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+                for (int y = 0; y < buffered; y++) {
+                    System.arraycopy(buffer, y * width + x, tilePixels, y * tileWidth, tileWidth);
+                }
+                sink.accept(level, column, tileRow, tile);
+                tileCount++;
+            }
+            tileRow++;
+            buffered = 0;
+        }
+    }
+
+    private static int average(int a, int b, int c, int d) {
+        int red = ((a >> 16 & 0xFF) + (b >> 16 & 0xFF) + (c >> 16 & 0xFF) + (d >> 16 & 0xFF) + 2) >> 2;
+        int green = ((a >> 8 & 0xFF) + (b >> 8 & 0xFF) + (c >> 8 & 0xFF) + (d >> 8 & 0xFF) + 2) >> 2;
+        int blue = ((a & 0xFF) + (b & 0xFF) + (c & 0xFF) + (d & 0xFF) + 2) >> 2;
+        return red << 16 | green << 8 | blue;
+    }
+}
@@ -0,0 +1,43 @@
+package cc.remer.photobook.adapter.image;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ScalarResampler} with the inner loop over whole SIMD registers: each lane accumulates one output
+ * column with fused multiply-adds, the remaining columns are summed one by one. Only loaded when the
+ * {@code jdk.incubator.vector} module is present.
+ */
+final class VectorResampler implements Resampler {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void resample(float[] src, int width, float[] dst, ResizeWeights weights) {
+        int bound = SPECIES.loopBound(width);
+
+        for (int y = 0; y < weights.outputLength; y++) {
+            int dstOffset = y * width;
+            int weightOffset = y * weights.stride;
+            int first = weights.start[y];
+            int taps = weights.count[y];
+
+            int x = 0;
+            for (; x < bound; x += SPECIES.length()) {
+                FloatVector sum = FloatVector.zero(SPECIES);
+                for (int k = 0; k < taps; k++) {
+                    FloatVector row = FloatVector.fromArray(SPECIES, src, (first + k) * width + x);
+                    sum = row.fma(FloatVector.broadcast(SPECIES, weights.weights[weightOffset + k]), sum);
+                }
+                sum.intoArray(dst, dstOffset + x);
+            }
+            for (; x < width; x++) {
+                float sum = 0f;
+                for (int k = 0; k < taps; k++) {
+                    sum += weights.weights[weightOffset + k] * src[(first + k) * width + x];
+                }
+                dst[dstOffset + x] = sum;
+            }
+        }
+    }
+}
@@ -9,7 +9,9 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
@@ -32,6 +34,9 @@ public interface AlbumPhotoRepository extends JpaRepository<AlbumPhoto, UUID> {
     @Query("SELECT MAX(ap.position) FROM AlbumPhoto ap WHERE ap.albumId = :albumId")
     Optional<Integer> findMaxPositionByAlbumId(@Param("albumId") UUID albumId);
 
+    @Query("SELECT ap.photoId FROM AlbumPhoto ap WHERE ap.albumId = :albumId AND ap.photoId IN :photoIds")
+    Set<UUID> findPhotoIdsInAlbum(@Param("albumId") UUID albumId, @Param("photoIds") Collection<UUID> photoIds);
+
     @Query("SELECT ap FROM AlbumPhoto ap LEFT JOIN FETCH ap.photo WHERE ap.albumId = :albumId")
     Page<AlbumPhoto> findByAlbumIdWithPhoto(@Param("albumId") UUID albumId, Pageable pageable);
 }
@@ -0,0 +1,18 @@
+package cc.remer.photobook.adapter.persistence;
+
+import cc.remer.photobook.domain.PhotoRendition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface PhotoRenditionRepository extends JpaRepository<PhotoRendition, UUID> {
+
+    Optional<PhotoRendition> findByPhotoIdAndRequestedWidthAndFormat(UUID photoId, Integer requestedWidth,
+                                                                      String format);
+
+    List<PhotoRendition> findByPhotoId(UUID photoId);
+}
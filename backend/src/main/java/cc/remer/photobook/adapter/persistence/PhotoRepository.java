@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -16,9 +17,38 @@ public interface PhotoRepository extends JpaRepository<Photo, UUID> {
 
     List<Photo> findByStatus(String status);
 
+    Optional<Photo> findFirstByOwnerIdAndContentHashAndStatusNotOrderByCreatedAtAsc(UUID ownerId, String contentHash,
+                                                                                    String status);
+
+    /**
+     * Keyset page of READY photos after the given id, in id order.
+     */
+    @Query(value = "SELECT id FROM photos " +
+                   "WHERE status = 'READY' AND id > :afterId " +
+                   "ORDER BY id " +
+                   "LIMIT :limit",
+           nativeQuery = true)
+    List<UUID> findReadyIdsAfter(@Param("afterId") UUID afterId, @Param("limit") int limit);
+
     @Query("SELECT p FROM Photo p " +
            "JOIN AlbumPhoto ap ON ap.photoId = p.id " +
            "WHERE ap.albumId = :albumId " +
            "ORDER BY ap.position ASC, ap.addedAt DESC")
     List<Photo> findByAlbumId(@Param("albumId") UUID albumId);
+
+    @Query("SELECT p.uploadJobFileId AS fileId, " +
+           "SUM(CASE WHEN p.status = 'READY' THEN 1 ELSE 0 END) AS ready, " +
+           "SUM(CASE WHEN p.status = 'PROCESSING' THEN 1 ELSE 0 END) AS pending " +
+           "FROM Photo p " +
+           "WHERE p.uploadJobFileId IN (SELECT f.id FROM UploadJobFile f WHERE f.jobId = :jobId) " +
+           "GROUP BY p.uploadJobFileId")
+    List<ThumbnailProgress> findThumbnailProgressByUploadJobId(@Param("jobId") UUID jobId);
+
+    interface ThumbnailProgress {
+        UUID getFileId();
+
+        Long getReady();
+
+        Long getPending();
+    }
 }
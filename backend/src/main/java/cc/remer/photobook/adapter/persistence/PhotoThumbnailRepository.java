@@ -2,8 +2,12 @@ package cc.remer.photobook.adapter.persistence;
 
 import cc.remer.photobook.domain.PhotoThumbnail;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -16,4 +20,24 @@ public interface PhotoThumbnailRepository extends JpaRepository<PhotoThumbnail,
     Optional<PhotoThumbnail> findByPhotoIdAndSize(UUID photoId, String size);
 
     void deleteByPhotoId(UUID photoId);
+
+    // Runs immediately, so replacement rows can be inserted in the same transaction
+    @Modifying
+    @Query("DELETE FROM PhotoThumbnail t WHERE t.photoId = :photoId AND t.size IN :sizes")
+    int deleteByPhotoIdAndSizeIn(@Param("photoId") UUID photoId, @Param("sizes") Collection<String> sizes);
+
+    /**
+     * Those of the given photos that have a placeholder and a thumbnail for every one of the variants, each
+     * given as {@code SIZE:preset}.
+     */
+    @Query(value = "SELECT t.photo_id FROM photo_thumbnails t " +
+                   "JOIN photos p ON p.id = t.photo_id " +
+                   "WHERE t.photo_id IN (:photoIds) AND t.size || ':' || t.preset IN (:variants) " +
+                   "AND p.placeholder IS NOT NULL " +
+                   "GROUP BY t.photo_id " +
+                   "HAVING COUNT(*) = :variantCount",
+           nativeQuery = true)
+    List<UUID> findUpToDatePhotoIds(@Param("photoIds") Collection<UUID> photoIds,
+                                    @Param("variants") Collection<String> variants,
+                                    @Param("variantCount") long variantCount);
 }
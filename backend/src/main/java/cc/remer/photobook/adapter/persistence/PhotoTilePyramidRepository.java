@@ -0,0 +1,11 @@
+package cc.remer.photobook.adapter.persistence;
+
+import cc.remer.photobook.domain.PhotoTilePyramid;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface PhotoTilePyramidRepository extends JpaRepository<PhotoTilePyramid, UUID> {
+}
@@ -0,0 +1,25 @@
+package cc.remer.photobook.adapter.persistence;
+
+import cc.remer.photobook.domain.ThumbnailBackfill;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ThumbnailBackfillRepository extends JpaRepository<ThumbnailBackfill, UUID> {
+
+    boolean existsByStatus(String status);
+
+    /**
+     * Locks the running backfill for one batch. A backfill that is locked by another node is skipped, so
+     * every batch is processed by one node only.
+     */
+    @Query(value = "SELECT * FROM thumbnail_backfills " +
+                   "WHERE status = 'RUNNING' " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    Optional<ThumbnailBackfill> lockRunning();
+}
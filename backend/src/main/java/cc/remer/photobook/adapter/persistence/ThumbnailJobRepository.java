@@ -0,0 +1,89 @@
+package cc.remer.photobook.adapter.persistence;
+
+import cc.remer.photobook.domain.ThumbnailJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ThumbnailJobRepository extends JpaRepository<ThumbnailJob, UUID> {
+
+    /**
+     * Locks due jobs: pending ones whose backoff has passed and running ones whose lease expired because their
+     * node died. Rows locked by another node are skipped, so concurrent workers never claim the same job.
+     * Backfill jobs come after every due upload job.
+     */
+    @Query(value = "SELECT * FROM thumbnail_jobs " +
+                   "WHERE (status = 'PENDING' AND run_after <= :now) " +
+                   "OR (status = 'RUNNING' AND locked_until < :now) " +
+                   "ORDER BY priority, run_after " +
+                   "LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<ThumbnailJob> lockDueJobs(@Param("now") Instant now, @Param("limit") int limit);
+
+    /**
+     * Locks a job only while the given node still holds its lease. Once the lease expired and another node
+     * claimed the job, the late result of the first node must not touch it.
+     */
+    @Query(value = "SELECT * FROM thumbnail_jobs " +
+                   "WHERE id = :id AND status = 'RUNNING' AND locked_by = :nodeId " +
+                   "FOR UPDATE",
+           nativeQuery = true)
+    Optional<ThumbnailJob> lockClaimed(@Param("id") UUID id, @Param("nodeId") String nodeId);
+
+    @Modifying
+    @Query(value = "DELETE FROM thumbnail_jobs WHERE id = :id AND status = 'RUNNING' AND locked_by = :nodeId",
+           nativeQuery = true)
+    int deleteClaimed(@Param("id") UUID id, @Param("nodeId") String nodeId);
+
+    /**
+     * Extends the leases the given node still holds.
+     */
+    @Modifying
+    @Query(value = "UPDATE thumbnail_jobs SET locked_until = :lockedUntil " +
+                   "WHERE id IN (:ids) AND status = 'RUNNING' AND locked_by = :nodeId",
+           nativeQuery = true)
+    int renewLeases(@Param("ids") Collection<UUID> ids, @Param("nodeId") String nodeId,
+                    @Param("lockedUntil") Instant lockedUntil);
+
+    /**
+     * Enqueues photos that are still processing but have no job, e.g. because they were uploaded
+     * before the queue existed.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO thumbnail_jobs (photo_id) " +
+                   "SELECT p.id FROM photos p " +
+                   "WHERE p.status = 'PROCESSING' " +
+                   "AND NOT EXISTS (SELECT 1 FROM thumbnail_jobs j WHERE j.photo_id = p.id) " +
+                   "ON CONFLICT (photo_id) DO NOTHING",
+           nativeQuery = true)
+    int enqueueOrphanedPhotos();
+
+    /**
+     * Enqueues those of the given photos that still exist and have no job yet. A job that was given up on starts
+     * over with fresh attempts, pending and running jobs are left alone.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO thumbnail_jobs (photo_id, priority) " +
+                   "SELECT p.id, :priority FROM photos p " +
+                   "WHERE p.id IN (:photoIds) " +
+                   "ON CONFLICT (photo_id) DO UPDATE " +
+                   "SET status = 'PENDING', attempts = 0, priority = EXCLUDED.priority, last_error = NULL, " +
+                   "    run_after = CURRENT_TIMESTAMP " +
+                   "WHERE thumbnail_jobs.status = 'FAILED'",
+           nativeQuery = true)
+    int enqueueExisting(@Param("photoIds") Collection<UUID> photoIds, @Param("priority") int priority);
+
+    long countByStatus(String status);
+
+    long countByPriorityAndStatusNot(Integer priority, String status);
+}
@@ -0,0 +1,23 @@
+package cc.remer.photobook.adapter.persistence;
+
+import cc.remer.photobook.domain.UploadJobFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UploadJobFileRepository extends JpaRepository<UploadJobFile, UUID> {
+
+    List<UploadJobFile> findByJobIdOrderByPositionAsc(UUID jobId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_job_files SET bytes_stored = :bytesStored WHERE id = :id", nativeQuery = true)
+    void updateBytesStored(@Param("id") UUID id, @Param("bytesStored") long bytesStored);
+}
@@ -0,0 +1,33 @@
+package cc.remer.photobook.adapter.persistence;
+
+import cc.remer.photobook.domain.UploadJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface UploadJobRepository extends JpaRepository<UploadJob, UUID> {
+
+    // Bumps updated_at through the trigger, which serves as the heartbeat of a running job
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_jobs SET status = status WHERE id = :id", nativeQuery = true)
+    void touch(@Param("id") UUID id);
+
+    /**
+     * Fails jobs whose processing node stopped sending heartbeats. Their spooled files were local to that node.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_jobs " +
+                   "SET status = 'FAILED', error_message = 'Upload job was interrupted', completed_at = CURRENT_TIMESTAMP " +
+                   "WHERE status IN ('PENDING', 'RUNNING') AND updated_at < :staleBefore",
+           nativeQuery = true)
+    int failStaleJobs(@Param("staleBefore") Instant staleBefore);
+}
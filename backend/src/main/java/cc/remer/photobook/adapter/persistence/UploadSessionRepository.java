@@ -0,0 +1,110 @@
+package cc.remer.photobook.adapter.persistence;
+
+import cc.remer.photobook.domain.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    /**
+     * Locks a batch of expired sessions for cleanup. Sessions locked by another node are skipped, so every
+     * session is cleaned up by one node only. Completions are left alone unless their claim went stale.
+     */
+    @Query(value = "SELECT * FROM upload_sessions " +
+                   "WHERE expires_at < :now " +
+                   "AND (status <> 'COMPLETING' OR updated_at < :staleBefore) " +
+                   "ORDER BY expires_at " +
+                   "LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<UploadSession> lockExpired(@Param("now") Instant now,
+                                    @Param("staleBefore") Instant staleBefore,
+                                    @Param("limit") int limit);
+
+    /**
+     * Records a stored part. Only succeeds while the session is active, has not expired and the chunk does not
+     * leave a gap, so concurrent requests on different nodes cannot corrupt the progress.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_sessions " +
+                   "SET parts = parts || jsonb_build_object(CAST(:partNumber AS text), CAST(:eTag AS text)), " +
+                   "    bytes_received = GREATEST(bytes_received, :endOffset), " +
+                   "    expires_at = :expiresAt " +
+                   "WHERE id = :id AND status = 'ACTIVE' AND bytes_received >= :offset AND expires_at > :now",
+           nativeQuery = true)
+    int recordChunk(@Param("id") UUID id,
+                    @Param("now") Instant now,
+                    @Param("offset") long offset,
+                    @Param("endOffset") long endOffset,
+                    @Param("partNumber") int partNumber,
+                    @Param("eTag") String eTag,
+                    @Param("expiresAt") Instant expiresAt);
+
+    /**
+     * Claims a fully received session for completion under the given token. A claim that was not renewed since
+     * {@code staleBefore} is considered abandoned (e.g. the node died) and can be taken over.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_sessions SET status = 'COMPLETING', completion_token = :token " +
+                   "WHERE id = :id AND bytes_received = total_size " +
+                   "AND (status = 'ACTIVE' OR (status = 'COMPLETING' AND updated_at < :staleBefore))",
+           nativeQuery = true)
+    int claimForCompletion(@Param("id") UUID id, @Param("token") UUID token,
+                           @Param("staleBefore") Instant staleBefore);
+
+    /**
+     * Refreshes a completion claim while the given token still holds it. The update trigger moves
+     * {@code updated_at}, which keeps the claim from going stale.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_sessions SET completion_token = :token " +
+                   "WHERE id = :id AND status = 'COMPLETING' AND completion_token = :token",
+           nativeQuery = true)
+    int renewCompletion(@Param("id") UUID id, @Param("token") UUID token);
+
+    /**
+     * Locks a session only while the given token still holds its completion claim. Once the claim went stale and
+     * another node took it over, the late result of the first attempt must not close the session.
+     */
+    @Query(value = "SELECT * FROM upload_sessions " +
+                   "WHERE id = :id AND status = 'COMPLETING' AND completion_token = :token " +
+                   "FOR UPDATE",
+           nativeQuery = true)
+    Optional<UploadSession> lockClaimedCompletion(@Param("id") UUID id, @Param("token") UUID token);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE upload_sessions SET status = 'ACTIVE', completion_token = NULL " +
+                   "WHERE id = :id AND status = 'COMPLETING' AND completion_token = :token",
+           nativeQuery = true)
+    int releaseCompletion(@Param("id") UUID id, @Param("token") UUID token);
+
+    /**
+     * Deletes a session that is still receiving chunks. A session being completed cannot be aborted, and once
+     * deleted it can no longer be claimed for completion.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM upload_sessions WHERE id = :id AND status = 'ACTIVE'", nativeQuery = true)
+    int deleteActive(@Param("id") UUID id);
+
+    @Modifying
+    @Query(value = "UPDATE upload_sessions " +
+                   "SET status = 'COMPLETED', bytes_received = total_size, photo_ids = jsonb_build_array(photo_id) " +
+                   "WHERE id IN (:ids) AND upload_mode = 'DIRECT' AND status = 'ACTIVE'",
+           nativeQuery = true)
+    int markDirectUploadsCompleted(@Param("ids") List<UUID> ids);
+}
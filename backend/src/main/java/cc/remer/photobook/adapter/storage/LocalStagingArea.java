@@ -0,0 +1,185 @@
+package cc.remer.photobook.adapter.storage;
+
+import cc.remer.photobook.config.UploadProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local copies of freshly uploaded originals, keyed by photo ID, so thumbnail generation on this node does not
+ * download them from storage again. The area is bounded by size: when it is full, uploads simply are not
+ * staged and readers fall back to storage. Readers get a link of their own, so a copy is removed once consumed,
+ * or after the TTL, without pulling the file away from a reader.
+ */
+@Slf4j
+@Component
+public class LocalStagingArea {
+
+    private final Path root;
+    private final long maxBytes;
+    private final UploadProperties.StagingConfig config;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final Map<UUID, StagedFile> files = new ConcurrentHashMap<>();
+
+    public LocalStagingArea(UploadProperties uploadProperties,
+                            @Value("${thumbnail.worker.enabled:true}") boolean thumbnailWorkerEnabled) {
+        this.config = uploadProperties.getStaging();
+        this.root = Paths.get(config.getDir());
+        // Staged copies are only read by a thumbnail worker in the same JVM
+        this.maxBytes = thumbnailWorkerEnabled ? config.getMaxSize().toBytes() : 0;
+    }
+
+    /**
+     * Copies left over from before a restart are not tracked, so they are dropped. Runs before the web server
+     * starts, so no upload can stage a copy that is then deleted.
+     */
+    @PostConstruct
+    public void initialize() {
+        try {
+            FileSystemUtils.deleteRecursively(root);
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            log.error("Failed to prepare staging area: {}", root, e);
+        }
+    }
+
+    /**
+     * Reserves room for a file of the given size. Empty when the area is disabled or full.
+     */
+    public Optional<Reservation> reserve(long bytes) {
+        if (bytes <= 0 || bytes > maxBytes) {
+            return Optional.empty();
+        }
+
+        long used;
+        do {
+            used = usedBytes.get();
+            if (used + bytes > maxBytes) {
+                log.debug("Staging area full ({} of {} bytes used), not staging {} bytes", used, maxBytes, bytes);
+                return Optional.empty();
+            }
+        } while (!usedBytes.compareAndSet(used, used + bytes));
+
+        try {
+            return Optional.of(new Reservation(Files.createTempFile(root, "pending-", ".tmp"), bytes));
+        } catch (IOException e) {
+            usedBytes.addAndGet(-bytes);
+            log.warn("Failed to create staging file in {}", root, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Hard-links the staged copy of a photo to a new file that belongs to the caller, who deletes it when done.
+     * The copy itself can then be removed or expire while the caller still reads the link; its bytes stay on disk
+     * until the link is deleted as well. Empty when nothing is staged for the photo.
+     */
+    public Optional<Path> link(UUID photoId) {
+        StagedFile file = files.get(photoId);
+        if (file == null) {
+            return Optional.empty();
+        }
+
+        // Inside the root, so the link is on the same file system and dropped with the leftovers after a restart
+        Path link = root.resolve("reading-" + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createLink(link, file.path());
+            return Optional.of(link);
+        } catch (NoSuchFileException e) {
+            // Removed since the lookup
+            return Optional.empty();
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Failed to link staged copy of photo {}", photoId, e);
+            return Optional.empty();
+        }
+    }
+
+    public void remove(UUID photoId) {
+        StagedFile file = files.remove(photoId);
+        if (file != null) {
+            delete(file.path(), file.bytes());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${upload.staging.cleanup-interval:PT5M}")
+    public void removeExpired() {
+        Instant cutoff = Instant.now().minus(config.getTtl());
+        files.forEach((photoId, file) -> {
+            if (file.stagedAt().isBefore(cutoff) && files.remove(photoId, file)) {
+                log.debug("Removing expired staged copy of photo {}", photoId);
+                delete(file.path(), file.bytes());
+            }
+        });
+    }
+
+    private void delete(Path path, long bytes) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete staged file: {}", path, e);
+        }
+        usedBytes.addAndGet(-bytes);
+    }
+
+    private record StagedFile(Path path, long bytes, Instant stagedAt) {
+    }
+
+    /**
+     * Room for one file. The owner writes to {@link #getPath()} and either commits it under a photo ID or
+     * closes it, which gives the room back.
+     */
+    public class Reservation implements AutoCloseable {
+
+        @Getter
+        private final Path path;
+        private final long bytes;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Reservation(Path path, long bytes) {
+            this.path = path;
+            this.bytes = bytes;
+        }
+
+        public void commit(UUID photoId) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                Path target = root.resolve(photoId.toString());
+                Files.move(path, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                StagedFile previous = files.put(photoId, new StagedFile(target, bytes, Instant.now()));
+                if (previous != null) {
+                    usedBytes.addAndGet(-previous.bytes());
+                }
+            } catch (IOException e) {
+                log.warn("Failed to stage copy of photo {}", photoId, e);
+                delete(path, bytes);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (done.compareAndSet(false, true)) {
+                delete(path, bytes);
+            }
+        }
+    }
+}
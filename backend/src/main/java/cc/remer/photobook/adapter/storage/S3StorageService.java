@@ -10,9 +10,18 @@ import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 @Slf4j
 @Service
@@ -27,8 +36,143 @@ public class S3StorageService {
         uploadFile(properties.getBuckets().getOriginals(), key, inputStream, contentLength, contentType);
     }
 
+    /**
+     * Uploads an original of unknown length. The stream is consumed in parts of
+     * {@code seaweedfs.multipart.part-size}, so heap usage stays at one part regardless of the file size.
+     *
+     * @return the number of bytes stored
+     */
+    public long uploadOriginalStream(String key, InputStream inputStream, String contentType) {
+        return uploadStream(properties.getBuckets().getOriginals(), key, inputStream, contentType);
+    }
+
+    public String startOriginalMultipartUpload(String key, String contentType) {
+        try {
+            return createMultipartUpload(properties.getBuckets().getOriginals(), key, contentType);
+        } catch (Exception e) {
+            log.error("Failed to start multipart upload for key: {}", key, e);
+            throw new StorageException("Failed to start multipart upload: " + key, e);
+        }
+    }
+
+    /**
+     * Uploads one part of a multipart upload. Uploading the same part number again replaces the part.
+     *
+     * @return the ETag of the stored part
+     */
+    public String uploadOriginalPart(String key, String uploadId, int partNumber, InputStream inputStream,
+                                     long contentLength) {
+        try {
+            log.debug("Uploading part {} of key: {}, size: {} bytes", partNumber, key, contentLength);
+            return uploadPart(properties.getBuckets().getOriginals(), key, uploadId, partNumber,
+                    RequestBody.fromInputStream(inputStream, contentLength), contentLength);
+        } catch (Exception e) {
+            log.error("Failed to upload part {} of key: {}", partNumber, key, e);
+            throw new StorageException("Failed to upload part " + partNumber + " of " + key, e);
+        }
+    }
+
+    public void completeOriginalMultipartUpload(String key, String uploadId, Map<Integer, String> partETags) {
+        try {
+            List<CompletedPart> parts = partETags.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .map(part -> CompletedPart.builder().partNumber(part.getKey()).eTag(part.getValue()).build())
+                    .toList();
+            completeMultipartUpload(properties.getBuckets().getOriginals(), key, uploadId, parts);
+        } catch (Exception e) {
+            log.error("Failed to complete multipart upload for key: {}", key, e);
+            throw new StorageException("Failed to complete multipart upload: " + key, e);
+        }
+    }
+
+    public void abortOriginalMultipartUpload(String key, String uploadId) {
+        abortMultipartUpload(properties.getBuckets().getOriginals(), key, uploadId);
+    }
+
+    /**
+     * Lists the parts stored so far for a multipart upload.
+     *
+     * @return part number -> ETag
+     */
+    public Map<Integer, String> listOriginalParts(String key, String uploadId) {
+        try {
+            Map<Integer, String> parts = new HashMap<>();
+            s3Client.listPartsPaginator(ListPartsRequest.builder()
+                            .bucket(properties.getBuckets().getOriginals())
+                            .key(key)
+                            .uploadId(uploadId)
+                            .build())
+                    .parts()
+                    .forEach(part -> parts.put(part.partNumber(), part.eTag()));
+            return parts;
+        } catch (Exception e) {
+            log.error("Failed to list parts of key: {}", key, e);
+            throw new StorageException("Failed to list parts: " + key, e);
+        }
+    }
+
+    /**
+     * Lets a client PUT an original straight to storage. Content type and length are part of the signature.
+     */
+    public String presignOriginalUpload(String key, String contentType, long contentLength, Duration expiration) {
+        try {
+            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                    .bucket(properties.getBuckets().getOriginals())
+                    .key(key)
+                    .contentType(contentType)
+                    .contentLength(contentLength)
+                    .build();
+
+            return s3Presigner.presignPutObject(PutObjectPresignRequest.builder()
+                    .signatureDuration(expiration)
+                    .putObjectRequest(putObjectRequest)
+                    .build()).url().toString();
+        } catch (Exception e) {
+            log.error("Failed to generate presigned upload URL for key: {}", key, e);
+            throw new StorageException("Failed to generate presigned upload URL: " + key, e);
+        }
+    }
+
+    public String presignOriginalPartUpload(String key, String uploadId, int partNumber, Duration expiration) {
+        try {
+            UploadPartRequest uploadPartRequest = UploadPartRequest.builder()
+                    .bucket(properties.getBuckets().getOriginals())
+                    .key(key)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .build();
+
+            return s3Presigner.presignUploadPart(UploadPartPresignRequest.builder()
+                    .signatureDuration(expiration)
+                    .uploadPartRequest(uploadPartRequest)
+                    .build()).url().toString();
+        } catch (Exception e) {
+            log.error("Failed to generate presigned part URL {} for key: {}", partNumber, key, e);
+            throw new StorageException("Failed to generate presigned part URL: " + key, e);
+        }
+    }
+
+    public Optional<StoredObjectInfo> statOriginal(String key) {
+        try {
+            HeadObjectResponse response = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(properties.getBuckets().getOriginals())
+                    .key(key)
+                    .build());
+            return Optional.of(new StoredObjectInfo(response.contentLength(), response.contentType()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (Exception e) {
+            log.error("Failed to read metadata of key: {}", key, e);
+            throw new StorageException("Failed to read metadata: " + key, e);
+        }
+    }
+
     public void uploadThumbnail(String key, InputStream inputStream, long contentLength) {
-        uploadFile(properties.getBuckets().getThumbnails(), key, inputStream, contentLength, "image/jpeg");
+        uploadThumbnail(key, inputStream, contentLength, "image/jpeg");
+    }
+
+    public void uploadThumbnail(String key, InputStream inputStream, long contentLength, String contentType) {
+        uploadFile(properties.getBuckets().getThumbnails(), key, inputStream, contentLength, contentType);
     }
 
     public void deleteOriginal(String key) {
@@ -39,12 +183,44 @@ public class S3StorageService {
         deleteFile(properties.getBuckets().getThumbnails(), key);
     }
 
+    /**
+     * Deletes every thumbnail object below the prefix, one listed page of at most 1000 keys per request.
+     */
+    public void deleteThumbnailsWithPrefix(String prefix) {
+        String bucket = properties.getBuckets().getThumbnails();
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(bucket)
+                .prefix(prefix)
+                .build();
+
+        for (ListObjectsV2Response page : s3Client.listObjectsV2Paginator(request)) {
+            if (page.contents().isEmpty()) {
+                continue;
+            }
+            List<ObjectIdentifier> objects = page.contents().stream()
+                    .map(object -> ObjectIdentifier.builder().key(object.key()).build())
+                    .toList();
+            s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                    .bucket(bucket)
+                    .delete(Delete.builder().objects(objects).quiet(true).build())
+                    .build());
+        }
+        log.debug("Deleted thumbnails below {}/{}", bucket, prefix);
+    }
+
     public InputStream downloadOriginal(String key) {
-        return downloadFile(properties.getBuckets().getOriginals(), key);
+        return downloadFile(properties.getBuckets().getOriginals(), key, null);
+    }
+
+    /**
+     * Only the first bytes of an original, or all of it if it is shorter.
+     */
+    public InputStream downloadOriginalPrefix(String key, long length) {
+        return downloadFile(properties.getBuckets().getOriginals(), key, "bytes=0-" + (length - 1));
     }
 
     public InputStream downloadThumbnail(String key) {
-        return downloadFile(properties.getBuckets().getThumbnails(), key);
+        return downloadFile(properties.getBuckets().getThumbnails(), key, null);
     }
 
     public String getPresignedOriginalUrl(String key, Duration expiration) {
@@ -91,6 +267,106 @@ public class S3StorageService {
         }
     }
 
+    private long uploadStream(String bucket, String key, InputStream inputStream, String contentType) {
+        byte[] buffer = new byte[(int) properties.getMultipart().getPartSize().toBytes()];
+
+        int read;
+        try {
+            read = inputStream.readNBytes(buffer, 0, buffer.length);
+        } catch (IOException e) {
+            log.error("Failed to read upload stream for bucket: {}, key: {}", bucket, key, e);
+            throw new StorageException("Failed to upload file: " + key, e);
+        }
+
+        if (read < buffer.length) {
+            // Whole file fits into a single part, a plain PUT is cheaper than a multipart upload
+            uploadFile(bucket, key, new ByteArrayInputStream(buffer, 0, read), read, contentType);
+            return read;
+        }
+
+        return uploadMultipart(bucket, key, inputStream, contentType, buffer, read);
+    }
+
+    private long uploadMultipart(String bucket, String key, InputStream inputStream, String contentType,
+                                 byte[] buffer, int firstPartSize) {
+        log.debug("Starting multipart upload to bucket: {}, key: {}, part size: {} bytes", bucket, key, buffer.length);
+
+        String uploadId = createMultipartUpload(bucket, key, contentType);
+
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            long totalBytes = 0;
+            int read = firstPartSize;
+
+            while (read > 0) {
+                int partNumber = parts.size() + 1;
+
+                String eTag = uploadPart(bucket, key, uploadId, partNumber,
+                        RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, read), read), read);
+
+                parts.add(CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(eTag)
+                        .build());
+                totalBytes += read;
+
+                read = inputStream.readNBytes(buffer, 0, buffer.length);
+            }
+
+            completeMultipartUpload(bucket, key, uploadId, parts);
+
+            log.debug("Successfully uploaded file to bucket: {}, key: {}, parts: {}, size: {} bytes",
+                    bucket, key, parts.size(), totalBytes);
+            return totalBytes;
+        } catch (Exception e) {
+            log.error("Failed multipart upload to bucket: {}, key: {}", bucket, key, e);
+            abortMultipartUpload(bucket, key, uploadId);
+            throw new StorageException("Failed to upload file: " + key, e);
+        }
+    }
+
+    private String createMultipartUpload(String bucket, String key, String contentType) {
+        return s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+    }
+
+    private String uploadPart(String bucket, String key, String uploadId, int partNumber, RequestBody body,
+                              long contentLength) {
+        UploadPartRequest request = UploadPartRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .partNumber(partNumber)
+                .contentLength(contentLength)
+                .build();
+
+        return s3Client.uploadPart(request, body).eTag();
+    }
+
+    private void completeMultipartUpload(String bucket, String key, String uploadId, List<CompletedPart> parts) {
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+    }
+
+    private void abortMultipartUpload(String bucket, String key, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Failed to abort multipart upload {} for key: {}", uploadId, key, e);
+        }
+    }
+
     private void deleteFile(String bucket, String key) {
         try {
             log.debug("Deleting file from bucket: {}, key: {}", bucket, key);
@@ -109,13 +385,14 @@ public class S3StorageService {
         }
     }
 
-    private InputStream downloadFile(String bucket, String key) {
+    private InputStream downloadFile(String bucket, String key, String range) {
         try {
-            log.debug("Downloading file from bucket: {}, key: {}", bucket, key);
+            log.debug("Downloading file from bucket: {}, key: {}, range: {}", bucket, key, range);
 
             GetObjectRequest request = GetObjectRequest.builder()
                     .bucket(bucket)
                     .key(key)
+                    .range(range)
                     .build();
 
             return s3Client.getObject(request);
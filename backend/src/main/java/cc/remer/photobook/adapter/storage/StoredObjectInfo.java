@@ -0,0 +1,12 @@
+package cc.remer.photobook.adapter.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class StoredObjectInfo {
+
+    private final long contentLength;
+    private final String contentType;
+}
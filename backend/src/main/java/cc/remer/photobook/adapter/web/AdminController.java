@@ -0,0 +1,61 @@
+package cc.remer.photobook.adapter.web;
+
+import cc.remer.photobook.adapter.security.UserPrincipal;
+import cc.remer.photobook.adapter.web.api.AdminApi;
+import cc.remer.photobook.adapter.web.mapper.ThumbnailBackfillMapper;
+import cc.remer.photobook.adapter.web.model.ThumbnailBackfillResponse;
+import cc.remer.photobook.domain.ThumbnailBackfill;
+import cc.remer.photobook.usecase.ThumbnailBackfillService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequiredArgsConstructor
+public class AdminController implements AdminApi {
+
+    private final ThumbnailBackfillService thumbnailBackfillService;
+    private final ThumbnailBackfillMapper thumbnailBackfillMapper;
+
+    @Override
+    public ResponseEntity<ThumbnailBackfillResponse> startThumbnailBackfill() {
+        log.debug("Start thumbnail backfill request");
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+        ThumbnailBackfill backfill = thumbnailBackfillService.startBackfill(principal.getId());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(thumbnailBackfillMapper.toResponse(backfill));
+    }
+
+    @Override
+    public ResponseEntity<ThumbnailBackfillResponse> getThumbnailBackfill(UUID backfillId) {
+        log.debug("Get thumbnail backfill request: {}", backfillId);
+
+        ThumbnailBackfill backfill = thumbnailBackfillService.getBackfill(backfillId);
+
+        return ResponseEntity.ok(thumbnailBackfillMapper.toResponse(backfill));
+    }
+
+    @Override
+    public ResponseEntity<ThumbnailBackfillResponse> cancelThumbnailBackfill(UUID backfillId) {
+        log.debug("Cancel thumbnail backfill request: {}", backfillId);
+
+        ThumbnailBackfill backfill = thumbnailBackfillService.cancelBackfill(backfillId);
+
+        return ResponseEntity.ok(thumbnailBackfillMapper.toResponse(backfill));
+    }
+
+    private UserPrincipal getCurrentUserPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return (UserPrincipal) authentication.getPrincipal();
+    }
+}
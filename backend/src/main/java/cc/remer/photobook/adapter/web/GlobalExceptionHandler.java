@@ -3,10 +3,16 @@ package cc.remer.photobook.adapter.web;
 import cc.remer.photobook.adapter.web.model.ErrorResponse;
 import cc.remer.photobook.usecase.AlbumService;
 import cc.remer.photobook.usecase.AuthenticationService;
+import cc.remer.photobook.usecase.ResumableUploadService;
+import cc.remer.photobook.usecase.ThumbnailBackfillService;
+import cc.remer.photobook.usecase.ThumbnailDecodeBudget;
+import cc.remer.photobook.usecase.UploadAdmissionService;
 import cc.remer.photobook.usecase.UserService;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -19,6 +25,7 @@ import java.util.stream.Collectors;
 
 @Slf4j
 @RestControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class GlobalExceptionHandler {
 
     @ExceptionHandler(AuthenticationService.InvalidCredentialsException.class)
@@ -101,6 +108,51 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
     }
 
+    @ExceptionHandler(ResumableUploadService.UploadSessionConflictException.class)
+    public ResponseEntity<ErrorResponse> handleUploadSessionConflict(ResumableUploadService.UploadSessionConflictException ex) {
+        log.warn("Upload session conflict: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse()
+                .status(HttpStatus.CONFLICT.value())
+                .error("UPLOAD_SESSION_CONFLICT")
+                .message(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(ThumbnailBackfillService.BackfillConflictException.class)
+    public ResponseEntity<ErrorResponse> handleBackfillConflict(ThumbnailBackfillService.BackfillConflictException ex) {
+        log.warn("Thumbnail backfill conflict: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse()
+                .status(HttpStatus.CONFLICT.value())
+                .error("THUMBNAIL_BACKFILL_CONFLICT")
+                .message(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(UploadAdmissionService.UploadCapacityExceededException.class)
+    public ResponseEntity<ErrorResponse> handleUploadCapacityExceeded(UploadAdmissionService.UploadCapacityExceededException ex) {
+        log.warn("Upload capacity exceeded: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse()
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error("UPLOAD_CAPACITY_EXCEEDED")
+                .message(ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+                .body(error);
+    }
+
+    @ExceptionHandler(ThumbnailDecodeBudget.DecodeBudgetExhaustedException.class)
+    public ResponseEntity<ErrorResponse> handleDecodeBudgetExhausted(
+            ThumbnailDecodeBudget.DecodeBudgetExhaustedException ex) {
+        log.warn("Decode budget exhausted: {}", ex.getMessage());
+        ErrorResponse error = new ErrorResponse()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("DECODE_CAPACITY_EXCEEDED")
+                .message("Too many images are being processed, please retry");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(error);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ErrorResponse> handleIllegalArgument(IllegalArgumentException ex) {
         log.warn("Invalid argument: {}", ex.getMessage());
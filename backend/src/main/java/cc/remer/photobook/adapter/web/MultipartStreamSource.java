@@ -0,0 +1,56 @@
+package cc.remer.photobook.adapter.web;
+
+import cc.remer.photobook.usecase.StreamingUploadSource;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the "files" parts of a multipart request directly from the servlet input stream.
+ * Nothing is spooled to memory or disk; each part is handed over while it is still on the wire.
+ */
+class MultipartStreamSource implements StreamingUploadSource {
+
+    private static final String FILES_FIELD = "files";
+
+    private final HttpServletRequest request;
+    private final long maxFileSize;
+
+    MultipartStreamSource(HttpServletRequest request, long maxFileSize) {
+        this.request = request;
+        this.maxFileSize = maxFileSize;
+    }
+
+    @Override
+    public void forEachFile(FileHandler handler) throws IOException {
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            throw new IllegalArgumentException("Request must be multipart/form-data");
+        }
+
+        JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+        upload.setFileSizeMax(maxFileSize);
+
+        try {
+            FileItemInputIterator items = upload.getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemInput item = items.next();
+                if (item.isFormField() || !FILES_FIELD.equals(item.getFieldName())) {
+                    continue;
+                }
+
+                try (InputStream content = item.getInputStream()) {
+                    handler.handle(item.getName(), item.getContentType(), content);
+                }
+            }
+        } catch (FileUploadException e) {
+            throw new IllegalArgumentException("Invalid multipart request: " + e.getMessage(), e);
+        }
+    }
+}
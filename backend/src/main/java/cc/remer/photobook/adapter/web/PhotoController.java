@@ -6,28 +6,44 @@ import cc.remer.photobook.adapter.web.mapper.PhotoMapper;
 import cc.remer.photobook.adapter.web.model.*;
 import cc.remer.photobook.domain.AlbumPhoto;
 import cc.remer.photobook.domain.Photo;
+import cc.remer.photobook.config.UploadProperties;
+import cc.remer.photobook.usecase.PhotoRenditionService;
 import cc.remer.photobook.usecase.PhotoService;
+import cc.remer.photobook.usecase.TilePyramidService;
+import cc.remer.photobook.usecase.UploadedPhoto;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Slf4j
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequiredArgsConstructor
 public class PhotoController implements PhotosApi {
 
     private final PhotoService photoService;
+    private final PhotoRenditionService photoRenditionService;
+    private final TilePyramidService tilePyramidService;
     private final PhotoMapper photoMapper;
+    private final UploadProperties uploadProperties;
+    private final HttpServletRequest request;
 
     @Override
     public ResponseEntity<List<PhotoResponse>> uploadPhotos(UUID albumId, List<MultipartFile> files) {
@@ -39,10 +55,27 @@ public class PhotoController implements PhotosApi {
             return ResponseEntity.badRequest().build();
         }
 
-        List<Photo> photos = photoService.uploadPhotos(albumId, files, principal.getId());
+        List<UploadedPhoto> photos = photoService.uploadPhotos(albumId, files, principal.getId());
 
         List<PhotoResponse> responses = photos.stream()
-                .map(photo -> photoMapper.toResponse(photo, albumId))
+                .map(uploadedPhoto -> photoMapper.toResponse(uploadedPhoto, albumId))
+                .collect(Collectors.toList());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+    }
+
+    @Override
+    public ResponseEntity<List<PhotoResponse>> uploadPhotosStreaming(UUID albumId) {
+        log.debug("Streaming upload photos request: albumId={}, contentLength={}", albumId, request.getContentLengthLong());
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+
+        MultipartStreamSource source = new MultipartStreamSource(request,
+                uploadProperties.getStreaming().getMaxFileSize().toBytes());
+        List<UploadedPhoto> photos = photoService.uploadPhotoStream(albumId, source, principal.getId());
+
+        List<PhotoResponse> responses = photos.stream()
+                .map(uploadedPhoto -> photoMapper.toResponse(uploadedPhoto, albumId))
                 .collect(Collectors.toList());
 
         return ResponseEntity.status(HttpStatus.CREATED).body(responses);
@@ -132,6 +165,42 @@ public class PhotoController implements PhotosApi {
         return ResponseEntity.ok(response);
     }
 
+    @Override
+    public ResponseEntity<PhotoUrlResponse> getPhotoRendition(UUID photoId, Integer width, String format) {
+        log.debug("Get photo rendition request: photoId={}, width={}, format={}", photoId, width, format);
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+        String url = photoRenditionService.getRenditionUrl(photoId, width, format, principal.getId());
+
+        PhotoUrlResponse response = new PhotoUrlResponse()
+                .url(url)
+                .expiresAt(java.time.OffsetDateTime.now().plusSeconds(3600));
+
+        return ResponseEntity.ok(response);
+    }
+
+    @Override
+    public ResponseEntity<TilePyramidResponse> getPhotoTilePyramid(UUID photoId) {
+        log.debug("Get photo tile pyramid request: photoId={}", photoId);
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+        return ResponseEntity.ok(photoMapper.toResponse(tilePyramidService.getTilePyramid(photoId,
+                principal.getId())));
+    }
+
+    @Override
+    public ResponseEntity<Resource> getPhotoTile(UUID photoId, Integer level, Integer column, Integer row) {
+        UserPrincipal principal = getCurrentUserPrincipal();
+        Resource tile = new InputStreamResource(tilePyramidService.getTile(photoId, level, column, row,
+                principal.getId()));
+
+        // Tiles never change, a new original is a new photo
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(7)).cachePrivate())
+                .body(tile);
+    }
+
     private UserPrincipal getCurrentUserPrincipal() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated()) {
@@ -0,0 +1,56 @@
+package cc.remer.photobook.adapter.web;
+
+import cc.remer.photobook.adapter.security.UserPrincipal;
+import cc.remer.photobook.config.UploadProperties;
+import cc.remer.photobook.usecase.UploadAdmissionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Admits upload requests before their body is read. Runs ahead of argument resolution, so multipart bodies
+ * are not spooled by the container until the request holds a permit for its Content-Length.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequiredArgsConstructor
+public class UploadAdmissionInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = UploadAdmissionInterceptor.class.getName() + ".permit";
+
+    private final UploadAdmissionService uploadAdmissionService;
+    private final UploadProperties uploadProperties;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"POST".equals(request.getMethod()) && !"PUT".equals(request.getMethod())) {
+            return true;
+        }
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal principal)) {
+            return true;
+        }
+
+        long contentLength = request.getContentLengthLong();
+        long bytes = contentLength >= 0
+                ? contentLength
+                : uploadProperties.getAdmission().getUnknownLengthCharge().toBytes();
+
+        request.setAttribute(PERMIT_ATTRIBUTE, uploadAdmissionService.admit(principal.getId(), bytes));
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof UploadAdmissionService.Permit permit) {
+            permit.close();
+        }
+    }
+}
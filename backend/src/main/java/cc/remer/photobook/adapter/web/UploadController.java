@@ -0,0 +1,216 @@
+package cc.remer.photobook.adapter.web;
+
+import cc.remer.photobook.adapter.security.UserPrincipal;
+import cc.remer.photobook.adapter.web.api.UploadsApi;
+import cc.remer.photobook.adapter.web.mapper.PhotoMapper;
+import cc.remer.photobook.adapter.web.mapper.UploadMapper;
+import cc.remer.photobook.adapter.web.model.*;
+import cc.remer.photobook.domain.UploadJob;
+import cc.remer.photobook.domain.UploadSession;
+import cc.remer.photobook.usecase.DirectUploadService;
+import cc.remer.photobook.usecase.DirectUploadTarget;
+import cc.remer.photobook.usecase.ResumableUploadService;
+import cc.remer.photobook.usecase.UploadFileSpec;
+import cc.remer.photobook.usecase.UploadJobProgress;
+import cc.remer.photobook.usecase.UploadJobService;
+import cc.remer.photobook.usecase.UploadedPhoto;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Slf4j
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequiredArgsConstructor
+public class UploadController implements UploadsApi {
+
+    private final ResumableUploadService resumableUploadService;
+    private final DirectUploadService directUploadService;
+    private final UploadJobService uploadJobService;
+    private final UploadJobEventStreams uploadJobEventStreams;
+    private final UploadMapper uploadMapper;
+    private final PhotoMapper photoMapper;
+    private final HttpServletRequest request;
+
+    @Override
+    public ResponseEntity<UploadSessionResponse> createUploadSession(UUID albumId,
+                                                                     CreateUploadSessionRequest createUploadSessionRequest) {
+        log.debug("Create upload session request: albumId={}, filename={}, size={}",
+                albumId, createUploadSessionRequest.getFilename(), createUploadSessionRequest.getSize());
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+        UploadSession session = resumableUploadService.createSession(
+                albumId,
+                createUploadSessionRequest.getFilename(),
+                createUploadSessionRequest.getContentType(),
+                createUploadSessionRequest.getSize(),
+                principal.getId()
+        );
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploadMapper.toResponse(session));
+    }
+
+    @Override
+    public ResponseEntity<UploadSessionResponse> getUploadSession(UUID sessionId) {
+        log.debug("Get upload session request: {}", sessionId);
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+        UploadSession session = resumableUploadService.getSession(sessionId, principal.getId());
+
+        return ResponseEntity.ok(uploadMapper.toResponse(session));
+    }
+
+    @Override
+    public ResponseEntity<UploadSessionResponse> uploadSessionChunk(UUID sessionId, Long offset) {
+        long contentLength = request.getContentLengthLong();
+        log.debug("Upload chunk request: sessionId={}, offset={}, contentLength={}", sessionId, offset, contentLength);
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+
+        if (contentLength <= 0) {
+            throw new IllegalArgumentException("Chunk must be sent with a Content-Length header");
+        }
+
+        UploadSession session;
+        try (InputStream content = request.getInputStream()) {
+            session = resumableUploadService.uploadChunk(sessionId, offset, content, contentLength, principal.getId());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read chunk", e);
+        }
+
+        return ResponseEntity.ok(uploadMapper.toResponse(session));
+    }
+
+    @Override
+    public ResponseEntity<List<PhotoResponse>> completeUploadSession(UUID sessionId) {
+        log.debug("Complete upload session request: {}", sessionId);
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+        UploadSession session = resumableUploadService.getSession(sessionId, principal.getId());
+        List<UploadedPhoto> photos = resumableUploadService.completeSession(sessionId, principal.getId());
+
+        List<PhotoResponse> responses = photos.stream()
+                .map(uploadedPhoto -> photoMapper.toResponse(uploadedPhoto, session.getAlbumId()))
+                .collect(Collectors.toList());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+    }
+
+    @Override
+    public ResponseEntity<Void> abortUploadSession(UUID sessionId) {
+        log.debug("Abort upload session request: {}", sessionId);
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+        resumableUploadService.abortSession(sessionId, principal.getId());
+
+        return ResponseEntity.noContent().build();
+    }
+
+    @Override
+    public ResponseEntity<List<DirectUploadResponse>> createDirectUploads(UUID albumId,
+                                                                          CreateDirectUploadsRequest createDirectUploadsRequest) {
+        log.debug("Create direct uploads request: albumId={}, files={}",
+                albumId, createDirectUploadsRequest.getFiles().size());
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+
+        List<UploadFileSpec> files = createDirectUploadsRequest.getFiles().stream()
+                .map(file -> UploadFileSpec.builder()
+                        .filename(file.getFilename())
+                        .contentType(file.getContentType())
+                        .size(file.getSize())
+                        .build())
+                .collect(Collectors.toList());
+        List<DirectUploadTarget> targets = directUploadService.createUploads(albumId, files, principal.getId());
+
+        List<DirectUploadResponse> responses = targets.stream()
+                .map(uploadMapper::toResponse)
+                .collect(Collectors.toList());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+    }
+
+    @Override
+    public ResponseEntity<List<PhotoResponse>> completeDirectUploads(UUID albumId,
+                                                                     CompleteDirectUploadsRequest completeDirectUploadsRequest) {
+        log.debug("Complete direct uploads request: albumId={}, uploads={}",
+                albumId, completeDirectUploadsRequest.getUploadIds().size());
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+        List<UploadedPhoto> photos = directUploadService.completeUploads(albumId, completeDirectUploadsRequest.getUploadIds(),
+                principal.getId());
+
+        List<PhotoResponse> responses = photos.stream()
+                .map(uploadedPhoto -> photoMapper.toResponse(uploadedPhoto, albumId))
+                .collect(Collectors.toList());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+    }
+
+    @Override
+    public ResponseEntity<UploadJobResponse> createUploadJob(UUID albumId, List<MultipartFile> files) {
+        log.debug("Create upload job request: albumId={}, files={}", albumId, files != null ? files.size() : 0);
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("At least one file is required");
+        }
+
+        UploadJob job = uploadJobService.submit(albumId, files, principal.getId());
+        UploadJobProgress progress = uploadJobService.getProgress(job.getId(), principal.getId());
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(uploadMapper.toResponse(progress));
+    }
+
+    @Override
+    public ResponseEntity<UploadJobResponse> getUploadJob(UUID jobId) {
+        log.debug("Get upload job request: {}", jobId);
+
+        UserPrincipal principal = getCurrentUserPrincipal();
+        UploadJobProgress progress = uploadJobService.getProgress(jobId, principal.getId());
+
+        return ResponseEntity.ok(uploadMapper.toResponse(progress));
+    }
+
+    /**
+     * Streams the progress of an upload job as Server-Sent Events. Mapped by hand because the generated
+     * interface cannot express an event stream; documented with the createUploadJob operation.
+     */
+    @GetMapping(value = "/api/upload-jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUploadJobEvents(@PathVariable("jobId") UUID jobId) {
+        log.debug("Upload job event stream request: {}", jobId);
+
+        UUID userId = getCurrentUserPrincipal().getId();
+        // Fails with 404/403 before the stream is opened
+        UploadJobProgress progress = uploadJobService.getProgress(jobId, userId);
+
+        return uploadJobEventStreams.open(jobId, userId, progress);
+    }
+
+    private UserPrincipal getCurrentUserPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new RuntimeException("User not authenticated");
+        }
+        return (UserPrincipal) authentication.getPrincipal();
+    }
+}
@@ -0,0 +1,133 @@
+package cc.remer.photobook.adapter.web;
+
+import cc.remer.photobook.adapter.web.mapper.UploadMapper;
+import cc.remer.photobook.adapter.web.model.UploadJobResponse;
+import cc.remer.photobook.config.UploadProperties;
+import cc.remer.photobook.usecase.UploadJobProgress;
+import cc.remer.photobook.usecase.UploadJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Server-Sent Event streams of upload job progress. Progress is written to the database by whichever node runs
+ * the job, so the streams poll it: one poller on its own thread reads every watched job once per interval and
+ * fans the result out to that job's streams. However many clients are connected, the shared task scheduler
+ * that runs the cleanups and the thumbnail worker is not involved.
+ */
+@Slf4j
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class UploadJobEventStreams implements DisposableBean {
+
+    private final UploadJobService uploadJobService;
+    private final UploadMapper uploadMapper;
+    private final UploadProperties.JobsConfig config;
+    private final Map<SseEmitter, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final ThreadPoolTaskScheduler poller = new ThreadPoolTaskScheduler();
+
+    public UploadJobEventStreams(UploadJobService uploadJobService, UploadMapper uploadMapper,
+                                 UploadProperties uploadProperties) {
+        this.uploadJobService = uploadJobService;
+        this.uploadMapper = uploadMapper;
+        this.config = uploadProperties.getJobs();
+
+        poller.setPoolSize(1);
+        poller.setThreadNamePrefix("upload-job-events-");
+        poller.initialize();
+        poller.scheduleWithFixedDelay(this::poll, config.getProgressInterval());
+    }
+
+    /**
+     * Opens a stream that starts with the given progress, which the caller read to check access to the job.
+     */
+    public SseEmitter open(UUID jobId, UUID userId, UploadJobProgress progress) {
+        SseEmitter emitter = new SseEmitter(config.getEventStreamTimeout().toMillis());
+        emitter.onCompletion(() -> subscriptions.remove(emitter));
+        emitter.onTimeout(() -> subscriptions.remove(emitter));
+        emitter.onError(e -> subscriptions.remove(emitter));
+
+        Subscription subscription = new Subscription(new WatchedJob(jobId, userId));
+        // Sent before the poller sees the stream, so events never arrive out of order
+        if (publish(emitter, subscription, progress)) {
+            subscriptions.put(emitter, subscription);
+        }
+        return emitter;
+    }
+
+    @Override
+    public void destroy() {
+        poller.shutdown();
+        subscriptions.keySet().forEach(SseEmitter::complete);
+    }
+
+    private void poll() {
+        Map<WatchedJob, List<Map.Entry<SseEmitter, Subscription>>> streamsByJob = subscriptions.entrySet().stream()
+                .collect(Collectors.groupingBy(entry -> entry.getValue().job));
+
+        streamsByJob.forEach((job, streams) -> {
+            UploadJobProgress progress;
+            try {
+                progress = uploadJobService.getProgress(job.jobId(), job.userId());
+            } catch (Exception e) {
+                log.debug("Closing event streams of upload job {}", job.jobId(), e);
+                streams.forEach(stream -> close(stream.getKey(), e));
+                return;
+            }
+            streams.forEach(stream -> publish(stream.getKey(), stream.getValue(), progress));
+        });
+    }
+
+    /**
+     * Sends the progress if it changed and completes the stream once the job settled. Returns whether the stream
+     * stays open.
+     */
+    private boolean publish(SseEmitter emitter, Subscription subscription, UploadJobProgress progress) {
+        try {
+            UploadJobResponse response = uploadMapper.toResponse(progress);
+            if (!Objects.equals(response, subscription.lastSent)) {
+                emitter.send(SseEmitter.event().name("progress").data(response, MediaType.APPLICATION_JSON));
+                subscription.lastSent = response;
+            }
+            if (progress.isSettled()) {
+                subscriptions.remove(emitter);
+                emitter.complete();
+                return false;
+            }
+            return true;
+        } catch (Exception e) {
+            close(emitter, e);
+            return false;
+        }
+    }
+
+    private void close(SseEmitter emitter, Exception e) {
+        subscriptions.remove(emitter);
+        emitter.completeWithError(e);
+    }
+
+    private record WatchedJob(UUID jobId, UUID userId) {
+    }
+
+    private static final class Subscription {
+
+        private final WatchedJob job;
+        // Only touched by the thread that opened the stream and then by the poller
+        private UploadJobResponse lastSent;
+
+        private Subscription(WatchedJob job) {
+            this.job = job;
+        }
+    }
+}
@@ -1,8 +1,11 @@
 package cc.remer.photobook.adapter.web.mapper;
 
 import cc.remer.photobook.adapter.web.model.PhotoResponse;
+import cc.remer.photobook.adapter.web.model.TilePyramidResponse;
 import cc.remer.photobook.domain.AlbumPhoto;
 import cc.remer.photobook.domain.Photo;
+import cc.remer.photobook.domain.PhotoTilePyramid;
+import cc.remer.photobook.usecase.UploadedPhoto;
 import org.springframework.stereotype.Component;
 
 import java.time.ZoneOffset;
@@ -25,6 +28,7 @@ public class PhotoMapper {
         response.setWidth(photo.getWidth());
         response.setHeight(photo.getHeight());
         response.setStatus(PhotoResponse.StatusEnum.fromValue(photo.getStatus()));
+        response.setPlaceholder(photo.getPlaceholder());
         response.setMetadata(photo.getExifData());
 
         if (photo.getCreatedAt() != null) {
@@ -39,6 +43,16 @@ public class PhotoMapper {
         return response;
     }
 
+    public PhotoResponse toResponse(UploadedPhoto uploadedPhoto, UUID albumId) {
+        if (uploadedPhoto == null) {
+            return null;
+        }
+
+        PhotoResponse response = toResponse(uploadedPhoto.getPhoto(), albumId);
+        response.setDeduplicated(uploadedPhoto.isDeduplicated());
+        return response;
+    }
+
     public PhotoResponse toResponse(AlbumPhoto albumPhoto) {
         if (albumPhoto == null || albumPhoto.getPhoto() == null) {
             return null;
@@ -46,4 +60,19 @@ public class PhotoMapper {
 
         return toResponse(albumPhoto.getPhoto(), albumPhoto.getAlbumId());
     }
+
+    public TilePyramidResponse toResponse(PhotoTilePyramid pyramid) {
+        if (pyramid == null) {
+            return null;
+        }
+
+        TilePyramidResponse response = new TilePyramidResponse();
+        response.setWidth(pyramid.getWidth());
+        response.setHeight(pyramid.getHeight());
+        response.setTileSize(pyramid.getTileSize());
+        response.setOverlap(pyramid.getTileOverlap());
+        response.setFormat(pyramid.getFormat());
+        response.setMaxLevel(pyramid.getMaxLevel());
+        return response;
+    }
 }
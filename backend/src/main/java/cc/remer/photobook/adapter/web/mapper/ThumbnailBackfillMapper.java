@@ -0,0 +1,38 @@
+package cc.remer.photobook.adapter.web.mapper;
+
+import cc.remer.photobook.adapter.web.model.ThumbnailBackfillResponse;
+import cc.remer.photobook.domain.ThumbnailBackfill;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.util.List;
+
+@Component
+public class ThumbnailBackfillMapper {
+
+    public ThumbnailBackfillResponse toResponse(ThumbnailBackfill backfill) {
+        if (backfill == null) {
+            return null;
+        }
+
+        ThumbnailBackfillResponse response = new ThumbnailBackfillResponse();
+        response.setId(backfill.getId());
+        response.setStatus(ThumbnailBackfillResponse.StatusEnum.fromValue(backfill.getStatus()));
+        response.setPresets(List.of(backfill.getPresets().split(",")));
+        response.setLastPhotoId(backfill.getLastPhotoId());
+        response.setPhotosScanned(backfill.getPhotosScanned());
+        response.setPhotosEnqueued(backfill.getPhotosEnqueued());
+
+        if (backfill.getCreatedAt() != null) {
+            response.setCreatedAt(backfill.getCreatedAt().atOffset(ZoneOffset.UTC));
+        }
+        if (backfill.getUpdatedAt() != null) {
+            response.setUpdatedAt(backfill.getUpdatedAt().atOffset(ZoneOffset.UTC));
+        }
+        if (backfill.getCompletedAt() != null) {
+            response.setCompletedAt(backfill.getCompletedAt().atOffset(ZoneOffset.UTC));
+        }
+
+        return response;
+    }
+}
@@ -0,0 +1,119 @@
+package cc.remer.photobook.adapter.web.mapper;
+
+import cc.remer.photobook.adapter.web.model.DirectUploadResponse;
+import cc.remer.photobook.adapter.web.model.UploadJobFileResponse;
+import cc.remer.photobook.adapter.web.model.UploadJobResponse;
+import cc.remer.photobook.adapter.web.model.UploadSessionResponse;
+import cc.remer.photobook.domain.UploadJob;
+import cc.remer.photobook.domain.UploadJobFile;
+import cc.remer.photobook.domain.UploadSession;
+import cc.remer.photobook.usecase.DirectUploadTarget;
+import cc.remer.photobook.usecase.UploadJobProgress;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.util.List;
+
+@Component
+public class UploadMapper {
+
+    public UploadSessionResponse toResponse(UploadSession session) {
+        if (session == null) {
+            return null;
+        }
+
+        UploadSessionResponse response = new UploadSessionResponse();
+        response.setId(session.getId());
+        response.setAlbumId(session.getAlbumId());
+        response.setFilename(session.getOriginalFilename());
+        response.setContentType(session.getMimeType());
+        response.setSize(session.getTotalSize());
+        response.setChunkSize(session.getChunkSize());
+        response.setOffset(session.getBytesReceived());
+        response.setMode(UploadSessionResponse.ModeEnum.fromValue(session.getUploadMode()));
+        response.setStatus(UploadSessionResponse.StatusEnum.fromValue(session.getStatus()));
+        response.setPhotoIds(session.getPhotoIds());
+
+        if (session.getExpiresAt() != null) {
+            response.setExpiresAt(session.getExpiresAt().atOffset(ZoneOffset.UTC));
+        }
+
+        return response;
+    }
+
+    public DirectUploadResponse toResponse(DirectUploadTarget target) {
+        if (target == null) {
+            return null;
+        }
+
+        UploadSession session = target.getSession();
+        DirectUploadResponse response = new DirectUploadResponse();
+        response.setId(session.getId());
+        response.setFilename(session.getOriginalFilename());
+        response.setContentType(session.getMimeType());
+        response.setSize(session.getTotalSize());
+
+        if (target.getPartUrls() != null) {
+            response.setPartSize(target.getPartSize());
+            response.setPartUrls(target.getPartUrls());
+        } else {
+            response.setUploadUrl(target.getUploadUrl());
+        }
+
+        if (target.getUrlExpiresAt() != null) {
+            response.setExpiresAt(target.getUrlExpiresAt().atOffset(ZoneOffset.UTC));
+        }
+
+        return response;
+    }
+
+    public UploadJobResponse toResponse(UploadJobProgress progress) {
+        if (progress == null) {
+            return null;
+        }
+
+        UploadJob job = progress.getJob();
+        List<UploadJobFileResponse> files = progress.getFiles().stream()
+                .map(file -> toResponse(file, progress.getThumbnailsReady(file.getId())))
+                .toList();
+
+        UploadJobResponse response = new UploadJobResponse();
+        response.setId(job.getId());
+        response.setAlbumId(job.getAlbumId());
+        response.setStatus(UploadJobResponse.StatusEnum.fromValue(job.getStatus()));
+        response.setTotalFiles(files.size());
+        response.setFilesProcessed((int) progress.getFiles().stream()
+                .filter(file -> !UploadJobFile.STATUS_PENDING.equals(file.getStatus())
+                        && !UploadJobFile.STATUS_STORING.equals(file.getStatus()))
+                .count());
+        response.setBytesTotal(progress.getFiles().stream().mapToLong(UploadJobFile::getFileSize).sum());
+        response.setBytesStored(progress.getFiles().stream().mapToLong(UploadJobFile::getBytesStored).sum());
+        response.setPhotosCreated(progress.getFiles().stream().mapToInt(UploadJobFile::getPhotosCreated).sum());
+        response.setPhotosDeduplicated(progress.getFiles().stream().mapToInt(UploadJobFile::getPhotosDeduplicated).sum());
+        response.setThumbnailsReady(files.stream().mapToInt(UploadJobFileResponse::getThumbnailsReady).sum());
+        response.setError(job.getErrorMessage());
+        response.setFiles(files);
+
+        if (job.getCreatedAt() != null) {
+            response.setCreatedAt(job.getCreatedAt().atOffset(ZoneOffset.UTC));
+        }
+        if (job.getCompletedAt() != null) {
+            response.setCompletedAt(job.getCompletedAt().atOffset(ZoneOffset.UTC));
+        }
+
+        return response;
+    }
+
+    private UploadJobFileResponse toResponse(UploadJobFile file, long thumbnailsReady) {
+        UploadJobFileResponse response = new UploadJobFileResponse();
+        response.setFilename(file.getFilename());
+        response.setSize(file.getFileSize());
+        response.setBytesStored(file.getBytesStored());
+        response.setStatus(UploadJobFileResponse.StatusEnum.fromValue(file.getStatus()));
+        response.setPhotosCreated(file.getPhotosCreated());
+        response.setPhotosDeduplicated(file.getPhotosDeduplicated());
+        response.setThumbnailsReady(Math.toIntExact(thumbnailsReady));
+        response.setError(file.getErrorMessage());
+        return response;
+    }
+}
@@ -4,7 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -13,25 +13,102 @@ import java.util.concurrent.Executor;
 @Slf4j
 @Configuration
 @EnableAsync
-public class AsyncConfig implements AsyncConfigurer {
+public class AsyncConfig {
 
-    @Value("${async.thread-pool-size:4}")
+    // Thumbnail process threads, 0 uses one per core. The decode budget keeps large images from running together.
+    @Value("${async.thread-pool-size:0}")
     private int threadPoolSize;
 
-    @Bean(name = "taskExecutor")
-    @Override
-    public Executor getAsyncExecutor() {
-        log.info("Creating async task executor with pool size: {}", threadPoolSize);
+    @Value("${upload.zip.parallelism:4}")
+    private int zipParallelism;
 
+    @Value("${upload.jobs.parallelism:2}")
+    private int uploadJobParallelism;
+
+    @Value("${thumbnail.upload.parallelism:16}")
+    private int thumbnailUploadParallelism;
+
+    @Bean(name = "thumbnailFetchExecutor")
+    public Executor thumbnailFetchExecutor() {
+        // Downloads of originals, the fetch stage of the thumbnail pipeline limits how many run at once
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("thumbnail-fetch-");
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(60_000);
+        return executor;
+    }
+
+    @Bean(name = "thumbnailProcessExecutor")
+    public Executor thumbnailProcessExecutor() {
+        int threadPoolSize = thumbnailThreads(this.threadPoolSize);
+        log.info("Creating thumbnail process executor with pool size: {}", threadPoolSize);
+
+        // Decode, scale and encode. The process stage admits no more tasks than threads plus its queue.
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(threadPoolSize);
-        executor.setMaxPoolSize(threadPoolSize * 2);
-        executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("thumbnail-gen-");
+        executor.setMaxPoolSize(threadPoolSize);
+        executor.setThreadNamePrefix("thumbnail-process-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        return executor;
+    }
+
+    @Bean(name = "thumbnailStoreExecutor")
+    public Executor thumbnailStoreExecutor() {
+        // Records generated thumbnails, their puts to storage run on the upload executor
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("thumbnail-store-");
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(60_000);
+        return executor;
+    }
+
+    @Bean(name = "zipExtractionExecutor")
+    public Executor zipExtractionExecutor() {
+        log.info("Creating ZIP extraction executor with pool size: {}", zipParallelism);
+
+        // Unbounded queue: every archive caps its own in-flight entries, so the queue stays small
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(zipParallelism);
+        executor.setMaxPoolSize(zipParallelism);
+        executor.setThreadNamePrefix("zip-extract-");
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(60);
         executor.initialize();
 
         return executor;
     }
+
+    @Bean(name = "uploadJobExecutor")
+    public Executor uploadJobExecutor() {
+        log.info("Creating upload job executor with pool size: {}", uploadJobParallelism);
+
+        // Jobs are spooled to disk before they are queued, so waiting jobs only cost disk space
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(uploadJobParallelism);
+        executor.setMaxPoolSize(uploadJobParallelism);
+        executor.setThreadNamePrefix("upload-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        return executor;
+    }
+
+    @Bean(name = "thumbnailUploadExecutor")
+    public Executor thumbnailUploadExecutor() {
+        log.info("Creating thumbnail upload executor with {} concurrent uploads", thumbnailUploadParallelism);
+
+        // Blocking S3 puts, virtual threads keep them from tying up platform threads
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("thumbnail-upload-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(thumbnailUploadParallelism);
+        executor.setTaskTerminationTimeout(60_000);
+
+        return executor;
+    }
+
+    public static int thumbnailThreads(int configured) {
+        return configured > 0 ? configured : Runtime.getRuntime().availableProcessors();
+    }
 }
@@ -0,0 +1,42 @@
+package cc.remer.photobook.config;
+
+import cc.remer.photobook.adapter.image.ImageResizer;
+import cc.remer.photobook.adapter.image.SeparableResizer;
+import cc.remer.photobook.adapter.image.ThumbnailatorResizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class ImageResizeConfig {
+
+    @Bean
+    public ImageResizer imageResizer(ThumbnailResizeProperties properties) {
+        ThumbnailResizeProperties.Engine engine = properties.getEngine();
+        if (engine == ThumbnailResizeProperties.Engine.AUTO) {
+            if (SeparableResizer.isVectorApiAvailable()) {
+                engine = ThumbnailResizeProperties.Engine.VECTOR;
+            } else {
+                // A plain java -jar does not resolve incubator modules, say so instead of silently running slower
+                log.warn("The Vector API is not available, falling back to the scalar resize engine. Start the JVM "
+                        + "with --add-modules jdk.incubator.vector to use the vector engine");
+                engine = ThumbnailResizeProperties.Engine.SCALAR;
+            }
+        }
+        log.info("Resizing thumbnails with the {} engine ({} kernel)", engine, properties.getKernel());
+
+        return switch (engine) {
+            case VECTOR -> {
+                if (!SeparableResizer.isVectorApiAvailable()) {
+                    throw new IllegalStateException(
+                            "The vector resize engine needs the JVM option --add-modules jdk.incubator.vector");
+                }
+                yield SeparableResizer.vector(properties.getKernel());
+            }
+            case SCALAR -> SeparableResizer.scalar(properties.getKernel());
+            case THUMBNAILATOR -> new ThumbnailatorResizer();
+            case AUTO -> throw new IllegalStateException("Unresolved resize engine");
+        };
+    }
+}
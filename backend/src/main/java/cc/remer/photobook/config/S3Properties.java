@@ -4,6 +4,7 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
 
 @Getter
 @Setter
@@ -12,6 +13,7 @@ import org.springframework.context.annotation.Configuration;
 public class S3Properties {
     private S3Config s3 = new S3Config();
     private BucketConfig buckets = new BucketConfig();
+    private MultipartConfig multipart = new MultipartConfig();
 
     @Getter
     @Setter
@@ -27,4 +29,11 @@ public class S3Properties {
         private String originals;
         private String thumbnails;
     }
+
+    @Getter
+    @Setter
+    public static class MultipartConfig {
+        // S3 requires every part except the last one to be at least 5MB
+        private DataSize partSize = DataSize.ofMegabytes(8);
+    }
 }
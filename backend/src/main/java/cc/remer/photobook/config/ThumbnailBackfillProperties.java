@@ -0,0 +1,22 @@
+package cc.remer.photobook.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "thumbnail.backfill")
+public class ThumbnailBackfillProperties {
+    // One batch of photos is checked per interval
+    private Duration batchInterval = Duration.ofSeconds(5);
+    private int scanBatchSize = 1000;
+    // Photos enqueued for regeneration per second, averaged over the batch interval
+    private int rate = 10;
+    // No new photos are enqueued while this many backfill jobs are waiting or running
+    private int maxQueued = 100;
+}
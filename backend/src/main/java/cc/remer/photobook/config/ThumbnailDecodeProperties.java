@@ -0,0 +1,22 @@
+package cc.remer.photobook.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "thumbnail.decode")
+public class ThumbnailDecodeProperties {
+    // Estimated decoded bytes that may be on the heap at once, 0 uses a quarter of the maximum heap
+    private DataSize heapBudget = DataSize.ofBytes(0);
+    // Images with more pixels are rejected without decoding, whatever their file size
+    private long maxPixels = 250_000_000L;
+    // How long a decode waits for budget before its job is retried later
+    private Duration queueTimeout = Duration.ofMinutes(2);
+}
@@ -0,0 +1,36 @@
+package cc.remer.photobook.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "thumbnail.encoding")
+public class ThumbnailEncodingProperties {
+    // Both only cost encode time, the images look the same
+    private boolean optimizeHuffman = true;
+    private boolean stripMetadata = true;
+    private Profile small = new Profile();
+    private Profile medium = new Profile();
+    private Profile large = Profile.progressive();
+    private Profile renditions = Profile.progressive();
+    private Profile tiles = new Profile();
+
+    @Getter
+    @Setter
+    public static class Profile {
+        // Pays off above roughly 10KB, smaller images get larger
+        private boolean progressive = false;
+        // 4:2:0 or 4:4:4
+        private String chromaSubsampling = "4:2:0";
+
+        private static Profile progressive() {
+            Profile profile = new Profile();
+            profile.setProgressive(true);
+            return profile;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cc.remer.photobook.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "thumbnail.pipeline")
+public class ThumbnailPipelineProperties {
+    // Originals downloaded at once; the process stage runs async.thread-pool-size jobs at once
+    private int fetchConcurrency = 8;
+    // Jobs storing thumbnails and recording them at once
+    private int storeConcurrency = 8;
+    // Jobs that may wait in front of each stage. A full stage blocks the stage before it.
+    private int queueCapacity = 4;
+}
@@ -0,0 +1,24 @@
+package cc.remer.photobook.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "thumbnail.queue")
+public class ThumbnailQueueProperties {
+    private Duration pollInterval = Duration.ofSeconds(1);
+    // A claimed job whose node does not finish within the lease is claimed again by another node
+    private Duration lease = Duration.ofMinutes(10);
+    // Jobs held by a live worker have their lease extended this often, well within the lease
+    private Duration renewInterval = Duration.ofMinutes(2);
+    private int maxAttempts = 5;
+    // Doubled with every failed attempt, capped at maxBackoff
+    private Duration retryBackoff = Duration.ofSeconds(30);
+    private Duration maxBackoff = Duration.ofHours(1);
+}
@@ -0,0 +1,22 @@
+package cc.remer.photobook.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "thumbnail.renditions")
+public class ThumbnailRenditionProperties {
+    // Only these widths can be requested, so clients cannot fill storage with arbitrary sizes
+    private List<Integer> widths = List.of(320, 480, 640, 960, 1280, 1600, 1920, 2560);
+    private List<String> formats = List.of("jpeg", "png");
+    // Renditions are rendered on the request thread, which only waits this long for decode budget before the
+    // request is answered with 503; also sent as Retry-After
+    private Duration decodeTimeout = Duration.ofSeconds(5);
+}
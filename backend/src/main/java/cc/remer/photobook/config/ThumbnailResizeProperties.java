@@ -0,0 +1,27 @@
+package cc.remer.photobook.config;
+
+import cc.remer.photobook.adapter.image.ResizeKernel;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "thumbnail.resize")
+public class ThumbnailResizeProperties {
+    private Engine engine = Engine.THUMBNAILATOR;
+    // Only used by the vector and scalar engines
+    private ResizeKernel kernel = ResizeKernel.LANCZOS3;
+
+    public enum Engine {
+        // Vector when the JVM runs with --add-modules jdk.incubator.vector, scalar otherwise. The module is not
+        // resolved by a plain java -jar, so the flag has to be passed explicitly (spring-boot:run does)
+        AUTO,
+        // Needs --add-modules jdk.incubator.vector, fails at startup without it
+        VECTOR,
+        SCALAR,
+        THUMBNAILATOR
+    }
+}
@@ -0,0 +1,19 @@
+package cc.remer.photobook.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "thumbnail.tiles")
+public class ThumbnailTileProperties {
+    private boolean enabled = false;
+    // Only originals with at least this many pixels get a tile pyramid
+    private long minPixels = 50_000_000;
+    private int tileSize = 256;
+    // Rows of tiles decoded per strip; the original is decoded strip by strip, each strip from the top again
+    private int stripTiles = 4;
+}
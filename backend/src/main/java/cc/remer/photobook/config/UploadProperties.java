@@ -0,0 +1,107 @@
+package cc.remer.photobook.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "upload")
+public class UploadProperties {
+    private String allowedExtensions = "jpg,jpeg,png,gif,webp,heic,heif";
+    private StreamingConfig streaming = new StreamingConfig();
+    private ZipConfig zip = new ZipConfig();
+    private ResumableConfig resumable = new ResumableConfig();
+    private DirectConfig direct = new DirectConfig();
+    private JobsConfig jobs = new JobsConfig();
+    private AdmissionConfig admission = new AdmissionConfig();
+    private StagingConfig staging = new StagingConfig();
+    private MetadataConfig metadata = new MetadataConfig();
+
+    public Set<String> getAllowedExtensionSet() {
+        return Arrays.stream(allowedExtensions.toLowerCase().split(","))
+                .map(String::trim)
+                .collect(Collectors.toSet());
+    }
+
+    @Getter
+    @Setter
+    public static class StreamingConfig {
+        private DataSize maxFileSize = DataSize.ofGigabytes(2);
+    }
+
+    @Getter
+    @Setter
+    public static class ZipConfig {
+        private int parallelism = 4;
+    }
+
+    @Getter
+    @Setter
+    public static class ResumableConfig {
+        // Every chunk except the last becomes one multipart part, so this must be at least 5MB
+        private DataSize chunkSize = DataSize.ofMegabytes(8);
+        private DataSize maxFileSize = DataSize.ofGigabytes(10);
+        // Extended with every received chunk
+        private Duration sessionTtl = Duration.ofHours(24);
+    }
+
+    @Getter
+    @Setter
+    public static class DirectConfig {
+        // Files above this size are uploaded as presigned multipart parts of this size
+        private DataSize partSize = DataSize.ofMegabytes(64);
+        private DataSize maxFileSize = DataSize.ofGigabytes(10);
+        private int maxFiles = 100;
+        private Duration urlExpiration = Duration.ofHours(1);
+    }
+
+    @Getter
+    @Setter
+    public static class JobsConfig {
+        // Request bodies are spooled here so the request can return before the files are processed
+        private String spoolDir = System.getProperty("java.io.tmpdir") + "/photobook-upload-jobs";
+        private int parallelism = 2;
+        private Duration progressInterval = Duration.ofSeconds(1);
+        // Running jobs refresh their heartbeat at least this often while hashing and storing, otherwise they are failed
+        private Duration staleAfter = Duration.ofMinutes(10);
+        private Duration eventStreamTimeout = Duration.ofMinutes(30);
+    }
+
+    @Getter
+    @Setter
+    public static class AdmissionConfig {
+        private DataSize maxInFlight = DataSize.ofGigabytes(2);
+        private DataSize maxInFlightPerUser = DataSize.ofMegabytes(600);
+        // How long a request waits for capacity before it is answered with 429. Waiting requests hold their
+        // Tomcat thread for up to this long, so keep it short next to server.tomcat.threads.max
+        private Duration queueTimeout = Duration.ofSeconds(10);
+        private Duration retryAfter = Duration.ofSeconds(30);
+        // Charged for chunked request bodies without a Content-Length
+        private DataSize unknownLengthCharge = DataSize.ofMegabytes(500);
+    }
+
+    @Getter
+    @Setter
+    public static class StagingConfig {
+        // Local copies of new originals for thumbnail generation, 0 disables staging
+        private String dir = System.getProperty("java.io.tmpdir") + "/photobook-staging";
+        private DataSize maxSize = DataSize.ofGigabytes(1);
+        private Duration ttl = Duration.ofMinutes(30);
+    }
+
+    @Getter
+    @Setter
+    public static class MetadataConfig {
+        // Leading bytes of an original parsed for dimensions and EXIF before thumbnails are generated
+        private DataSize prefixSize = DataSize.ofKilobytes(256);
+    }
+}
@@ -0,0 +1,27 @@
+package cc.remer.photobook.config;
+
+import cc.remer.photobook.adapter.web.UploadAdmissionInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@RequiredArgsConstructor
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final UploadAdmissionInterceptor uploadAdmissionInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Endpoints whose request body carries upload content; the interceptor ignores GET and DELETE
+        registry.addInterceptor(uploadAdmissionInterceptor)
+                .addPathPatterns(
+                        "/api/albums/*/photos",
+                        "/api/albums/*/photos/stream",
+                        "/api/albums/*/upload-jobs",
+                        "/api/upload-sessions/*/chunks");
+    }
+}
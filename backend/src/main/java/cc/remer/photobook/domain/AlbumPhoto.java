@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -15,10 +17,10 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class AlbumPhoto {
+public class AlbumPhoto implements Persistable<UUID> {
 
+    // Assigned by the application (UUIDv7), see onCreate()
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
     @Column(name = "album_id", nullable = false)
@@ -41,11 +43,30 @@ public class AlbumPhoto {
     @Column(name = "added_at", nullable = false, updatable = false)
     private Instant addedAt;
 
+    // Lets Spring Data persist() new rows with an assigned ID instead of merging them
+    @Transient
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
     @PrePersist
     protected void onCreate() {
+        if (id == null) {
+            id = UuidV7.generate();
+        }
         addedAt = Instant.now();
         if (position == null) {
             position = 0;
         }
     }
+
+    @PostLoad
+    @PostPersist
+    protected void markPersisted() {
+        persisted = true;
+    }
 }
@@ -1,12 +1,15 @@
 package cc.remer.photobook.domain;
 
+import cc.remer.photobook.adapter.image.BlurHash;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Instant;
 import java.util.Map;
@@ -18,10 +21,10 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Photo {
+public class Photo implements Persistable<UUID> {
 
+    // Assigned by the application (UUIDv7), see onCreate()
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
     @Column(name = "owner_id", nullable = false)
@@ -43,6 +46,10 @@ public class Photo {
     @Column(name = "file_size", nullable = false)
     private Long fileSize;
 
+    // Hex SHA-256 of the original, null for photos uploaded before hashing was introduced
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column
     private Integer width;
 
@@ -56,14 +63,35 @@ public class Photo {
     @Column(nullable = false, length = 20)
     private String status;
 
+    // BlurHash of the smallest thumbnail, null until thumbnails were generated
+    @Column(length = BlurHash.MAX_LENGTH)
+    private String placeholder;
+
+    // Set when the photo was created by a background upload job
+    @Column(name = "upload_job_file_id")
+    private UUID uploadJobFileId;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
     @Column(name = "updated_at", nullable = false)
     private Instant updatedAt;
 
+    // Lets Spring Data persist() new rows with an assigned ID instead of merging them
+    @Transient
+    @EqualsAndHashCode.Exclude
+    private boolean persisted;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
     @PrePersist
     protected void onCreate() {
+        if (id == null) {
+            id = UuidV7.generate();
+        }
         createdAt = Instant.now();
         updatedAt = Instant.now();
         if (status == null) {
@@ -75,4 +103,10 @@ public class Photo {
     protected void onUpdate() {
         updatedAt = Instant.now();
     }
+
+    @PostLoad
+    @PostPersist
+    protected void markPersisted() {
+        persisted = true;
+    }
 }
@@ -0,0 +1,61 @@
+package cc.remer.photobook.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A photo scaled to one of the whitelisted widths, rendered the first time it was requested.
+ */
+@Entity
+@Table(name = "photo_renditions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhotoRendition {
+
+    public static final String SOURCE_ORIGINAL = "ORIGINAL";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "photo_id", nullable = false)
+    private UUID photoId;
+
+    @Column(name = "requested_width", nullable = false)
+    private Integer requestedWidth;
+
+    @Column(nullable = false, length = 10)
+    private String format;
+
+    @Column(name = "storage_key", nullable = false, length = 500)
+    private String storageKey;
+
+    @Column(nullable = false)
+    private Integer width;
+
+    @Column(nullable = false)
+    private Integer height;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    // A thumbnail size, RENDITION_<width> or ORIGINAL
+    @Column(nullable = false, length = 50)
+    private String source;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+    }
+}
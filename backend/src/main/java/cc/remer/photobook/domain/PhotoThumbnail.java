@@ -43,6 +43,10 @@ public class PhotoThumbnail {
     @Column(name = "file_size", nullable = false)
     private Long fileSize;
 
+    // Max size and quality the thumbnail was generated with, see ThumbnailPresets
+    @Column(length = 50)
+    private String preset;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
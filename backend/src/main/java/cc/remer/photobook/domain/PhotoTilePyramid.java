@@ -0,0 +1,83 @@
+package cc.remer.photobook.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The Deep Zoom tiles of a photo. Level {@link #getMaxLevel()} is the original, every level below halves it
+ * down to a single pixel at level 0.
+ */
+@Entity
+@Table(name = "photo_tile_pyramids")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhotoTilePyramid {
+
+    @Id
+    @Column(name = "photo_id")
+    private UUID photoId;
+
+    @Column(name = "storage_prefix", nullable = false, length = 500)
+    private String storagePrefix;
+
+    @Column(nullable = false)
+    private Integer width;
+
+    @Column(nullable = false)
+    private Integer height;
+
+    @Column(name = "tile_size", nullable = false)
+    private Integer tileSize;
+
+    @Column(name = "tile_overlap", nullable = false)
+    private Integer tileOverlap;
+
+    @Column(nullable = false, length = 10)
+    private String format;
+
+    @Column(name = "tile_count", nullable = false)
+    private Integer tileCount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+    }
+
+    public int getMaxLevel() {
+        return maxLevel(width, height);
+    }
+
+    public String tileKey(int level, int column, int row) {
+        return storagePrefix + level + "/" + column + "_" + row + "." + ("jpeg".equals(format) ? "jpg" : format);
+    }
+
+    /**
+     * Whether the tile exists at the given level, whose dimensions are the original's halved and rounded up.
+     */
+    public boolean hasTile(int level, int column, int row) {
+        if (level < 0 || level > getMaxLevel() || column < 0 || row < 0) {
+            return false;
+        }
+        long scale = 1L << (getMaxLevel() - level);
+        long levelWidth = Math.ceilDiv(width, scale);
+        long levelHeight = Math.ceilDiv(height, scale);
+        return column < Math.ceilDiv(levelWidth, tileSize) && row < Math.ceilDiv(levelHeight, tileSize);
+    }
+
+    // ceil(log2(max(width, height)))
+    public static int maxLevel(int width, int height) {
+        int longest = Math.max(width, height);
+        return longest <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(longest - 1);
+    }
+}
@@ -0,0 +1,77 @@
+package cc.remer.photobook.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Regeneration of outdated thumbnails of existing photos. Photos are walked in id order and the id of the last
+ * checked photo is stored with every batch, so a backfill continues where it stopped after a restart.
+ */
+@Entity
+@Table(name = "thumbnail_backfills")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThumbnailBackfill {
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    private String status = STATUS_RUNNING;
+
+    // The presets of the node that started the backfill, for reference only
+    @Column(nullable = false, length = 500)
+    private String presets;
+
+    @Column(name = "last_photo_id")
+    private UUID lastPhotoId;
+
+    @Builder.Default
+    @Column(name = "photos_scanned", nullable = false)
+    private Long photosScanned = 0L;
+
+    @Builder.Default
+    @Column(name = "photos_enqueued", nullable = false)
+    private Long photosEnqueued = 0L;
+
+    @Column(name = "created_by")
+    private UUID createdBy;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @Column(name = "completed_at")
+    private Instant completedAt;
+
+    public boolean isRunning() {
+        return STATUS_RUNNING.equals(status);
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+}
@@ -0,0 +1,82 @@
+package cc.remer.photobook.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Pending thumbnail generation for one photo. Jobs are deleted once the thumbnails are stored; a job that
+ * ran out of attempts stays behind as FAILED.
+ */
+@Entity
+@Table(name = "thumbnail_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThumbnailJob {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_FAILED = "FAILED";
+
+    // Lower values are claimed first
+    public static final int PRIORITY_UPLOAD = 0;
+    public static final int PRIORITY_BACKFILL = 1;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "photo_id", nullable = false)
+    private UUID photoId;
+
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    private String status = STATUS_PENDING;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer priority = PRIORITY_UPLOAD;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "run_after", nullable = false)
+    private Instant runAfter;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    @Column(name = "locked_until")
+    private Instant lockedUntil;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+        if (runAfter == null) {
+            runAfter = createdAt;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+}
@@ -0,0 +1,62 @@
+package cc.remer.photobook.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Entity
+@Table(name = "upload_job_files")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadJobFile {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_STORING = "STORING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_SKIPPED = "SKIPPED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "job_id", nullable = false)
+    private UUID jobId;
+
+    @Column(nullable = false)
+    private Integer position;
+
+    @Column(nullable = false)
+    private String filename;
+
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    @Builder.Default
+    @Column(name = "bytes_stored", nullable = false)
+    private Long bytesStored = 0L;
+
+    @Builder.Default
+    @Column(name = "photos_created", nullable = false)
+    private Integer photosCreated = 0;
+
+    @Builder.Default
+    @Column(name = "photos_deduplicated", nullable = false)
+    private Integer photosDeduplicated = 0;
+
+    @Builder.Default
+    @Column(nullable = false, length = 20)
+    private String status = STATUS_PENDING;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+}
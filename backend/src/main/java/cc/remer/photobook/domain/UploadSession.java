@@ -0,0 +1,131 @@
+package cc.remer.photobook.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * An upload of a single file. In CHUNKED mode the bytes pass through the API and chunks map one-to-one onto
+ * the parts of an S3 multipart upload; all progress lives in this row, so any node can accept the next chunk.
+ * In DIRECT mode the client PUTs the file straight to storage with presigned URLs and the row only records
+ * what is expected until the upload is verified.
+ */
+@Entity
+@Table(name = "upload_sessions")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+
+    public static final String STATUS_ACTIVE = "ACTIVE";
+    public static final String STATUS_COMPLETING = "COMPLETING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    public static final String MODE_CHUNKED = "CHUNKED";
+    public static final String MODE_DIRECT = "DIRECT";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "owner_id", nullable = false)
+    private UUID ownerId;
+
+    @Column(name = "album_id", nullable = false)
+    private UUID albumId;
+
+    // Reserved up front, used for the photo when the upload is a single image
+    @Column(name = "photo_id", nullable = false)
+    private UUID photoId;
+
+    @Column(name = "original_filename", nullable = false)
+    private String originalFilename;
+
+    @Column(name = "mime_type", nullable = false, length = 100)
+    private String mimeType;
+
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Long chunkSize;
+
+    @Column(name = "storage_key", nullable = false, length = 500)
+    private String storageKey;
+
+    @Column(name = "upload_mode", nullable = false, length = 20)
+    private String uploadMode;
+
+    // Null for direct uploads that are small enough for a single PUT
+    @Column(name = "multipart_upload_id", length = 1024)
+    private String multipartUploadId;
+
+    @Column(name = "bytes_received", nullable = false)
+    private Long bytesReceived;
+
+    // Part number -> ETag of the stored part
+    @Builder.Default
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "parts", nullable = false, columnDefinition = "jsonb")
+    private Map<String, String> parts = new HashMap<>();
+
+    // Photos created on completion, kept so a repeated complete call returns the same result
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "photo_ids", columnDefinition = "jsonb")
+    private List<UUID> photoIds;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    // Set by the completion attempt that claimed the session, only that attempt may close it
+    @Column(name = "completion_token")
+    private UUID completionToken;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public boolean isDirect() {
+        return MODE_DIRECT.equals(uploadMode);
+    }
+
+    public boolean isComplete() {
+        return bytesReceived != null && bytesReceived.equals(totalSize);
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+        if (status == null) {
+            status = STATUS_ACTIVE;
+        }
+        if (uploadMode == null) {
+            uploadMode = MODE_CHUNKED;
+        }
+        if (bytesReceived == null) {
+            bytesReceived = 0L;
+        }
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+}
@@ -0,0 +1,27 @@
+package cc.remer.photobook.domain;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+
+/**
+ * Time-ordered UUIDs (RFC 9562 version 7). The leading 48 bits are the Unix epoch milliseconds,
+ * so new rows land at the right-hand edge of the primary key index instead of on random pages.
+ */
+public final class UuidV7 {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private UuidV7() {
+    }
+
+    public static UUID generate() {
+        long timestamp = System.currentTimeMillis();
+
+        // 48 bit timestamp | 4 bit version | 12 bit random
+        long mostSigBits = (timestamp << 16) | 0x7000L | (RANDOM.nextInt() & 0x0FFFL);
+        // 2 bit variant | 62 bit random
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
@@ -0,0 +1,239 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.persistence.AlbumRepository;
+import cc.remer.photobook.adapter.persistence.PhotoRepository;
+import cc.remer.photobook.adapter.persistence.UploadSessionRepository;
+import cc.remer.photobook.adapter.storage.S3StorageService;
+import cc.remer.photobook.adapter.storage.StoredObjectInfo;
+import cc.remer.photobook.config.UploadProperties;
+import cc.remer.photobook.domain.Album;
+import cc.remer.photobook.domain.UploadSession;
+import cc.remer.photobook.domain.UuidV7;
+import cc.remer.photobook.usecase.AlbumService.ForbiddenException;
+import cc.remer.photobook.usecase.AlbumService.ResourceNotFoundException;
+import cc.remer.photobook.usecase.ResumableUploadService.UploadSessionConflictException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Uploads that never pass through the application: the client gets presigned URLs, PUTs the files straight to
+ * storage and then asks for completion. Completion only verifies the stored objects and records the photos.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DirectUploadService {
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final AlbumRepository albumRepository;
+    private final PhotoRepository photoRepository;
+    private final AlbumService albumService;
+    private final PhotoUploadService photoUploadService;
+    private final PhotoRegistrationService photoRegistrationService;
+    private final PhotoMetadataReader photoMetadataReader;
+    private final S3StorageService storageService;
+    private final UploadProperties uploadProperties;
+
+    public List<DirectUploadTarget> createUploads(UUID albumId, List<UploadFileSpec> files, UUID currentUserId) {
+        log.debug("Creating {} direct uploads for album: {} by user: {}", files.size(), albumId, currentUserId);
+
+        checkUploadAccess(albumId, currentUserId);
+
+        UploadProperties.DirectConfig config = uploadProperties.getDirect();
+        if (files.isEmpty() || files.size() > config.getMaxFiles()) {
+            throw new IllegalArgumentException("Between 1 and " + config.getMaxFiles() + " files can be uploaded at once");
+        }
+        for (UploadFileSpec file : files) {
+            validate(file, config.getMaxFileSize().toBytes());
+        }
+
+        long partSize = config.getPartSize().toBytes();
+        Duration urlExpiration = config.getUrlExpiration();
+        Instant urlExpiresAt = Instant.now().plus(urlExpiration);
+
+        List<UploadSession> sessions = new ArrayList<>(files.size());
+        List<DirectUploadTarget.DirectUploadTargetBuilder> targets = new ArrayList<>(files.size());
+        try {
+            for (UploadFileSpec file : files) {
+                UUID photoId = UuidV7.generate();
+                String mimeType = photoUploadService.resolveContentType(file.getFilename(), file.getContentType());
+                String storageKey = photoUploadService.buildStorageKey(currentUserId, photoId, file.getFilename());
+
+                UploadSession session = UploadSession.builder()
+                        .ownerId(currentUserId)
+                        .albumId(albumId)
+                        .photoId(photoId)
+                        .originalFilename(file.getFilename())
+                        .mimeType(mimeType)
+                        .totalSize(file.getSize())
+                        .storageKey(storageKey)
+                        .uploadMode(UploadSession.MODE_DIRECT)
+                        .bytesReceived(0L)
+                        .expiresAt(Instant.now().plus(uploadProperties.getResumable().getSessionTtl()))
+                        .build();
+                DirectUploadTarget.DirectUploadTargetBuilder target = DirectUploadTarget.builder()
+                        .urlExpiresAt(urlExpiresAt);
+                sessions.add(session);
+                targets.add(target);
+
+                if (file.getSize() <= partSize) {
+                    session.setChunkSize(file.getSize());
+                    target.uploadUrl(storageService.presignOriginalUpload(storageKey, mimeType, file.getSize(),
+                            urlExpiration));
+                } else {
+                    session.setChunkSize(partSize);
+                    session.setMultipartUploadId(storageService.startOriginalMultipartUpload(storageKey, mimeType));
+                    target.partSize(partSize).partUrls(presignParts(session, urlExpiration));
+                }
+            }
+
+            uploadSessionRepository.saveAll(sessions);
+        } catch (RuntimeException e) {
+            abortMultipartUploads(sessions);
+            throw e;
+        }
+
+        List<DirectUploadTarget> result = new ArrayList<>(sessions.size());
+        for (int i = 0; i < sessions.size(); i++) {
+            result.add(targets.get(i).session(sessions.get(i)).build());
+        }
+
+        log.info("Created {} direct uploads for album {}", result.size(), albumId);
+        return result;
+    }
+
+    /**
+     * Verifies the uploaded objects and records them as photos of the album. Either all given uploads are
+     * recorded or none; uploads that were completed before are returned as they are.
+     */
+    public List<UploadedPhoto> completeUploads(UUID albumId, List<UUID> sessionIds, UUID currentUserId) {
+        log.debug("Completing {} direct uploads for album: {} by user: {}", sessionIds.size(), albumId, currentUserId);
+
+        checkUploadAccess(albumId, currentUserId);
+
+        List<UUID> requestedIds = sessionIds.stream().distinct().toList();
+        Map<UUID, UploadSession> sessions = uploadSessionRepository.findAllById(requestedIds).stream()
+                .collect(Collectors.toMap(UploadSession::getId, Function.identity()));
+
+        List<UploadSession> pending = new ArrayList<>();
+        for (UUID sessionId : requestedIds) {
+            UploadSession session = sessions.get(sessionId);
+            if (session == null || !session.isDirect() || !session.getAlbumId().equals(albumId)) {
+                throw new ResourceNotFoundException("Direct upload not found: " + sessionId);
+            }
+            if (!session.getOwnerId().equals(currentUserId)) {
+                throw new ForbiddenException("You don't have access to this upload session");
+            }
+            if (!UploadSession.STATUS_COMPLETED.equals(session.getStatus())) {
+                pending.add(session);
+            }
+        }
+
+        // Storage I/O stays outside the transaction
+        List<StagedPhoto> stagedPhotos = new ArrayList<>(pending.size());
+        for (UploadSession session : pending) {
+            stagedPhotos.add(verify(session));
+        }
+
+        List<UploadedPhoto> newPhotos = stagedPhotos.isEmpty()
+                ? List.of()
+                : photoRegistrationService.completeDirectUploads(currentUserId, albumId,
+                        pending.stream().map(UploadSession::getId).toList(), stagedPhotos);
+
+        // Answer in request order, including uploads that were completed by an earlier call
+        Map<UUID, UploadedPhoto> photos = new HashMap<>();
+        newPhotos.forEach(uploadedPhoto -> photos.put(uploadedPhoto.getPhoto().getId(), uploadedPhoto));
+        List<UUID> previousPhotoIds = requestedIds.stream()
+                .map(sessions::get)
+                .filter(session -> UploadSession.STATUS_COMPLETED.equals(session.getStatus()))
+                .map(UploadSession::getPhotoId)
+                .toList();
+        photoRepository.findAllById(previousPhotoIds)
+                .forEach(photo -> photos.put(photo.getId(), UploadedPhoto.builder().photo(photo).build()));
+
+        log.info("Completed {} direct uploads for album {}", newPhotos.size(), albumId);
+        return requestedIds.stream()
+                .map(sessionId -> photos.get(sessions.get(sessionId).getPhotoId()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private StagedPhoto verify(UploadSession session) {
+        Optional<StoredObjectInfo> stored = storageService.statOriginal(session.getStorageKey());
+
+        if (stored.isEmpty() && session.getMultipartUploadId() != null) {
+            Map<Integer, String> parts = storageService.listOriginalParts(session.getStorageKey(),
+                    session.getMultipartUploadId());
+            long expectedParts = (session.getTotalSize() + session.getChunkSize() - 1) / session.getChunkSize();
+            if (parts.size() != expectedParts) {
+                throw new UploadSessionConflictException("Upload of " + session.getOriginalFilename()
+                        + " is incomplete: " + parts.size() + " of " + expectedParts + " parts received");
+            }
+            storageService.completeOriginalMultipartUpload(session.getStorageKey(), session.getMultipartUploadId(),
+                    parts);
+            stored = storageService.statOriginal(session.getStorageKey());
+        }
+
+        if (stored.isEmpty()) {
+            throw new UploadSessionConflictException(session.getOriginalFilename() + " has not been uploaded yet");
+        }
+        if (stored.get().getContentLength() != session.getTotalSize()) {
+            throw new UploadSessionConflictException("Uploaded size of " + session.getOriginalFilename() + " is "
+                    + stored.get().getContentLength() + " bytes, expected " + session.getTotalSize());
+        }
+
+        return StagedPhoto.builder()
+                .photoId(session.getPhotoId())
+                .storageKey(session.getStorageKey())
+                .originalFilename(session.getOriginalFilename())
+                .mimeType(session.getMimeType())
+                .fileSize(session.getTotalSize())
+                .metadata(photoMetadataReader.readStoredOriginal(session.getStorageKey()))
+                .build();
+    }
+
+    private void validate(UploadFileSpec file, long maxFileSize) {
+        // ZIP archives have to be unpacked by the application, they go through the regular upload endpoints
+        if (file.getFilename() == null || file.getFilename().isBlank()
+                || !photoUploadService.isImageFile(file.getFilename())) {
+            throw new IllegalArgumentException("Unsupported file for direct upload: " + file.getFilename());
+        }
+        if (file.getSize() <= 0 || file.getSize() > maxFileSize) {
+            throw new IllegalArgumentException("File size must be between 1 and " + maxFileSize + " bytes");
+        }
+    }
+
+    private List<String> presignParts(UploadSession session, Duration urlExpiration) {
+        int partCount = Math.toIntExact((session.getTotalSize() + session.getChunkSize() - 1) / session.getChunkSize());
+        List<String> partUrls = new ArrayList<>(partCount);
+        for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+            partUrls.add(storageService.presignOriginalPartUpload(session.getStorageKey(),
+                    session.getMultipartUploadId(), partNumber, urlExpiration));
+        }
+        return partUrls;
+    }
+
+    private void abortMultipartUploads(List<UploadSession> sessions) {
+        for (UploadSession session : sessions) {
+            if (session.getMultipartUploadId() != null) {
+                storageService.abortOriginalMultipartUpload(session.getStorageKey(), session.getMultipartUploadId());
+            }
+        }
+    }
+
+    private void checkUploadAccess(UUID albumId, UUID currentUserId) {
+        Album album = albumRepository.findById(albumId)
+                .orElseThrow(() -> new ResourceNotFoundException("Album not found"));
+
+        if (!albumService.isOwner(album, currentUserId)) {
+            throw new ForbiddenException("Only the album owner can upload photos");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.domain.UploadSession;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Where the client sends a file: either one presigned PUT URL or one presigned URL per multipart part.
+ */
+@Getter
+@Builder
+public class DirectUploadTarget {
+
+    private final UploadSession session;
+    private final String uploadUrl;
+    private final long partSize;
+    private final List<String> partUrls;
+    private final Instant urlExpiresAt;
+}
@@ -0,0 +1,117 @@
+package cc.remer.photobook.usecase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bytes in flight under a total limit and, optionally, a limit per key. Callers that do not fit wait for a
+ * release, but never longer than their timeout. A request larger than a limit is charged at the limit, so it
+ * still gets through once nothing else is in flight. Shared by upload admission and the thumbnail decode budget.
+ */
+final class InFlightBytesLimiter {
+
+    private final long limit;
+    private final long limitPerKey;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Map<Object, Long> inFlightBytesByKey = new HashMap<>();
+    private volatile long inFlightBytes;
+    private volatile int waiting;
+
+    InFlightBytesLimiter(long limit, long limitPerKey) {
+        this.limit = limit;
+        this.limitPerKey = limitPerKey;
+    }
+
+    InFlightBytesLimiter(long limit) {
+        this(limit, Long.MAX_VALUE);
+    }
+
+    /**
+     * The bytes a request of the given size is charged.
+     */
+    long charge(long requestedBytes) {
+        return Math.max(1, Math.min(requestedBytes, Math.min(limit, limitPerKey)));
+    }
+
+    /**
+     * Waits up to the timeout until the charge of the request fits, and takes it. Returns the charged bytes,
+     * or -1 if they did not fit in time. A null key is only held to the total limit.
+     */
+    long acquire(Object key, long requestedBytes, long timeoutNanos) throws InterruptedException {
+        long bytes = charge(requestedBytes);
+        long remaining = timeoutNanos;
+
+        lock.lock();
+        try {
+            waiting++;
+            try {
+                while (inFlightBytes + bytes > limit || keyBytes(key) + bytes > limitPerKey) {
+                    if (remaining <= 0) {
+                        return -1;
+                    }
+                    remaining = released.awaitNanos(remaining);
+                }
+            } finally {
+                waiting--;
+            }
+
+            inFlightBytes += bytes;
+            if (key != null) {
+                inFlightBytesByKey.merge(key, bytes, Long::sum);
+            }
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(Object key, long bytes) {
+        lock.lock();
+        try {
+            inFlightBytes -= bytes;
+            if (key != null) {
+                inFlightBytesByKey.computeIfPresent(key, (k, keyBytes) -> keyBytes == bytes ? null : keyBytes - bytes);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getLimit() {
+        return limit;
+    }
+
+    long getInFlightBytes() {
+        return inFlightBytes;
+    }
+
+    long getInFlightBytes(Object key) {
+        lock.lock();
+        try {
+            return keyBytes(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getWaiting() {
+        return waiting;
+    }
+
+    int getActiveKeys() {
+        lock.lock();
+        try {
+            return inFlightBytesByKey.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long keyBytes(Object key) {
+        return key == null ? 0 : inFlightBytesByKey.getOrDefault(key, 0L);
+    }
+}
@@ -0,0 +1,25 @@
+package cc.remer.photobook.usecase;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Dimensions and EXIF data of an original, read from its header. Either may be missing when the header
+ * could not be parsed; thumbnail generation fills them in later.
+ */
+@Getter
+@Builder
+public class PhotoMetadata {
+
+    public static final PhotoMetadata EMPTY = PhotoMetadata.builder().build();
+
+    private final Integer width;
+    private final Integer height;
+    private final Map<String, Object> exifData;
+
+    public boolean hasDimensions() {
+        return width != null && height != null;
+    }
+}
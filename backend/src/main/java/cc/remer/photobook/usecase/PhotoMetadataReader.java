@@ -0,0 +1,207 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.storage.S3StorageService;
+import cc.remer.photobook.config.UploadProperties;
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.Directory;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifIFD0Directory;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import com.drew.metadata.gif.GifHeaderDirectory;
+import com.drew.metadata.jpeg.JpegDirectory;
+import com.drew.metadata.png.PngDirectory;
+import com.drew.metadata.webp.WebpDirectory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Reads dimensions and EXIF data from the first bytes of an original. EXIF, the JPEG SOF marker and the
+ * PNG, GIF and WebP headers all sit at the start of the file, so a prefix of a few hundred KB is enough and
+ * nothing has to be decoded or downloaded in full.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PhotoMetadataReader {
+
+    private final S3StorageService storageService;
+    private final UploadProperties uploadProperties;
+
+    public int prefixSize() {
+        return Math.toIntExact(uploadProperties.getMetadata().getPrefixSize().toBytes());
+    }
+
+    /**
+     * Fetches only the prefix of a stored original with a ranged GET.
+     */
+    public PhotoMetadata readStoredOriginal(String storageKey) {
+        try (InputStream in = storageService.downloadOriginalPrefix(storageKey, prefixSize())) {
+            byte[] prefix = in.readNBytes(prefixSize());
+            return read(prefix, prefix.length);
+        } catch (Exception e) {
+            log.warn("Failed to read metadata of {}: {}", storageKey, e.getMessage());
+            return PhotoMetadata.EMPTY;
+        }
+    }
+
+    public PhotoMetadata read(byte[] prefix, int length) {
+        Map<String, Object> exifData = null;
+        Integer width = null;
+        Integer height = null;
+
+        try {
+            Metadata metadata = ImageMetadataReader.readMetadata(new ByteArrayInputStream(prefix, 0, length));
+            exifData = extractExifData(metadata);
+            int[] dimensions = dimensions(metadata);
+            if (dimensions != null) {
+                width = dimensions[0];
+                height = dimensions[1];
+            }
+        } catch (Exception e) {
+            // Usually a header that does not fit into the prefix, the image reader below may still find the size
+            log.debug("Failed to read metadata from {} byte prefix: {}", length, e.getMessage());
+        }
+
+        if (width == null) {
+            int[] dimensions = imageReaderDimensions(prefix, length);
+            if (dimensions != null) {
+                width = dimensions[0];
+                height = dimensions[1];
+            }
+        }
+
+        return PhotoMetadata.builder()
+                .width(width)
+                .height(height)
+                .exifData(exifData)
+                .build();
+    }
+
+    /**
+     * Reads the EXIF data of a complete original.
+     */
+    public Map<String, Object> readExifData(InputStream inputStream) {
+        try {
+            return extractExifData(ImageMetadataReader.readMetadata(new BufferedInputStream(inputStream)));
+        } catch (Exception e) {
+            log.warn("Failed to extract EXIF data: {}", e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    private Map<String, Object> extractExifData(Metadata metadata) {
+        Map<String, Object> exifData = new HashMap<>();
+
+        ExifIFD0Directory exifIFD0 = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
+        if (exifIFD0 != null) {
+            if (exifIFD0.containsTag(ExifIFD0Directory.TAG_MAKE)) {
+                exifData.put("make", exifIFD0.getString(ExifIFD0Directory.TAG_MAKE));
+            }
+            if (exifIFD0.containsTag(ExifIFD0Directory.TAG_MODEL)) {
+                exifData.put("model", exifIFD0.getString(ExifIFD0Directory.TAG_MODEL));
+            }
+            if (exifIFD0.containsTag(ExifIFD0Directory.TAG_ORIENTATION)) {
+                exifData.put("orientation", exifIFD0.getInteger(ExifIFD0Directory.TAG_ORIENTATION));
+            }
+        }
+
+        ExifSubIFDDirectory exifSubIFD = metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
+        if (exifSubIFD != null) {
+            if (exifSubIFD.containsTag(ExifSubIFDDirectory.TAG_DATETIME_ORIGINAL)) {
+                Date date = exifSubIFD.getDate(ExifSubIFDDirectory.TAG_DATETIME_ORIGINAL);
+                if (date != null) {
+                    exifData.put("dateTimeOriginal", date.toInstant().toString());
+                }
+            }
+            if (exifSubIFD.containsTag(ExifSubIFDDirectory.TAG_EXPOSURE_TIME)) {
+                exifData.put("exposureTime", exifSubIFD.getString(ExifSubIFDDirectory.TAG_EXPOSURE_TIME));
+            }
+            if (exifSubIFD.containsTag(ExifSubIFDDirectory.TAG_FNUMBER)) {
+                exifData.put("fNumber", exifSubIFD.getString(ExifSubIFDDirectory.TAG_FNUMBER));
+            }
+            if (exifSubIFD.containsTag(ExifSubIFDDirectory.TAG_ISO_EQUIVALENT)) {
+                exifData.put("iso", exifSubIFD.getInteger(ExifSubIFDDirectory.TAG_ISO_EQUIVALENT));
+            }
+            if (exifSubIFD.containsTag(ExifSubIFDDirectory.TAG_FOCAL_LENGTH)) {
+                exifData.put("focalLength", exifSubIFD.getString(ExifSubIFDDirectory.TAG_FOCAL_LENGTH));
+            }
+        }
+
+        JpegDirectory jpegDirectory = metadata.getFirstDirectoryOfType(JpegDirectory.class);
+        if (jpegDirectory != null) {
+            if (jpegDirectory.containsTag(JpegDirectory.TAG_IMAGE_WIDTH)) {
+                exifData.put("imageWidth", jpegDirectory.getInteger(JpegDirectory.TAG_IMAGE_WIDTH));
+            }
+            if (jpegDirectory.containsTag(JpegDirectory.TAG_IMAGE_HEIGHT)) {
+                exifData.put("imageHeight", jpegDirectory.getInteger(JpegDirectory.TAG_IMAGE_HEIGHT));
+            }
+        }
+
+        log.debug("Extracted EXIF data: {}", exifData);
+        return exifData;
+    }
+
+    // Stored pixel dimensions from the format's own header, EXIF only as a last resort
+    private static int[] dimensions(Metadata metadata) {
+        int[] dimensions = dimensions(metadata.getFirstDirectoryOfType(JpegDirectory.class),
+                JpegDirectory.TAG_IMAGE_WIDTH, JpegDirectory.TAG_IMAGE_HEIGHT);
+        if (dimensions == null) {
+            dimensions = dimensions(metadata.getFirstDirectoryOfType(PngDirectory.class),
+                    PngDirectory.TAG_IMAGE_WIDTH, PngDirectory.TAG_IMAGE_HEIGHT);
+        }
+        if (dimensions == null) {
+            dimensions = dimensions(metadata.getFirstDirectoryOfType(GifHeaderDirectory.class),
+                    GifHeaderDirectory.TAG_IMAGE_WIDTH, GifHeaderDirectory.TAG_IMAGE_HEIGHT);
+        }
+        if (dimensions == null) {
+            dimensions = dimensions(metadata.getFirstDirectoryOfType(WebpDirectory.class),
+                    WebpDirectory.TAG_IMAGE_WIDTH, WebpDirectory.TAG_IMAGE_HEIGHT);
+        }
+        if (dimensions == null) {
+            dimensions = dimensions(metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class),
+                    ExifSubIFDDirectory.TAG_EXIF_IMAGE_WIDTH, ExifSubIFDDirectory.TAG_EXIF_IMAGE_HEIGHT);
+        }
+        return dimensions;
+    }
+
+    private static int[] dimensions(Directory directory, int widthTag, int heightTag) {
+        if (directory == null || !directory.containsTag(widthTag) || !directory.containsTag(heightTag)) {
+            return null;
+        }
+        Integer width = directory.getInteger(widthTag);
+        Integer height = directory.getInteger(heightTag);
+        return width != null && height != null && width > 0 && height > 0 ? new int[]{width, height} : null;
+    }
+
+    private static int[] imageReaderDimensions(byte[] prefix, int length) {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(prefix, 0, length))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new int[]{reader.getWidth(0), reader.getHeight(0)};
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+}
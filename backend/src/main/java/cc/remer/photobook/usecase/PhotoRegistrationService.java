@@ -0,0 +1,213 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.persistence.AlbumPhotoRepository;
+import cc.remer.photobook.adapter.persistence.PhotoRepository;
+import cc.remer.photobook.adapter.persistence.PhotoThumbnailRepository;
+import cc.remer.photobook.adapter.persistence.UploadSessionRepository;
+import cc.remer.photobook.domain.AlbumPhoto;
+import cc.remer.photobook.domain.Photo;
+import cc.remer.photobook.domain.PhotoThumbnail;
+import cc.remer.photobook.domain.UploadSession;
+import cc.remer.photobook.usecase.ResumableUploadService.UploadSessionConflictException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Records staged uploads. Storage I/O happens before this runs, so the transaction only spans the inserts.
+ * Thumbnail jobs for new photos are written in the same transaction, and so are the generated thumbnails later on.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PhotoRegistrationService {
+
+    // At most one linkable photo per owner and content, see V11
+    private static final String CONTENT_HASH_CONSTRAINT = "uk_photos_owner_content_hash";
+
+    private final PhotoRepository photoRepository;
+    private final PhotoThumbnailRepository photoThumbnailRepository;
+    private final AlbumPhotoRepository albumPhotoRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final ThumbnailJobQueue thumbnailJobQueue;
+
+    /**
+     * Records new photos and links everything into the album. Duplicates link the photo the owner already has;
+     * the result holds one entry per staged file, in upload order.
+     */
+    @Transactional
+    public List<UploadedPhoto> registerPhotos(UUID ownerId, UUID albumId, List<StagedPhoto> stagedPhotos) {
+        return registerPhotos(ownerId, albumId, stagedPhotos, null);
+    }
+
+    /**
+     * Like {@link #registerPhotos(UUID, UUID, List)}, marking the new photos as created by the given upload job file.
+     */
+    @Transactional
+    public List<UploadedPhoto> registerPhotos(UUID ownerId, UUID albumId, List<StagedPhoto> stagedPhotos,
+                                              UUID uploadJobFileId) {
+        log.debug("Registering {} staged photos in album: {}", stagedPhotos.size(), albumId);
+
+        Map<UUID, Photo> newPhotos = new LinkedHashMap<>();
+        for (StagedPhoto stagedPhoto : stagedPhotos) {
+            if (stagedPhoto.isDuplicate()) {
+                continue;
+            }
+            newPhotos.put(stagedPhoto.getPhotoId(), Photo.builder()
+                    .id(stagedPhoto.getPhotoId())
+                    .ownerId(ownerId)
+                    .storageKey(stagedPhoto.getStorageKey())
+                    .originalFilename(stagedPhoto.getOriginalFilename())
+                    .mimeType(stagedPhoto.getMimeType())
+                    .fileSize(stagedPhoto.getFileSize())
+                    .contentHash(stagedPhoto.getContentHash())
+                    .status("PROCESSING")
+                    .uploadJobFileId(uploadJobFileId)
+                    .width(stagedPhoto.getMetadata().getWidth())
+                    .height(stagedPhoto.getMetadata().getHeight())
+                    .exifData(stagedPhoto.getMetadata().getExifData())
+                    .build());
+        }
+
+        // Duplicates of photos stored by earlier uploads
+        Set<UUID> existingIds = stagedPhotos.stream()
+                .filter(StagedPhoto::isDuplicate)
+                .map(StagedPhoto::getDuplicateOf)
+                .filter(photoId -> !newPhotos.containsKey(photoId))
+                .collect(Collectors.toSet());
+        Map<UUID, Photo> existingPhotos = new HashMap<>();
+        Set<UUID> linkedPhotoIds = new HashSet<>();
+        if (!existingIds.isEmpty()) {
+            photoRepository.findAllById(existingIds).forEach(photo -> existingPhotos.put(photo.getId(), photo));
+            linkedPhotoIds.addAll(albumPhotoRepository.findPhotoIdsInAlbum(albumId, existingIds));
+        }
+
+        // Link photos to album, each photo at most once
+        int maxPosition = albumPhotoRepository.findMaxPositionByAlbumId(albumId).orElse(-1);
+        List<AlbumPhoto> albumPhotos = new ArrayList<>(stagedPhotos.size());
+        List<UploadedPhoto> uploadedPhotos = new ArrayList<>(stagedPhotos.size());
+        for (StagedPhoto stagedPhoto : stagedPhotos) {
+            UUID photoId = stagedPhoto.getPhotoId();
+            Photo photo = newPhotos.containsKey(photoId) ? newPhotos.get(photoId) : existingPhotos.get(photoId);
+            if (photo == null) {
+                // The original was deleted (or failed to store) after the duplicate was detected
+                log.warn("Dropping duplicate {} of missing photo {}", stagedPhoto.getOriginalFilename(), photoId);
+                continue;
+            }
+
+            if (linkedPhotoIds.add(photoId)) {
+                albumPhotos.add(AlbumPhoto.builder()
+                        .albumId(albumId)
+                        .photoId(photoId)
+                        .position(++maxPosition)
+                        .build());
+            }
+            uploadedPhotos.add(UploadedPhoto.builder()
+                    .photo(photo)
+                    .deduplicated(stagedPhoto.isDuplicate())
+                    .build());
+        }
+
+        // IDs are assigned, so both lists are plain persists and go out as JDBC batches on flush
+        photoRepository.saveAll(newPhotos.values());
+        try {
+            photoRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (!violates(e, CONTENT_HASH_CONSTRAINT)) {
+                throw e;
+            }
+            // Another upload stored the same content after these files were hashed. The callers discard the
+            // staged originals, and a retry links the photo that won.
+            throw new UploadSessionConflictException("The same photo was uploaded concurrently, please retry");
+        }
+        albumPhotoRepository.saveAll(albumPhotos);
+        // Deduplicated files reuse the thumbnails of the existing photo
+        thumbnailJobQueue.enqueue(newPhotos.keySet());
+
+        log.info("Registered {} photos in album {} ({} new, {} linked)",
+                uploadedPhotos.size(), albumId, newPhotos.size(), uploadedPhotos.size() - newPhotos.size());
+        return uploadedPhotos;
+    }
+
+    /**
+     * Records the photos of a resumable upload and closes its session in the same transaction,
+     * so a repeated complete call either sees the photos or nothing at all. Fails without recording anything
+     * when the completion claim of the given token went stale and was taken over.
+     */
+    @Transactional
+    public List<UploadedPhoto> completeUploadSession(UUID sessionId, UUID completionToken,
+                                                     List<StagedPhoto> stagedPhotos) {
+        UploadSession session = uploadSessionRepository.lockClaimedCompletion(sessionId, completionToken)
+                .orElseThrow(() -> new UploadSessionConflictException("Upload session " + sessionId
+                        + " was taken over by another completion"));
+
+        List<UploadedPhoto> photos = stagedPhotos.isEmpty()
+                ? List.of()
+                : registerPhotos(session.getOwnerId(), session.getAlbumId(), stagedPhotos);
+
+        session.setStatus(UploadSession.STATUS_COMPLETED);
+        session.setCompletionToken(null);
+        session.setPhotoIds(photos.stream().map(uploaded -> uploaded.getPhoto().getId()).distinct().toList());
+
+        return photos;
+    }
+
+    /**
+     * Records verified direct uploads. The sessions are closed with a conditional update, so when two requests
+     * complete the same uploads concurrently the second one rolls back instead of inserting duplicates.
+     */
+    @Transactional
+    public List<UploadedPhoto> completeDirectUploads(UUID ownerId, UUID albumId, List<UUID> sessionIds,
+                                             List<StagedPhoto> stagedPhotos) {
+        if (uploadSessionRepository.markDirectUploadsCompleted(sessionIds) != sessionIds.size()) {
+            throw new UploadSessionConflictException("Uploads were completed concurrently, please retry");
+        }
+
+        return registerPhotos(ownerId, albumId, stagedPhotos);
+    }
+
+    /**
+     * Records the stored thumbnails of a photo, replacing earlier thumbnails of the same sizes, and marks it READY.
+     * EXIF data read at upload time and an earlier placeholder are kept when none is given. Returns false if the
+     * photo was deleted while its thumbnails were generated.
+     */
+    @Transactional
+    public boolean recordThumbnails(UUID photoId, int width, int height, Map<String, Object> exifData,
+                                    String placeholder, List<PhotoThumbnail> thumbnails) {
+        Optional<Photo> photo = photoRepository.findById(photoId);
+        if (photo.isEmpty()) {
+            return false;
+        }
+
+        photo.get().setWidth(width);
+        photo.get().setHeight(height);
+        if (exifData != null) {
+            photo.get().setExifData(exifData);
+        }
+        if (placeholder != null) {
+            photo.get().setPlaceholder(placeholder);
+        }
+        // Rows may exist whatever the status: regenerated READY photos, retried jobs and photos that failed
+        // after an earlier generation. The delete runs before the insert, so uk_photo_size is never violated
+        photoThumbnailRepository.deleteByPhotoIdAndSizeIn(photoId,
+                thumbnails.stream().map(PhotoThumbnail::getSize).toList());
+        photo.get().setStatus("READY");
+        photoThumbnailRepository.saveAll(thumbnails);
+        return true;
+    }
+
+    private static boolean violates(DataIntegrityViolationException e, String constraintName) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return constraintName.equalsIgnoreCase(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+}
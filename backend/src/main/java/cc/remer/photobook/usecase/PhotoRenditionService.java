@@ -0,0 +1,217 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.image.ImageResizer;
+import cc.remer.photobook.adapter.persistence.PhotoRenditionRepository;
+import cc.remer.photobook.adapter.persistence.PhotoThumbnailRepository;
+import cc.remer.photobook.adapter.storage.S3StorageService;
+import cc.remer.photobook.config.ThumbnailRenditionProperties;
+import cc.remer.photobook.domain.Photo;
+import cc.remer.photobook.domain.PhotoRendition;
+import cc.remer.photobook.domain.PhotoThumbnail;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Photos at whitelisted widths beyond the thumbnail presets. A rendition is rendered on first access from the
+ * smallest thumbnail or earlier rendition that is at least as wide, so the original is only read when nothing
+ * stored is large enough. Renditions are kept in the thumbnails bucket and served from there afterwards.
+ * <p>
+ * Rendering runs on the request thread, so it only waits briefly for decode budget and otherwise fails with
+ * {@link ThumbnailDecodeBudget.DecodeBudgetExhaustedException}, answered with 503 and Retry-After.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PhotoRenditionService {
+
+    private static final Duration URL_EXPIRATION = Duration.ofHours(1);
+
+    private final PhotoService photoService;
+    private final PhotoRenditionRepository photoRenditionRepository;
+    private final PhotoThumbnailRepository photoThumbnailRepository;
+    private final S3StorageService storageService;
+    private final ThumbnailScaler thumbnailScaler;
+    private final ThumbnailDecodeBudget decodeBudget;
+    private final ImageResizer imageResizer;
+    private final ThumbnailPresets presets;
+    private final ThumbnailRenditionProperties properties;
+
+    /**
+     * Returns a presigned URL of the rendition, rendering it first if this is the first request for it.
+     */
+    public String getRenditionUrl(UUID photoId, int width, String format, UUID currentUserId) {
+        String normalizedFormat = format == null ? "jpeg" : format.toLowerCase();
+        if (!properties.getWidths().contains(width)) {
+            throw new IllegalArgumentException("Width must be one of " + properties.getWidths());
+        }
+        if (!properties.getFormats().contains(normalizedFormat)) {
+            throw new IllegalArgumentException("Format must be one of " + properties.getFormats());
+        }
+
+        // Checks access
+        Photo photo = photoService.getPhoto(photoId, currentUserId);
+
+        PhotoRendition rendition = photoRenditionRepository
+                .findByPhotoIdAndRequestedWidthAndFormat(photoId, width, normalizedFormat)
+                .orElseGet(() -> render(photo, width, normalizedFormat));
+
+        return storageService.getPresignedThumbnailUrl(rendition.getStorageKey(), URL_EXPIRATION);
+    }
+
+    private PhotoRendition render(Photo photo, int requestedWidth, String format) {
+        Source source = findSource(photo, requestedWidth);
+        log.debug("Rendering {} rendition of width {} for photo {} from {}", format, requestedWidth, photo.getId(),
+                source.name());
+
+        byte[] bytes;
+        int width;
+        int height;
+        try {
+            BufferedImage image = source.storageKey() != null
+                    ? renderFromDerivative(photo, source, requestedWidth)
+                    : renderFromOriginal(photo, requestedWidth);
+            width = image.getWidth();
+            height = image.getHeight();
+            bytes = encode(image, format);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to render rendition", e);
+        }
+
+        String storageKey = storageKey(photo, requestedWidth, format);
+        storageService.uploadThumbnail(storageKey, new ByteArrayInputStream(bytes), bytes.length,
+                "png".equals(format) ? "image/png" : "image/jpeg");
+
+        PhotoRendition rendition = PhotoRendition.builder()
+                .photoId(photo.getId())
+                .requestedWidth(requestedWidth)
+                .format(format)
+                .storageKey(storageKey)
+                .width(width)
+                .height(height)
+                .fileSize((long) bytes.length)
+                .source(source.name())
+                .build();
+        try {
+            rendition = photoRenditionRepository.save(rendition);
+        } catch (DataIntegrityViolationException e) {
+            // Rendered concurrently by another request into the same storage key
+            return photoRenditionRepository
+                    .findByPhotoIdAndRequestedWidthAndFormat(photo.getId(), requestedWidth, format)
+                    .orElseThrow(() -> e);
+        }
+
+        log.info("Rendered {} rendition of width {} for photo {} from {}", format, requestedWidth, photo.getId(),
+                source.name());
+        return rendition;
+    }
+
+    // The narrowest stored derivative that is at least as wide as the rendition will be
+    private Source findSource(Photo photo, int requestedWidth) {
+        List<Source> candidates = new ArrayList<>();
+        for (PhotoThumbnail thumbnail : photoThumbnailRepository.findByPhotoId(photo.getId())) {
+            candidates.add(new Source(thumbnail.getSize(), thumbnail.getStorageKey(), thumbnail.getWidth(),
+                    thumbnail.getHeight()));
+        }
+        for (PhotoRendition rendition : photoRenditionRepository.findByPhotoId(photo.getId())) {
+            candidates.add(new Source("RENDITION_" + rendition.getRequestedWidth(), rendition.getStorageKey(),
+                    rendition.getWidth(), rendition.getHeight()));
+        }
+
+        // Photos are never scaled up, a narrower photo is rendered at its own width
+        int targetWidth = photo.getWidth() != null ? Math.min(requestedWidth, photo.getWidth()) : requestedWidth;
+        Optional<Source> derivative = candidates.stream()
+                .filter(candidate -> candidate.width() >= targetWidth)
+                .min(Comparator.comparingInt(Source::width));
+
+        return derivative.orElseGet(() -> new Source(PhotoRendition.SOURCE_ORIGINAL, null, 0, 0));
+    }
+
+    private BufferedImage renderFromDerivative(Photo photo, Source source, int requestedWidth) throws IOException {
+        long estimatedBytes = 4L * source.width() * source.height() * 2;
+        try (ThumbnailDecodeBudget.Lease lease = decodeBudget.admit(photo.getId(), source.width(), source.height(),
+                estimatedBytes, properties.getDecodeTimeout());
+             InputStream in = storageService.downloadThumbnail(source.storageKey())) {
+            BufferedImage image = ImageIO.read(in);
+            if (image == null) {
+                throw new IOException("Unreadable derivative: " + source.storageKey());
+            }
+            return scale(image, image.getWidth(), image.getHeight(), requestedWidth);
+        }
+    }
+
+    private BufferedImage renderFromOriginal(Photo photo, int requestedWidth) throws IOException {
+        Path download = Files.createTempFile("photobook-rendition-", ".tmp");
+        try {
+            try (InputStream originalStream = storageService.downloadOriginal(photo.getStorageKey())) {
+                Files.copy(originalStream, download, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            ThumbnailScaler.ImageHeader header = thumbnailScaler.readHeader(download);
+            int maxSize = maxSize(header.width(), header.height(), requestedWidth);
+            try (ThumbnailDecodeBudget.Lease lease = decodeBudget.admit(photo.getId(), header.width(),
+                    header.height(), ThumbnailScaler.estimateDecodeBytes(header, maxSize),
+                    properties.getDecodeTimeout())) {
+                ThumbnailScaler.DecodedImage decoded = thumbnailScaler.decode(download, maxSize);
+                return scale(decoded.image(), decoded.width(), decoded.height(), requestedWidth);
+            }
+        } finally {
+            Files.deleteIfExists(download);
+        }
+    }
+
+    // Dimensions follow the original's aspect ratio, whatever the source was subsampled or rounded to
+    private BufferedImage scale(BufferedImage source, int originalWidth, int originalHeight, int requestedWidth)
+            throws IOException {
+        int width = Math.min(requestedWidth, originalWidth);
+        int height = Math.max(1, (int) ((double) originalHeight / originalWidth * width));
+        if (width == source.getWidth() && height == source.getHeight()
+                && source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        return imageResizer.resize(source, width, height);
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        if ("png".equals(format)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (!ImageIO.write(image, "png", out)) {
+                throw new IOException("No PNG writer available");
+            }
+            return out.toByteArray();
+        }
+        return thumbnailScaler.encodeJpeg(image, presets.renditionProfile());
+    }
+
+    private static int maxSize(int width, int height, int requestedWidth) {
+        int targetWidth = Math.min(requestedWidth, width);
+        return Math.max(targetWidth, (int) ((double) height / width * targetWidth));
+    }
+
+    private static String storageKey(Photo photo, int requestedWidth, String format) {
+        String key = photo.getStorageKey();
+        int lastDot = key.lastIndexOf('.');
+        String base = lastDot > key.lastIndexOf('/') ? key.substring(0, lastDot) : key;
+        return base + "_w" + requestedWidth + ("png".equals(format) ? ".png" : ".jpg");
+    }
+
+    private record Source(String name, String storageKey, int width, int height) {
+    }
+}
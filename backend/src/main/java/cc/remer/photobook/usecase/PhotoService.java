@@ -2,12 +2,15 @@ package cc.remer.photobook.usecase;
 
 import cc.remer.photobook.adapter.persistence.AlbumPhotoRepository;
 import cc.remer.photobook.adapter.persistence.AlbumRepository;
+import cc.remer.photobook.adapter.persistence.PhotoRenditionRepository;
 import cc.remer.photobook.adapter.persistence.PhotoRepository;
 import cc.remer.photobook.adapter.persistence.PhotoThumbnailRepository;
+import cc.remer.photobook.adapter.persistence.PhotoTilePyramidRepository;
 import cc.remer.photobook.adapter.storage.S3StorageService;
 import cc.remer.photobook.domain.Album;
 import cc.remer.photobook.domain.AlbumPhoto;
 import cc.remer.photobook.domain.Photo;
+import cc.remer.photobook.domain.PhotoRendition;
 import cc.remer.photobook.domain.PhotoThumbnail;
 import cc.remer.photobook.usecase.AlbumService.ForbiddenException;
 import cc.remer.photobook.usecase.AlbumService.ResourceNotFoundException;
@@ -21,7 +24,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -35,14 +37,37 @@ public class PhotoService {
     private final AlbumRepository albumRepository;
     private final AlbumPhotoRepository albumPhotoRepository;
     private final PhotoThumbnailRepository photoThumbnailRepository;
+    private final PhotoRenditionRepository photoRenditionRepository;
+    private final PhotoTilePyramidRepository photoTilePyramidRepository;
     private final PhotoUploadService photoUploadService;
+    private final PhotoRegistrationService photoRegistrationService;
     private final AlbumService albumService;
     private final S3StorageService storageService;
 
-    @Transactional
-    public List<Photo> uploadPhotos(UUID albumId, List<MultipartFile> files, UUID currentUserId) {
+    // Not transactional: originals are stored first, then recorded in one short transaction
+    public List<UploadedPhoto> uploadPhotos(UUID albumId, List<MultipartFile> files, UUID currentUserId) {
         log.debug("Uploading {} photos to album: {} by user: {}", files.size(), albumId, currentUserId);
 
+        checkUploadAccess(albumId, currentUserId);
+
+        // Upload photos
+        List<StagedPhoto> stagedPhotos = photoUploadService.stagePhotos(currentUserId, files);
+
+        return registerStagedPhotos(albumId, stagedPhotos, currentUserId);
+    }
+
+    public List<UploadedPhoto> uploadPhotoStream(UUID albumId, StreamingUploadSource source, UUID currentUserId) {
+        log.debug("Streaming photo upload to album: {} by user: {}", albumId, currentUserId);
+
+        // Check album access before the request body is read
+        checkUploadAccess(albumId, currentUserId);
+
+        List<StagedPhoto> stagedPhotos = photoUploadService.stagePhotoStream(currentUserId, source);
+
+        return registerStagedPhotos(albumId, stagedPhotos, currentUserId);
+    }
+
+    private void checkUploadAccess(UUID albumId, UUID currentUserId) {
         // Check album access (must be owner to upload)
         Album album = albumRepository.findById(albumId)
                 .orElseThrow(() -> new ResourceNotFoundException("Album not found"));
@@ -50,26 +75,22 @@ public class PhotoService {
         if (!albumService.isOwner(album, currentUserId)) {
             throw new ForbiddenException("Only the album owner can upload photos");
         }
+    }
 
-        // Upload photos
-        List<UUID> photoIds = photoUploadService.uploadPhotos(currentUserId, files);
-
-        // Link photos to album
-        int maxPosition = albumPhotoRepository.findMaxPositionByAlbumId(albumId).orElse(-1);
-        List<Photo> uploadedPhotos = new ArrayList<>();
-
-        for (UUID photoId : photoIds) {
-            Photo photo = photoRepository.findById(photoId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Photo not found after upload"));
-
-            AlbumPhoto albumPhoto = AlbumPhoto.builder()
-                    .albumId(albumId)
-                    .photoId(photoId)
-                    .position(++maxPosition)
-                    .build();
+    private List<UploadedPhoto> registerStagedPhotos(UUID albumId, List<StagedPhoto> stagedPhotos, UUID currentUserId) {
+        if (stagedPhotos.isEmpty()) {
+            return List.of();
+        }
 
-            albumPhotoRepository.save(albumPhoto);
-            uploadedPhotos.add(photo);
+        List<UploadedPhoto> uploadedPhotos;
+        try {
+            uploadedPhotos = photoRegistrationService.registerPhotos(currentUserId, albumId, stagedPhotos);
+        } catch (RuntimeException e) {
+            // Nothing was recorded, so the stored originals would be orphans
+            log.error("Failed to register {} uploaded photos in album {}, discarding stored originals",
+                    stagedPhotos.size(), albumId, e);
+            photoUploadService.discardStagedPhotos(stagedPhotos);
+            throw e;
         }
 
         log.info("Successfully uploaded {} photos to album {}", uploadedPhotos.size(), albumId);
@@ -143,6 +164,24 @@ public class PhotoService {
         }
         photoThumbnailRepository.deleteByPhotoId(photoId);
 
+        // Delete renditions from storage, the rows go with the photo
+        for (PhotoRendition rendition : photoRenditionRepository.findByPhotoId(photoId)) {
+            try {
+                storageService.deleteThumbnail(rendition.getStorageKey());
+            } catch (Exception e) {
+                log.error("Failed to delete rendition from storage: {}", rendition.getStorageKey(), e);
+            }
+        }
+
+        // Delete deep zoom tiles from storage
+        photoTilePyramidRepository.findById(photoId).ifPresent(pyramid -> {
+            try {
+                storageService.deleteThumbnailsWithPrefix(pyramid.getStoragePrefix());
+            } catch (Exception e) {
+                log.error("Failed to delete tiles from storage: {}", pyramid.getStoragePrefix(), e);
+            }
+        });
+
         // Delete original from storage
         try {
             storageService.deleteOriginal(photo.getStorageKey());
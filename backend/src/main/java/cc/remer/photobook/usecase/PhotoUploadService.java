@@ -1,42 +1,61 @@
 package cc.remer.photobook.usecase;
 
 import cc.remer.photobook.adapter.persistence.PhotoRepository;
+import cc.remer.photobook.adapter.storage.LocalStagingArea;
 import cc.remer.photobook.adapter.storage.S3StorageService;
+import cc.remer.photobook.config.UploadProperties;
 import cc.remer.photobook.domain.Photo;
+import cc.remer.photobook.domain.UuidV7;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongConsumer;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
-
+import java.util.zip.ZipFile;
+
+/**
+ * Writes uploaded originals to storage. Apart from looking up duplicates nothing in here touches the database:
+ * staged photos are recorded afterwards in one short transaction by {@link PhotoRegistrationService}.
+ * <p>
+ * Every original is hashed with SHA-256. A file the owner already has (or that occurs twice in one upload)
+ * is not stored again but staged as a duplicate of the existing photo.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PhotoUploadService {
 
     private final S3StorageService storageService;
+    private final LocalStagingArea stagingArea;
+    private final PhotoMetadataReader photoMetadataReader;
     private final PhotoRepository photoRepository;
-    private final ThumbnailGenerationService thumbnailService;
-
-    @Value("${upload.allowed-extensions}")
-    private String allowedExtensionsConfig;
-
-    private Set<String> getAllowedExtensions() {
-        return new HashSet<>(Arrays.asList(allowedExtensionsConfig.toLowerCase().split(",")));
-    }
+    private final UploadProperties uploadProperties;
+    private final Executor zipExtractionExecutor;
 
-    @Transactional
-    public List<UUID> uploadPhotos(UUID userId, List<MultipartFile> files) {
+    public List<StagedPhoto> stagePhotos(UUID userId, List<MultipartFile> files) {
         log.info("Starting photo upload for user: {}, files: {}", userId, files.size());
 
-        List<UUID> uploadedPhotoIds = new ArrayList<>();
+        List<StagedPhoto> stagedPhotos = new ArrayList<>();
+        UploadBatch batch = new UploadBatch(userId, UploadProgressListener.NONE);
 
         for (MultipartFile file : files) {
             try {
@@ -48,14 +67,10 @@ public class PhotoUploadService {
 
                 if (isZipFile(filename)) {
                     log.debug("Processing ZIP file: {}", filename);
-                    List<UUID> zipPhotoIds = processZipFile(userId, file);
-                    uploadedPhotoIds.addAll(zipPhotoIds);
+                    stagedPhotos.addAll(processZipFile(batch, file));
                 } else if (isImageFile(filename)) {
                     log.debug("Processing image file: {}", filename);
-                    UUID photoId = processImageFile(userId, file);
-                    if (photoId != null) {
-                        uploadedPhotoIds.add(photoId);
-                    }
+                    stagedPhotos.add(processImageFile(batch, file));
                 } else {
                     log.warn("Skipping unsupported file: {}", filename);
                 }
@@ -64,122 +79,337 @@ public class PhotoUploadService {
             }
         }
 
-        log.info("Completed photo upload for user: {}, uploaded: {} photos", userId, uploadedPhotoIds.size());
-        return uploadedPhotoIds;
+        log.info("Completed photo upload for user: {}, staged: {} photos", userId, stagedPhotos.size());
+        return stagedPhotos;
     }
 
-    @Transactional
-    public UUID uploadSinglePhoto(UUID userId, MultipartFile file) {
-        List<UUID> result = uploadPhotos(userId, Collections.singletonList(file));
-        return result.isEmpty() ? null : result.get(0);
-    }
+    public List<StagedPhoto> stagePhotoStream(UUID userId, StreamingUploadSource source) {
+        log.info("Starting streaming photo upload for user: {}", userId);
 
-    private List<UUID> processZipFile(UUID userId, MultipartFile zipFile) throws IOException {
-        List<UUID> photoIds = new ArrayList<>();
+        List<StagedPhoto> stagedPhotos = new ArrayList<>();
+        UploadBatch batch = new UploadBatch(userId, UploadProgressListener.NONE);
 
-        try (ZipInputStream zis = new ZipInputStream(zipFile.getInputStream())) {
-            ZipEntry entry;
+        try {
+            source.forEachFile((filename, contentType, content) -> {
+                if (filename == null || filename.isEmpty()) {
+                    log.warn("Skipping file with empty filename");
+                    return;
+                }
 
-            while ((entry = zis.getNextEntry()) != null) {
-                if (entry.isDirectory()) {
-                    continue;
+                try {
+                    if (isZipFile(filename)) {
+                        log.debug("Processing streamed ZIP file: {}", filename);
+                        stagedPhotos.addAll(processZipStream(batch, content));
+                    } else if (isImageFile(filename)) {
+                        log.debug("Processing streamed image file: {}", filename);
+                        stagedPhotos.add(storeStreamedPhoto(batch, filename, content,
+                                resolveContentType(filename, contentType)));
+                    } else {
+                        log.warn("Skipping unsupported file: {}", filename);
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to process file: {}", filename, e);
                 }
+            });
+        } catch (IOException e) {
+            // The request broke off half way, nothing will be recorded for what was already stored
+            discardStagedPhotos(stagedPhotos);
+            throw new UncheckedIOException("Failed to read upload stream", e);
+        }
 
-                String entryName = entry.getName();
-                String filename = getFilenameFromPath(entryName);
+        log.info("Completed streaming photo upload for user: {}, staged: {} photos", userId, stagedPhotos.size());
+        return stagedPhotos;
+    }
 
-                if (!isImageFile(filename)) {
-                    log.debug("Skipping non-image entry in ZIP: {}", entryName);
-                    continue;
-                }
+    /**
+     * Removes the stored originals of a batch that could not be recorded in the database.
+     */
+    public void discardStagedPhotos(List<StagedPhoto> stagedPhotos) {
+        log.info("Discarding {} staged photos", stagedPhotos.size());
 
-                log.debug("Processing ZIP entry: {}", entryName);
+        for (StagedPhoto stagedPhoto : stagedPhotos) {
+            if (stagedPhoto.isDuplicate()) {
+                continue;
+            }
+            stagingArea.remove(stagedPhoto.getPhotoId());
+            try {
+                storageService.deleteOriginal(stagedPhoto.getStorageKey());
+            } catch (Exception e) {
+                log.error("Failed to discard staged original: {}", stagedPhoto.getStorageKey(), e);
+            }
+        }
+    }
 
-                byte[] fileBytes = zis.readAllBytes();
-                UUID photoId = storePhoto(userId, filename, fileBytes, getContentType(filename));
+    /**
+     * Stores a file that was spooled to local disk, reporting the bytes written to storage as it goes.
+     * ZIP archives are unpacked; for them the reported bytes are those of the extracted images.
+     */
+    public List<StagedPhoto> stageSpooledFile(UUID userId, String filename, String contentType, Path file,
+                                              UploadProgressListener listener) throws IOException {
+        UploadBatch batch = new UploadBatch(userId, listener);
+
+        if (isZipFile(filename)) {
+            log.debug("Processing spooled ZIP file: {}", filename);
+            return processZipArchive(batch, file);
+        }
+        if (isImageFile(filename)) {
+            log.debug("Processing spooled image file: {}", filename);
+            return List.of(storePhoto(batch, filename, () -> Files.newInputStream(file), Files.size(file),
+                    resolveContentType(filename, contentType)));
+        }
+        throw new IllegalArgumentException("Unsupported file: " + filename);
+    }
 
-                if (photoId != null) {
-                    photoIds.add(photoId);
-                }
+    /**
+     * Extracts the images of a ZIP archive that is already stored as an original. The archive object
+     * itself is left in place; the caller removes it once the extracted photos are recorded.
+     */
+    public List<StagedPhoto> stageZipObject(UUID userId, String storageKey) {
+        try (InputStream zipStream = storageService.downloadOriginal(storageKey)) {
+            return processZipStream(new UploadBatch(userId, UploadProgressListener.NONE), zipStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read stored ZIP archive: " + storageKey, e);
+        }
+    }
+
+    public boolean isSupportedFile(String filename) {
+        return isZipFile(filename) || isImageFile(filename);
+    }
 
-                zis.closeEntry();
+    public boolean isZipFile(String filename) {
+        String extension = getFileExtension(filename);
+        return "zip".equalsIgnoreCase(extension);
+    }
+
+    public String resolveContentType(String filename, String declaredContentType) {
+        if (declaredContentType == null || declaredContentType.isEmpty()) {
+            return isZipFile(filename) ? "application/zip" : getContentType(filename);
+        }
+        return declaredContentType;
+    }
+
+    public String buildStorageKey(UUID userId, UUID photoId, String filename) {
+        return String.format("%s/%s.%s", userId, photoId, getFileExtension(filename));
+    }
+
+    private List<StagedPhoto> processZipFile(UploadBatch batch, MultipartFile zipFile) throws IOException {
+        Path archive = Files.createTempFile("photobook-upload-", ".zip");
+        try {
+            zipFile.transferTo(archive);
+            return processZipArchive(batch, archive);
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    private List<StagedPhoto> processZipStream(UploadBatch batch, InputStream zipStream) throws IOException {
+        // Spool once so the central directory can be read and entries extracted in parallel
+        Path archive = Files.createTempFile("photobook-upload-", ".zip");
+        try {
+            Files.copy(zipStream, archive, StandardCopyOption.REPLACE_EXISTING);
+            return processZipArchive(batch, archive);
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    private List<StagedPhoto> processZipArchive(UploadBatch batch, Path archive) throws IOException {
+        List<StagedPhoto> stagedPhotos = new ArrayList<>();
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            List<? extends ZipEntry> entries = zip.stream()
+                    .filter(entry -> !entry.isDirectory())
+                    .filter(entry -> {
+                        boolean image = isImageFile(getFilenameFromPath(entry.getName()));
+                        if (!image) {
+                            log.debug("Skipping non-image entry in ZIP: {}", entry.getName());
+                        }
+                        return image;
+                    })
+                    .toList();
+
+            log.debug("Extracting {} image entries from ZIP with parallelism {}",
+                    entries.size(), uploadProperties.getZip().getParallelism());
+
+            // The extraction pool is shared, so cap how many entries of this archive are in flight at once
+            Semaphore inFlight = new Semaphore(uploadProperties.getZip().getParallelism());
+            List<CompletableFuture<StagedPhoto>> futures = new ArrayList<>(entries.size());
+
+            for (ZipEntry entry : entries) {
+                inFlight.acquireUninterruptibly();
+                futures.add(CompletableFuture
+                        .supplyAsync(() -> storeZipEntry(batch, zip, entry), zipExtractionExecutor)
+                        .whenComplete((stagedPhoto, e) -> inFlight.release()));
+            }
+
+            // Collect in archive order so the album keeps the order of the ZIP
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    stagedPhotos.add(futures.get(i).join());
+                } catch (CompletionException e) {
+                    log.error("Failed to process ZIP entry: {}", entries.get(i).getName(), e.getCause());
+                }
             }
         }
 
-        log.info("Extracted {} photos from ZIP file", photoIds.size());
-        return photoIds;
+        log.info("Extracted {} photos from ZIP file", stagedPhotos.size());
+        return stagedPhotos;
+    }
+
+    private StagedPhoto storeZipEntry(UploadBatch batch, ZipFile zip, ZipEntry entry) {
+        log.debug("Processing ZIP entry: {}", entry.getName());
+
+        String filename = getFilenameFromPath(entry.getName());
+        // Sizes come from the central directory, so entries are uploaded with a single PUT
+        return storePhoto(batch, filename, () -> zip.getInputStream(entry), entry.getSize(), getContentType(filename));
     }
 
-    private UUID processImageFile(UUID userId, MultipartFile file) throws IOException {
+    private StagedPhoto processImageFile(UploadBatch batch, MultipartFile file) {
         String filename = file.getOriginalFilename();
-        byte[] fileBytes = file.getBytes();
-        String contentType = file.getContentType();
+        String contentType = resolveContentType(filename, file.getContentType());
 
-        if (contentType == null || contentType.isEmpty()) {
-            contentType = getContentType(filename);
-        }
+        return storePhoto(batch, filename, file::getInputStream, file.getSize(), contentType);
+    }
 
-        return storePhoto(userId, filename, fileBytes, contentType);
+    /**
+     * Stores an original whose content is available locally and can be read twice. It is hashed first,
+     * so a duplicate never reaches storage. When the staging area has room, the hashing pass also copies
+     * the content there; the upload then reads that copy and thumbnail generation finds it afterwards.
+     */
+    private StagedPhoto storePhoto(UploadBatch batch, String originalFilename, ContentSource content,
+                                   long contentLength, String contentType) {
+        Optional<LocalStagingArea.Reservation> reservation = stagingArea.reserve(contentLength);
+        try {
+            String contentHash;
+            ContentSource source = content;
+            // The hashing pass keeps the prefix for the metadata, so the content is not read again after the claim
+            PrefixInputStream prefix = new PrefixInputStream(batch.trackHashing(content.open()),
+                    photoMetadataReader.prefixSize());
+            if (reservation.isPresent()) {
+                Path copy = reservation.get().getPath();
+                try (prefix; OutputStream out = Files.newOutputStream(copy)) {
+                    contentHash = sha256(prefix, out);
+                }
+                source = () -> Files.newInputStream(copy);
+            } else {
+                try (prefix) {
+                    contentHash = sha256(prefix, OutputStream.nullOutputStream());
+                }
+            }
+            PhotoMetadata metadata = photoMetadataReader.read(prefix.buffer, prefix.length);
+
+            UUID photoId = UuidV7.generate();
+            Optional<UUID> existing = batch.claim(contentHash, photoId);
+            if (existing.isPresent()) {
+                log.debug("Skipping storage of duplicate: {} (photo {})", originalFilename, existing.get());
+                batch.listener.bytesStored(contentLength);
+                return duplicate(originalFilename, contentType, contentLength, contentHash, existing.get());
+            }
+
+            // The photo ID is generated up front, so the final key is known before the row is written
+            String storageKey = buildStorageKey(batch.ownerId, photoId, originalFilename);
+            log.debug("Uploading photo to storage: {}, size: {} bytes", storageKey, contentLength);
+
+            try (InputStream in = source.open()) {
+                storageService.uploadOriginal(storageKey, batch.track(in), contentLength, contentType);
+            } catch (IOException | RuntimeException e) {
+                batch.release(contentHash, photoId);
+                throw e;
+            }
+            reservation.ifPresent(staged -> staged.commit(photoId));
+
+            log.debug("Successfully stored original: {}", storageKey);
+            return staged(photoId, storageKey, originalFilename, contentType, contentLength, contentHash, metadata);
+        } catch (Exception e) {
+            log.error("Failed to store photo: {}", originalFilename, e);
+            throw new RuntimeException("Failed to upload photo: " + originalFilename, e);
+        } finally {
+            // No-op once committed
+            reservation.ifPresent(LocalStagingArea.Reservation::close);
+        }
     }
 
-    private UUID storePhoto(UUID userId, String originalFilename, byte[] fileBytes, String contentType) {
+    /**
+     * Stores an original of unknown length straight from the request. The hash is computed while the bytes
+     * stream to storage, so a duplicate is only detected afterwards and its object removed again.
+     */
+    private StagedPhoto storeStreamedPhoto(UploadBatch batch, String originalFilename, InputStream content,
+                                           String contentType) {
         try {
-            String fileExtension = getFileExtension(originalFilename);
-
-            // First, save photo to DB to get Hibernate-generated UUID
-            // Use temporary placeholder for storage_key (required by NOT NULL constraint)
-            Photo photo = Photo.builder()
-                    .ownerId(userId)
-                    .storageKey("temp/" + UUID.randomUUID()) // Temporary placeholder
-                    .originalFilename(originalFilename)
-                    .mimeType(contentType)
-                    .fileSize((long) fileBytes.length)
-                    .status("PROCESSING")
-                    .build();
-
-            Photo savedPhoto = photoRepository.save(photo);
-            UUID photoId = savedPhoto.getId();
-
-            // Now build storage key with the actual photo ID
-            String storageKey = buildStorageKey(userId, photoId, fileExtension);
-            log.debug("Uploading photo to storage: {}, size: {} bytes", storageKey, fileBytes.length);
-
-            // Upload to S3 with correct key
-            storageService.uploadOriginal(
-                    storageKey,
-                    new ByteArrayInputStream(fileBytes),
-                    fileBytes.length,
-                    contentType
-            );
-
-            // Update photo record with final storage key
-            savedPhoto.setStorageKey(storageKey);
-            photoRepository.save(savedPhoto);
-
-            log.debug("Successfully stored photo: {}", photoId);
-
-            // Generate thumbnails asynchronously
-            thumbnailService.generateThumbnailsAsync(photoId);
-
-            return photoId;
+            UUID photoId = UuidV7.generate();
+            String storageKey = buildStorageKey(batch.ownerId, photoId, originalFilename);
+            log.debug("Streaming photo to storage: {}", storageKey);
+
+            MessageDigest digest = newSha256();
+            PrefixInputStream prefix = new PrefixInputStream(content, photoMetadataReader.prefixSize());
+            long fileSize = storageService.uploadOriginalStream(storageKey, batch.track(new DigestInputStream(prefix, digest)),
+                    contentType);
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            // Read before the claim, which nothing releases again once the object is stored
+            PhotoMetadata metadata = photoMetadataReader.read(prefix.buffer, prefix.length);
+
+            Optional<UUID> existing = batch.claim(contentHash, photoId);
+            if (existing.isPresent()) {
+                log.debug("Removing streamed duplicate: {} (photo {})", originalFilename, existing.get());
+                storageService.deleteOriginal(storageKey);
+                return duplicate(originalFilename, contentType, fileSize, contentHash, existing.get());
+            }
+
+            log.debug("Successfully stored original: {}", storageKey);
+            return staged(photoId, storageKey, originalFilename, contentType, fileSize, contentHash, metadata);
         } catch (Exception e) {
             log.error("Failed to store photo: {}", originalFilename, e);
             throw new RuntimeException("Failed to upload photo: " + originalFilename, e);
         }
     }
 
-    private String buildStorageKey(UUID userId, UUID photoId, String extension) {
-        return String.format("%s/%s.%s", userId, photoId, extension);
+    private StagedPhoto staged(UUID photoId, String storageKey, String originalFilename, String contentType,
+                               long fileSize, String contentHash, PhotoMetadata metadata) {
+        return StagedPhoto.builder()
+                .photoId(photoId)
+                .storageKey(storageKey)
+                .originalFilename(originalFilename)
+                .mimeType(contentType)
+                .fileSize(fileSize)
+                .contentHash(contentHash)
+                .metadata(metadata)
+                .build();
     }
 
-    private boolean isZipFile(String filename) {
-        String extension = getFileExtension(filename);
-        return "zip".equalsIgnoreCase(extension);
+    private StagedPhoto duplicate(String originalFilename, String contentType, long fileSize, String contentHash,
+                                  UUID existingPhotoId) {
+        return StagedPhoto.builder()
+                .photoId(existingPhotoId)
+                .originalFilename(originalFilename)
+                .mimeType(contentType)
+                .fileSize(fileSize)
+                .contentHash(contentHash)
+                .duplicateOf(existingPhotoId)
+                .build();
     }
 
-    private boolean isImageFile(String filename) {
+    private static String sha256(InputStream in, OutputStream copy) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            copy.write(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public boolean isImageFile(String filename) {
         String extension = getFileExtension(filename);
-        return getAllowedExtensions().contains(extension.toLowerCase());
+        return uploadProperties.getAllowedExtensionSet().contains(extension.toLowerCase());
     }
 
     private String getFileExtension(String filename) {
@@ -210,4 +440,112 @@ public class PhotoUploadService {
             default -> "application/octet-stream";
         };
     }
+
+    @FunctionalInterface
+    private interface ContentSource {
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * The hashes seen within one upload request, shared by the parallel ZIP workers.
+     */
+    private class UploadBatch {
+
+        private final UUID ownerId;
+        private final UploadProgressListener listener;
+        private final Map<String, UUID> photoIdsByHash = new ConcurrentHashMap<>();
+
+        UploadBatch(UUID ownerId, UploadProgressListener listener) {
+            this.ownerId = ownerId;
+            this.listener = listener;
+        }
+
+        InputStream track(InputStream in) {
+            return listener == UploadProgressListener.NONE ? in : new ProgressInputStream(in, listener::bytesStored);
+        }
+
+        InputStream trackHashing(InputStream in) {
+            return listener == UploadProgressListener.NONE ? in : new ProgressInputStream(in, listener::bytesHashed);
+        }
+
+        /**
+         * Claims the hash for a new photo, or returns the photo that already has this content. Photos whose
+         * thumbnails could not be generated are not linked, the file is stored again instead.
+         */
+        Optional<UUID> claim(String contentHash, UUID photoId) {
+            Optional<UUID> stored = photoRepository
+                    .findFirstByOwnerIdAndContentHashAndStatusNotOrderByCreatedAtAsc(ownerId, contentHash, "ERROR")
+                    .map(Photo::getId);
+            if (stored.isPresent()) {
+                return stored;
+            }
+            return Optional.ofNullable(photoIdsByHash.putIfAbsent(contentHash, photoId));
+        }
+
+        void release(String contentHash, UUID photoId) {
+            photoIdsByHash.remove(contentHash, photoId);
+        }
+    }
+
+    private static class ProgressInputStream extends FilterInputStream {
+
+        private final LongConsumer listener;
+
+        ProgressInputStream(InputStream in, LongConsumer listener) {
+            super(in);
+            this.listener = listener;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                listener.accept(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                listener.accept(read);
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Keeps a copy of the first bytes that pass through, for reading the header of a streamed original.
+     */
+    private static class PrefixInputStream extends FilterInputStream {
+
+        private final byte[] buffer;
+        private int length;
+
+        PrefixInputStream(InputStream in, int prefixSize) {
+            super(in);
+            this.buffer = new byte[prefixSize];
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1 && length < buffer.length) {
+                buffer[length++] = (byte) b;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0 && length < buffer.length) {
+                int copied = Math.min(read, buffer.length - length);
+                System.arraycopy(b, off, buffer, length, copied);
+                length += copied;
+            }
+            return read;
+        }
+    }
 }
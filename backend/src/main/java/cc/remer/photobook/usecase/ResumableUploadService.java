@@ -0,0 +1,314 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.persistence.AlbumRepository;
+import cc.remer.photobook.adapter.persistence.PhotoRepository;
+import cc.remer.photobook.adapter.persistence.UploadSessionRepository;
+import cc.remer.photobook.adapter.storage.S3StorageService;
+import cc.remer.photobook.config.UploadProperties;
+import cc.remer.photobook.domain.Album;
+import cc.remer.photobook.domain.UploadSession;
+import cc.remer.photobook.domain.UuidV7;
+import cc.remer.photobook.usecase.AlbumService.ForbiddenException;
+import cc.remer.photobook.usecase.AlbumService.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads: a session is created for one file, chunks are PUT at their offset and each chunk is
+ * stored as one part of an S3 multipart upload. A failed chunk is simply sent again, and the client can
+ * always ask for the current offset. Completing the session assembles the parts and records the photos.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ResumableUploadService {
+
+    // A completion whose claim was not renewed within this time is assumed dead
+    private static final Duration COMPLETION_TIMEOUT = Duration.ofMinutes(15);
+    // Expired sessions removed per cleanup run and node
+    private static final int CLEANUP_BATCH_SIZE = 100;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final AlbumRepository albumRepository;
+    private final PhotoRepository photoRepository;
+    private final AlbumService albumService;
+    private final PhotoUploadService photoUploadService;
+    private final PhotoRegistrationService photoRegistrationService;
+    private final PhotoMetadataReader photoMetadataReader;
+    private final S3StorageService storageService;
+    private final UploadProperties uploadProperties;
+    // Session -> token of the completions running on this node, whose claims are renewed
+    private final Map<UUID, UUID> completing = new ConcurrentHashMap<>();
+
+    public UploadSession createSession(UUID albumId, String filename, String contentType, long size,
+                                       UUID currentUserId) {
+        log.debug("Creating upload session for album: {}, file: {}, size: {} by user: {}",
+                albumId, filename, size, currentUserId);
+
+        Album album = albumRepository.findById(albumId)
+                .orElseThrow(() -> new ResourceNotFoundException("Album not found"));
+        if (!albumService.isOwner(album, currentUserId)) {
+            throw new ForbiddenException("Only the album owner can upload photos");
+        }
+
+        if (filename == null || filename.isBlank() || !photoUploadService.isSupportedFile(filename)) {
+            throw new IllegalArgumentException("Unsupported file: " + filename);
+        }
+        long maxFileSize = uploadProperties.getResumable().getMaxFileSize().toBytes();
+        if (size <= 0 || size > maxFileSize) {
+            throw new IllegalArgumentException("File size must be between 1 and " + maxFileSize + " bytes");
+        }
+
+        UUID photoId = UuidV7.generate();
+        String mimeType = photoUploadService.resolveContentType(filename, contentType);
+        String storageKey = photoUploadService.buildStorageKey(currentUserId, photoId, filename);
+        String multipartUploadId = storageService.startOriginalMultipartUpload(storageKey, mimeType);
+
+        UploadSession session = UploadSession.builder()
+                .ownerId(currentUserId)
+                .albumId(albumId)
+                .photoId(photoId)
+                .originalFilename(filename)
+                .mimeType(mimeType)
+                .totalSize(size)
+                .chunkSize(uploadProperties.getResumable().getChunkSize().toBytes())
+                .storageKey(storageKey)
+                .uploadMode(UploadSession.MODE_CHUNKED)
+                .multipartUploadId(multipartUploadId)
+                .bytesReceived(0L)
+                .expiresAt(nextExpiry())
+                .build();
+
+        try {
+            session = uploadSessionRepository.save(session);
+        } catch (RuntimeException e) {
+            storageService.abortOriginalMultipartUpload(storageKey, multipartUploadId);
+            throw e;
+        }
+
+        log.info("Created upload session {} for {} ({} bytes)", session.getId(), filename, size);
+        return session;
+    }
+
+    public UploadSession getSession(UUID sessionId, UUID currentUserId) {
+        UploadSession session = uploadSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload session not found"));
+
+        if (!session.getOwnerId().equals(currentUserId)) {
+            throw new ForbiddenException("You don't have access to this upload session");
+        }
+        return session;
+    }
+
+    /**
+     * Stores one chunk. Chunks must start at a multiple of the session's chunk size and may not leave a gap;
+     * sending an already received chunk again replaces it.
+     */
+    public UploadSession uploadChunk(UUID sessionId, long offset, InputStream content, long contentLength,
+                                     UUID currentUserId) {
+        UploadSession session = getSession(sessionId, currentUserId);
+        log.debug("Chunk for upload session: {}, offset: {}, length: {}", sessionId, offset, contentLength);
+
+        if (session.isDirect()) {
+            throw new IllegalArgumentException("Direct uploads are sent to storage, not to this endpoint");
+        }
+        if (!UploadSession.STATUS_ACTIVE.equals(session.getStatus())) {
+            throw new UploadSessionConflictException("Upload session is " + session.getStatus().toLowerCase());
+        }
+        if (session.getExpiresAt().isBefore(Instant.now())) {
+            throw new UploadSessionConflictException("Upload session has expired");
+        }
+        if (offset < 0 || offset >= session.getTotalSize() || offset % session.getChunkSize() != 0) {
+            throw new IllegalArgumentException("Offset must be a multiple of " + session.getChunkSize()
+                    + " below " + session.getTotalSize());
+        }
+        if (offset > session.getBytesReceived()) {
+            throw new UploadSessionConflictException("Expected offset " + session.getBytesReceived()
+                    + " but got " + offset);
+        }
+
+        long expectedLength = Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+        if (contentLength != expectedLength) {
+            throw new IllegalArgumentException("Chunk at offset " + offset + " must be " + expectedLength + " bytes");
+        }
+
+        int partNumber = Math.toIntExact(offset / session.getChunkSize()) + 1;
+        String eTag = storageService.uploadOriginalPart(session.getStorageKey(), session.getMultipartUploadId(),
+                partNumber, content, contentLength);
+
+        int updated = uploadSessionRepository.recordChunk(sessionId, Instant.now(), offset, offset + contentLength,
+                partNumber, eTag, nextExpiry());
+        if (updated == 0) {
+            throw new UploadSessionConflictException("Upload session changed while the chunk was stored");
+        }
+
+        return getSession(sessionId, currentUserId);
+    }
+
+    /**
+     * Assembles the uploaded parts and records the photos. Completing an already completed session returns
+     * the photos created the first time.
+     */
+    public List<UploadedPhoto> completeSession(UUID sessionId, UUID currentUserId) {
+        UploadSession session = getSession(sessionId, currentUserId);
+
+        if (session.isDirect()) {
+            throw new IllegalArgumentException("Direct uploads are completed through the direct upload endpoint");
+        }
+        if (UploadSession.STATUS_COMPLETED.equals(session.getStatus())) {
+            return photoRepository.findAllById(session.getPhotoIds()).stream()
+                    .map(photo -> UploadedPhoto.builder().photo(photo).build())
+                    .toList();
+        }
+        if (!session.isComplete()) {
+            throw new UploadSessionConflictException("Upload incomplete: received " + session.getBytesReceived()
+                    + " of " + session.getTotalSize() + " bytes");
+        }
+        UUID completionToken = UUID.randomUUID();
+        if (uploadSessionRepository.claimForCompletion(sessionId, completionToken,
+                Instant.now().minus(COMPLETION_TIMEOUT)) == 0) {
+            throw new UploadSessionConflictException("Upload session is already being completed");
+        }
+
+        List<UploadedPhoto> photos;
+        completing.put(sessionId, completionToken);
+        try {
+            photos = assemble(session, completionToken);
+        } catch (RuntimeException e) {
+            uploadSessionRepository.releaseCompletion(sessionId, completionToken);
+            throw e;
+        } finally {
+            completing.remove(sessionId);
+        }
+
+        log.info("Completed upload session {} with {} photos", sessionId, photos.size());
+        return photos;
+    }
+
+    public void abortSession(UUID sessionId, UUID currentUserId) {
+        UploadSession session = getSession(sessionId, currentUserId);
+
+        if (UploadSession.STATUS_COMPLETED.equals(session.getStatus())) {
+            throw new UploadSessionConflictException("Upload session is already completed");
+        }
+        // Deleting first keeps a concurrent completion from claiming the parts that are aborted below
+        if (uploadSessionRepository.deleteActive(sessionId) == 0) {
+            throw new UploadSessionConflictException("Upload session is being completed");
+        }
+
+        discardUpload(session);
+        log.info("Aborted upload session {}", sessionId);
+    }
+
+    /**
+     * Assembling a large archive can outlast the completion timeout, so the claims are renewed for as long as
+     * this node works on them instead of sizing the timeout for the worst case.
+     */
+    @Scheduled(fixedDelayString = "${upload.resumable.completion-renew-interval:PT1M}")
+    public void renewCompletions() {
+        completing.forEach((sessionId, completionToken) -> {
+            if (uploadSessionRepository.renewCompletion(sessionId, completionToken) == 0) {
+                log.warn("Lost the completion claim of upload session {}", sessionId);
+            }
+        });
+    }
+
+    /**
+     * Runs on every node; each one locks its own batch of expired sessions, so none is discarded twice.
+     */
+    @Scheduled(fixedDelayString = "${upload.resumable.cleanup-interval:PT1H}")
+    @Transactional
+    public void removeExpiredSessions() {
+        Instant now = Instant.now();
+        List<UploadSession> expired = uploadSessionRepository.lockExpired(now, now.minus(COMPLETION_TIMEOUT),
+                CLEANUP_BATCH_SIZE);
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        log.info("Removing {} expired upload sessions", expired.size());
+        for (UploadSession session : expired) {
+            if (!UploadSession.STATUS_COMPLETED.equals(session.getStatus())) {
+                discardUpload(session);
+            }
+        }
+        uploadSessionRepository.deleteAll(expired);
+    }
+
+    private List<UploadedPhoto> assemble(UploadSession session, UUID completionToken) {
+        // A previous attempt may have assembled the object before it died
+        if (storageService.statOriginal(session.getStorageKey()).isEmpty()) {
+            Map<Integer, String> parts = new HashMap<>();
+            session.getParts().forEach((partNumber, eTag) -> parts.put(Integer.parseInt(partNumber), eTag));
+            storageService.completeOriginalMultipartUpload(session.getStorageKey(), session.getMultipartUploadId(),
+                    parts);
+        }
+
+        if (!photoUploadService.isZipFile(session.getOriginalFilename())) {
+            StagedPhoto stagedPhoto = StagedPhoto.builder()
+                    .photoId(session.getPhotoId())
+                    .storageKey(session.getStorageKey())
+                    .originalFilename(session.getOriginalFilename())
+                    .mimeType(session.getMimeType())
+                    .fileSize(session.getTotalSize())
+                    .metadata(photoMetadataReader.readStoredOriginal(session.getStorageKey()))
+                    .build();
+            return photoRegistrationService.completeUploadSession(session.getId(), completionToken,
+                    List.of(stagedPhoto));
+        }
+
+        List<StagedPhoto> stagedPhotos = photoUploadService.stageZipObject(session.getOwnerId(),
+                session.getStorageKey());
+        List<UploadedPhoto> photos;
+        try {
+            photos = photoRegistrationService.completeUploadSession(session.getId(), completionToken, stagedPhotos);
+        } catch (RuntimeException e) {
+            photoUploadService.discardStagedPhotos(stagedPhotos);
+            throw e;
+        }
+
+        // The archive has been unpacked into individual originals
+        try {
+            storageService.deleteOriginal(session.getStorageKey());
+        } catch (Exception e) {
+            log.error("Failed to delete uploaded ZIP archive: {}", session.getStorageKey(), e);
+        }
+        return photos;
+    }
+
+    private void discardUpload(UploadSession session) {
+        if (session.getMultipartUploadId() != null) {
+            storageService.abortOriginalMultipartUpload(session.getStorageKey(), session.getMultipartUploadId());
+            return;
+        }
+
+        // A direct single PUT may or may not have happened
+        try {
+            storageService.deleteOriginal(session.getStorageKey());
+        } catch (Exception e) {
+            log.error("Failed to delete abandoned upload: {}", session.getStorageKey(), e);
+        }
+    }
+
+    private Instant nextExpiry() {
+        return Instant.now().plus(uploadProperties.getResumable().getSessionTtl());
+    }
+
+    public static class UploadSessionConflictException extends RuntimeException {
+        public UploadSessionConflictException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package cc.remer.photobook.usecase;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * An original that has been written to storage but is not yet recorded in the database, or a file whose
+ * content matches a photo the owner already has. Duplicates have no storage object of their own.
+ */
+@Getter
+@Builder
+public class StagedPhoto {
+
+    private final UUID photoId;
+    private final String storageKey;
+    private final String originalFilename;
+    private final String mimeType;
+    private final long fileSize;
+    private final String contentHash;
+    private final UUID duplicateOf;
+    // Read from the header while storing, EMPTY for duplicates
+    @Builder.Default
+    private final PhotoMetadata metadata = PhotoMetadata.EMPTY;
+
+    public boolean isDuplicate() {
+        return duplicateOf != null;
+    }
+}
@@ -0,0 +1,19 @@
+package cc.remer.photobook.usecase;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Uploaded files read straight from the request body. Every file can only be consumed once,
+ * in request order, while the handler is running.
+ */
+@FunctionalInterface
+public interface StreamingUploadSource {
+
+    void forEachFile(FileHandler handler) throws IOException;
+
+    @FunctionalInterface
+    interface FileHandler {
+        void handle(String filename, String contentType, InputStream content) throws IOException;
+    }
+}
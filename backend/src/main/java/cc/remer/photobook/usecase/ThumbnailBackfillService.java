@@ -0,0 +1,161 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.persistence.PhotoRepository;
+import cc.remer.photobook.adapter.persistence.PhotoThumbnailRepository;
+import cc.remer.photobook.adapter.persistence.ThumbnailBackfillRepository;
+import cc.remer.photobook.adapter.persistence.ThumbnailJobRepository;
+import cc.remer.photobook.config.ThumbnailBackfillProperties;
+import cc.remer.photobook.domain.ThumbnailBackfill;
+import cc.remer.photobook.domain.ThumbnailJob;
+import cc.remer.photobook.usecase.AlbumService.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Brings the thumbnails of existing photos up to date after the sizes or quality changed. A backfill walks the
+ * READY photos in id order, one batch per interval on whichever node gets the lock, and enqueues those whose
+ * thumbnails are missing or were generated with other presets, or that have no placeholder, as low priority
+ * thumbnail jobs. The checkpoint
+ * is stored with every batch. Enqueueing is limited to the configured rate and pauses while too many backfill
+ * jobs are waiting, so uploads are never queued behind a backfill.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ThumbnailBackfillService {
+
+    // Sorts before every other id in PostgreSQL's UUID order
+    private static final UUID FIRST_PHOTO_ID = new UUID(0, 0);
+
+    private final ThumbnailBackfillRepository backfillRepository;
+    private final ThumbnailJobRepository thumbnailJobRepository;
+    private final PhotoRepository photoRepository;
+    private final PhotoThumbnailRepository photoThumbnailRepository;
+    private final ThumbnailPresets presets;
+    private final ThumbnailBackfillProperties properties;
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @Transactional
+    public ThumbnailBackfill startBackfill(UUID currentUserId) {
+        if (backfillRepository.existsByStatus(ThumbnailBackfill.STATUS_RUNNING)) {
+            throw new BackfillConflictException("A thumbnail backfill is already running");
+        }
+
+        ThumbnailBackfill backfill;
+        try {
+            backfill = backfillRepository.saveAndFlush(ThumbnailBackfill.builder()
+                    .presets(String.join(",", presets.variants()))
+                    .createdBy(currentUserId)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            throw new BackfillConflictException("A thumbnail backfill is already running");
+        }
+
+        log.info("Thumbnail backfill {} started by user {} for presets {}", backfill.getId(), currentUserId,
+                backfill.getPresets());
+        return backfill;
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @Transactional(readOnly = true)
+    public ThumbnailBackfill getBackfill(UUID backfillId) {
+        return backfillRepository.findById(backfillId)
+                .orElseThrow(() -> new ResourceNotFoundException("Thumbnail backfill not found"));
+    }
+
+    /**
+     * Stops enqueueing further photos. Jobs that were already enqueued still run.
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @Transactional
+    public ThumbnailBackfill cancelBackfill(UUID backfillId) {
+        ThumbnailBackfill backfill = backfillRepository.findById(backfillId)
+                .orElseThrow(() -> new ResourceNotFoundException("Thumbnail backfill not found"));
+
+        if (!backfill.isRunning()) {
+            throw new BackfillConflictException("Thumbnail backfill is already " + backfill.getStatus().toLowerCase());
+        }
+
+        backfill.setStatus(ThumbnailBackfill.STATUS_CANCELLED);
+        backfill.setCompletedAt(Instant.now());
+        log.info("Thumbnail backfill {} cancelled after {} photos", backfillId, backfill.getPhotosScanned());
+        return backfill;
+    }
+
+    /**
+     * Checks the next batch of photos of the running backfill and moves its checkpoint past them.
+     */
+    @Scheduled(fixedDelayString = "${thumbnail.backfill.batch-interval:PT5S}")
+    @Transactional
+    public void processBatch() {
+        Optional<ThumbnailBackfill> running = backfillRepository.lockRunning();
+        if (running.isEmpty()) {
+            return;
+        }
+        ThumbnailBackfill backfill = running.get();
+
+        long queued = thumbnailJobRepository.countByPriorityAndStatusNot(ThumbnailJob.PRIORITY_BACKFILL,
+                ThumbnailJob.STATUS_FAILED);
+        long limit = Math.min(properties.getMaxQueued() - queued, batchRate());
+        if (limit <= 0) {
+            log.debug("Thumbnail backfill {} waits for {} queued jobs", backfill.getId(), queued);
+            return;
+        }
+
+        UUID after = backfill.getLastPhotoId() != null ? backfill.getLastPhotoId() : FIRST_PHOTO_ID;
+        List<UUID> photoIds = photoRepository.findReadyIdsAfter(after, properties.getScanBatchSize());
+        if (photoIds.isEmpty()) {
+            backfill.setStatus(ThumbnailBackfill.STATUS_COMPLETED);
+            backfill.setCompletedAt(Instant.now());
+            log.info("Thumbnail backfill {} completed: {} photos checked, {} enqueued", backfill.getId(),
+                    backfill.getPhotosScanned(), backfill.getPhotosEnqueued());
+            return;
+        }
+
+        List<String> variants = presets.variants();
+        Set<UUID> upToDate = new HashSet<>(
+                photoThumbnailRepository.findUpToDatePhotoIds(photoIds, variants, variants.size()));
+
+        // The checkpoint only moves past the photos that were handled, the rest are checked again next time
+        List<UUID> outdated = new ArrayList<>();
+        UUID checkpoint = after;
+        int scanned = 0;
+        for (UUID photoId : photoIds) {
+            if (!upToDate.contains(photoId)) {
+                if (outdated.size() == limit) {
+                    break;
+                }
+                outdated.add(photoId);
+            }
+            checkpoint = photoId;
+            scanned++;
+        }
+
+        int enqueued = outdated.isEmpty() ? 0
+                : thumbnailJobRepository.enqueueExisting(outdated, ThumbnailJob.PRIORITY_BACKFILL);
+
+        backfill.setLastPhotoId(checkpoint);
+        backfill.setPhotosScanned(backfill.getPhotosScanned() + scanned);
+        backfill.setPhotosEnqueued(backfill.getPhotosEnqueued() + enqueued);
+        log.debug("Thumbnail backfill {} checked {} photos up to {}, enqueued {}", backfill.getId(), scanned,
+                checkpoint, enqueued);
+    }
+
+    private long batchRate() {
+        return Math.max(1, properties.getRate() * properties.getBatchInterval().toMillis() / 1000);
+    }
+
+    public static class BackfillConflictException extends RuntimeException {
+        public BackfillConflictException(String message) {
+            super(message);
+        }
+    }
+}
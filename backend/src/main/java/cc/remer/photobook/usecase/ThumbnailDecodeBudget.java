@@ -0,0 +1,145 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.config.ThumbnailDecodeProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the heap that concurrent thumbnail decodes may use. Each decode is charged its estimated raster size
+ * before it starts, so many small images run side by side while a few panoramas take turns. Images above the
+ * pixel limit are rejected before anything is decoded, and a decode that cannot get its budget within the queue
+ * timeout fails, so its job is retried later instead of blocking a pipeline thread indefinitely.
+ */
+@Slf4j
+@Component
+public class ThumbnailDecodeBudget {
+
+    private final InFlightBytesLimiter limiter;
+    private final long maxPixels;
+    private final Duration queueTimeout;
+
+    private final Counter rejectedCounter;
+    private final Counter timedOutCounter;
+    private final Timer waitTimer;
+
+    public ThumbnailDecodeBudget(ThumbnailDecodeProperties properties, MeterRegistry meterRegistry) {
+        long heapBudget = properties.getHeapBudget().toBytes();
+        this.limiter = new InFlightBytesLimiter(heapBudget > 0 ? heapBudget : Runtime.getRuntime().maxMemory() / 4);
+        this.maxPixels = properties.getMaxPixels();
+        this.queueTimeout = properties.getQueueTimeout();
+        log.info("Thumbnail decode budget: {} bytes, at most {} pixels per image", limiter.getLimit(), maxPixels);
+
+        Gauge.builder("photobook.thumbnail.decode.budget.used", limiter, InFlightBytesLimiter::getInFlightBytes)
+                .description("Estimated bytes of images currently being decoded")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("photobook.thumbnail.decode.budget.limit", limiter, InFlightBytesLimiter::getLimit)
+                .description("Estimated bytes that may be decoded at once")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("photobook.thumbnail.decode.waiting", limiter, InFlightBytesLimiter::getWaiting)
+                .description("Thumbnail decodes waiting for budget")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("photobook.thumbnail.decode.rejected")
+                .description("Images rejected for exceeding the pixel limit")
+                .register(meterRegistry);
+        this.timedOutCounter = Counter.builder("photobook.thumbnail.decode.timed-out")
+                .description("Decodes that gave up waiting for budget")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("photobook.thumbnail.decode.wait")
+                .description("Time thumbnail decodes waited for budget")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits up to the configured queue timeout until the estimated bytes fit into the budget.
+     */
+    public Lease admit(UUID photoId, int width, int height, long estimatedBytes) {
+        return admit(photoId, width, height, estimatedBytes, queueTimeout);
+    }
+
+    /**
+     * Waits up to the given timeout until the estimated bytes fit into the budget. A decode larger than the
+     * whole budget is charged at the budget, so it still runs once nothing else is being decoded.
+     */
+    public Lease admit(UUID photoId, int width, int height, long estimatedBytes, Duration timeout) {
+        if ((long) width * height > maxPixels) {
+            rejectedCounter.increment();
+            throw new ImageTooLargeException("Image of " + width + "x" + height + " pixels exceeds the limit of "
+                    + maxPixels + " pixels");
+        }
+
+        long start = System.nanoTime();
+        long bytes;
+        try {
+            bytes = limiter.acquire(null, estimatedBytes, timeout.toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for decode budget", e);
+        }
+        if (bytes < 0) {
+            timedOutCounter.increment();
+            throw new DecodeBudgetExhaustedException("Photo " + photoId + " waited " + timeout + " for "
+                    + limiter.charge(estimatedBytes) + " bytes of decode budget, " + limiter.getInFlightBytes()
+                    + " in use", timeout);
+        }
+
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Lease(bytes);
+    }
+
+    /**
+     * Admitted budget, returned when closed. Closing twice is harmless.
+     */
+    public class Lease implements AutoCloseable {
+
+        private final long bytes;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(long bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                limiter.release(null, bytes);
+            }
+        }
+    }
+
+    /**
+     * Too many large images are being decoded right now; retrying later will succeed.
+     */
+    public static class DecodeBudgetExhaustedException extends RuntimeException {
+        // How long the budget stayed exhausted, a retry any sooner is unlikely to fare better
+        private final Duration retryAfter;
+
+        public DecodeBudgetExhaustedException(String message, Duration retryAfter) {
+            super(message);
+            this.retryAfter = retryAfter;
+        }
+
+        public Duration getRetryAfter() {
+            return retryAfter;
+        }
+    }
+
+    /**
+     * The image can never be processed, so retrying is pointless.
+     */
+    public static class ImageTooLargeException extends RuntimeException {
+        public ImageTooLargeException(String message) {
+            super(message);
+        }
+    }
+}
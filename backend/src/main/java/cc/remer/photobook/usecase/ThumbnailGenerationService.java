@@ -1,215 +1,247 @@
 package cc.remer.photobook.usecase;
 
+import cc.remer.photobook.adapter.image.BlurHash;
 import cc.remer.photobook.adapter.persistence.PhotoRepository;
 import cc.remer.photobook.adapter.persistence.PhotoThumbnailRepository;
+import cc.remer.photobook.adapter.storage.LocalStagingArea;
 import cc.remer.photobook.adapter.storage.S3StorageService;
 import cc.remer.photobook.domain.Photo;
 import cc.remer.photobook.domain.PhotoThumbnail;
-import com.drew.imaging.ImageMetadataReader;
-import com.drew.metadata.Metadata;
-import com.drew.metadata.exif.ExifIFD0Directory;
-import com.drew.metadata.exif.ExifSubIFDDirectory;
-import com.drew.metadata.jpeg.JpegDirectory;
+import cc.remer.photobook.usecase.ThumbnailDecodeBudget.ImageTooLargeException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import net.coobird.thumbnailator.Thumbnails;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Generates the thumbnails of a photo in three steps that {@link ThumbnailWorker} runs as separate stages:
+ * {@link #fetch} provides the original as a local file, {@link #render} decodes, scales and encodes it, and
+ * {@link #store} puts the thumbnails to storage and records them in one short transaction, so a failed attempt
+ * leaves no rows behind and can simply be retried. Photos that are already READY only get the sizes that are
+ * missing or were generated with other presets. The BlurHash placeholder is computed from the smallest thumbnail.
+ * Very large originals also get a Deep Zoom tile pyramid from {@link TilePyramidService}, built after the
+ * thumbnails from strips of the same local file.
+ * Nothing here is transactional, since waiting for decode budget must not hold a database connection.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ThumbnailGenerationService {
 
     private final S3StorageService storageService;
+    private final LocalStagingArea stagingArea;
+    private final ThumbnailScaler thumbnailScaler;
+    private final ThumbnailDecodeBudget decodeBudget;
     private final PhotoRepository photoRepository;
-    private final PhotoThumbnailRepository thumbnailRepository;
-
-    @Value("${thumbnail.sizes.small}")
-    private int smallSize;
-
-    @Value("${thumbnail.sizes.medium}")
-    private int mediumSize;
+    private final PhotoRegistrationService photoRegistrationService;
+    private final PhotoThumbnailRepository photoThumbnailRepository;
+    private final PhotoMetadataReader photoMetadataReader;
+    private final ThumbnailPresets presets;
+    private final TilePyramidService tilePyramidService;
+    private final Executor thumbnailUploadExecutor;
+
+    /**
+     * Blocking I/O. Returns empty if the thumbnails of the photo are up to date.
+     */
+    public Optional<FetchedOriginal> fetch(UUID photoId) {
+        Photo photo = photoRepository.findById(photoId)
+                .orElseThrow(() -> new IllegalArgumentException("Photo not found: " + photoId));
 
-    @Value("${thumbnail.sizes.large}")
-    private int largeSize;
+        Map<String, Integer> sizes = outdatedSizes(photo);
+        boolean tiles = tilePyramidService.isMissing(photo);
+        if (sizes.isEmpty() && !tiles) {
+            log.debug("Thumbnails of photo {} are up to date", photoId);
+            stagingArea.remove(photoId);
+            return Optional.empty();
+        }
 
-    @Value("${thumbnail.quality}")
-    private double quality;
+        // Prefer the local copy left by the upload, storage only has to serve restarts and other nodes.
+        // Either way the original is read from a file, never buffered on the heap. The staged copy is read
+        // through a link of this job's own, so it may expire while the job waits in the pipeline.
+        Optional<Path> staged = stagingArea.link(photoId);
+        if (staged.isPresent()) {
+            log.debug("Reading staged original of photo: {}", photoId);
+            return Optional.of(new FetchedOriginal(photo, sizes, tiles, staged.get()));
+        }
 
-    @Async
-    @Transactional
-    public void generateThumbnailsAsync(UUID photoId) {
+        Path download = null;
         try {
-            log.info("Starting async thumbnail generation for photo: {}", photoId);
-            generateThumbnails(photoId);
-            log.info("Completed async thumbnail generation for photo: {}", photoId);
-        } catch (Exception e) {
-            log.error("Failed to generate thumbnails for photo: {}", photoId, e);
-
-            Photo photo = photoRepository.findById(photoId).orElse(null);
-            if (photo != null) {
-                photo.setStatus("FAILED");
-                photoRepository.save(photo);
+            download = Files.createTempFile("photobook-thumbnail-", ".tmp");
+            try (InputStream originalStream = storageService.downloadOriginal(photo.getStorageKey())) {
+                Files.copy(originalStream, download, StandardCopyOption.REPLACE_EXISTING);
             }
+            return Optional.of(new FetchedOriginal(photo, sizes, tiles, download));
+        } catch (Exception e) {
+            deleteQuietly(download);
+            throw new RuntimeException("Failed to fetch original", e);
         }
     }
 
-    @Transactional
-    public void generateThumbnails(UUID photoId) {
-        Photo photo = photoRepository.findById(photoId)
-                .orElseThrow(() -> new IllegalArgumentException("Photo not found: " + photoId));
-
+    /**
+     * CPU bound, apart from waiting for decode budget. The original is no longer needed afterwards.
+     */
+    public RenderedThumbnails render(FetchedOriginal fetched) {
+        Photo photo = fetched.photo();
         try {
-            log.debug("Generating thumbnails for photo: {}", photoId);
+            log.debug("Generating thumbnails for photo: {}", photo.getId());
+            ThumbnailScaler.ImageHeader header = thumbnailScaler.readHeader(fetched.path());
+
+            // Cascaded: the largest size from the decoded image, each smaller one from the next larger
+            Map<String, BufferedImage> images = Map.of();
+            if (!fetched.sizes().isEmpty()) {
+                int largestSize = Collections.max(fetched.sizes().values());
+                try (ThumbnailDecodeBudget.Lease lease = decodeBudget.admit(photo.getId(), header.width(),
+                        header.height(), ThumbnailScaler.estimateDecodeBytes(header, largestSize))) {
+                    images = thumbnailScaler.scaleReusing(thumbnailScaler.decode(fetched.path(), largestSize),
+                            fetched.sizes());
+                }
+            }
 
-            InputStream originalStream = storageService.downloadOriginal(photo.getStorageKey());
-            byte[] originalBytes = originalStream.readAllBytes();
+            BufferedImage smallest = images.get(presets.smallestSize());
+            String placeholder = smallest != null ? BlurHash.encode(smallest) : null;
 
-            BufferedImage originalImage = ImageIO.read(new ByteArrayInputStream(originalBytes));
-            if (originalImage == null) {
-                throw new IllegalArgumentException("Unable to read image file");
+            // Usually read from the header at upload time already
+            Map<String, Object> exifData = null;
+            if (photo.getExifData() == null) {
+                try (InputStream in = Files.newInputStream(fetched.path())) {
+                    exifData = photoMetadataReader.readExifData(in);
+                }
             }
 
-            Map<String, Object> exifData = extractExifData(new ByteArrayInputStream(originalBytes));
-            photo.setExifData(exifData);
-            photo.setWidth(originalImage.getWidth());
-            photo.setHeight(originalImage.getHeight());
-
-            generateAndStoreThumbnail(photo, originalImage, "SMALL", smallSize);
-            generateAndStoreThumbnail(photo, originalImage, "MEDIUM", mediumSize);
-            generateAndStoreThumbnail(photo, originalImage, "LARGE", largeSize);
+            // The scaled images are recycled by this thread's next photo, only the encoded bytes move on
+            List<EncodedThumbnail> encoded = new ArrayList<>(images.size());
+            for (Map.Entry<String, BufferedImage> image : images.entrySet()) {
+                byte[] bytes = thumbnailScaler.encodeJpeg(image.getValue(), presets.profile(image.getKey()));
+                encoded.add(new EncodedThumbnail(image.getKey(), image.getValue().getWidth(),
+                        image.getValue().getHeight(), bytes));
+            }
 
-            photo.setStatus("READY");
-            photoRepository.save(photo);
+            // Only encoded here, the store stage puts them to storage
+            TilePyramidService.EncodedTiles tiles = fetched.tiles()
+                    && tilePyramidService.isWanted(header.width(), header.height())
+                    ? tilePyramidService.build(photo, fetched.path(), header)
+                    : null;
 
-            log.debug("Successfully generated thumbnails for photo: {}", photoId);
+            return new RenderedThumbnails(photo, header.width(), header.height(), exifData, placeholder, encoded,
+                    tiles);
+        } catch (ImageTooLargeException e) {
+            throw e;
         } catch (Exception e) {
-            log.error("Failed to generate thumbnails for photo: {}", photoId, e);
-            photo.setStatus("FAILED");
-            photoRepository.save(photo);
+            // The job queue decides whether to retry or mark the photo as ERROR
             throw new RuntimeException("Failed to generate thumbnails", e);
+        } finally {
+            fetched.close();
         }
     }
 
-    private void generateAndStoreThumbnail(Photo photo, BufferedImage originalImage,
-                                          String sizeName, int maxSize) throws Exception {
-        log.debug("Generating {} thumbnail for photo: {}", sizeName, photo.getId());
+    /**
+     * Blocking I/O. The sizes are put to storage side by side, then recorded together.
+     */
+    public void store(RenderedThumbnails rendered) {
+        Photo photo = rendered.photo();
 
-        int width = originalImage.getWidth();
-        int height = originalImage.getHeight();
-
-        int targetWidth;
-        int targetHeight;
+        List<CompletableFuture<PhotoThumbnail>> uploads = rendered.thumbnails().stream()
+                .map(encoded -> CompletableFuture.supplyAsync(() -> upload(photo, encoded), thumbnailUploadExecutor))
+                .toList();
+        List<PhotoThumbnail> thumbnails = new ArrayList<>(uploads.size());
+        try {
+            CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).join();
+            uploads.forEach(upload -> thumbnails.add(upload.join()));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to store thumbnails", e);
+        }
+        if (rendered.tiles() != null) {
+            tilePyramidService.store(rendered.tiles());
+        }
 
-        if (width > height) {
-            targetWidth = maxSize;
-            targetHeight = (int) ((double) height / width * maxSize);
+        if (!photoRegistrationService.recordThumbnails(photo.getId(), rendered.width(), rendered.height(),
+                rendered.exifData(), rendered.placeholder(), thumbnails)) {
+            log.info("Photo {} was deleted while its thumbnails were generated", photo.getId());
+            deleteStoredThumbnails(thumbnails);
+            if (rendered.tiles() != null) {
+                tilePyramidService.deleteTiles(rendered.tiles().pyramid().getStoragePrefix());
+            }
         } else {
-            targetHeight = maxSize;
-            targetWidth = (int) ((double) width / height * maxSize);
+            if (rendered.tiles() != null) {
+                tilePyramidService.record(rendered.tiles().pyramid());
+            }
+            log.debug("Successfully generated thumbnails for photo: {}", photo.getId());
         }
 
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-
-        Thumbnails.of(originalImage)
-                .size(targetWidth, targetHeight)
-                .outputFormat("jpg")
-                .outputQuality(quality)
-                .toOutputStream(outputStream);
+        stagingArea.remove(photo.getId());
+    }
 
-        byte[] thumbnailBytes = outputStream.toByteArray();
+    private PhotoThumbnail upload(Photo photo, EncodedThumbnail encoded) {
+        log.debug("Storing {} thumbnail for photo: {}", encoded.sizeName(), photo.getId());
 
         String fileExtension = getFileExtension(photo.getOriginalFilename());
         String baseFilename = photo.getStorageKey().replace("." + fileExtension, "");
-        String thumbnailKey = baseFilename + "_" + sizeName.toLowerCase() + ".jpg";
+        String thumbnailKey = baseFilename + "_" + encoded.sizeName().toLowerCase() + ".jpg";
 
         storageService.uploadThumbnail(
                 thumbnailKey,
-                new ByteArrayInputStream(thumbnailBytes),
-                thumbnailBytes.length
+                new ByteArrayInputStream(encoded.bytes()),
+                encoded.bytes().length
         );
 
-        PhotoThumbnail thumbnail = PhotoThumbnail.builder()
+        return PhotoThumbnail.builder()
                 .photoId(photo.getId())
-                .size(sizeName)
+                .size(encoded.sizeName())
                 .storageKey(thumbnailKey)
-                .width(targetWidth)
-                .height(targetHeight)
-                .fileSize((long) thumbnailBytes.length)
+                .width(encoded.width())
+                .height(encoded.height())
+                .fileSize((long) encoded.bytes().length)
+                .preset(presets.preset(encoded.sizeName()))
                 .build();
-
-        thumbnailRepository.save(thumbnail);
-
-        log.debug("Successfully generated {} thumbnail for photo: {}", sizeName, photo.getId());
     }
 
-    private Map<String, Object> extractExifData(InputStream inputStream) {
-        Map<String, Object> exifData = new HashMap<>();
-
-        try {
-            Metadata metadata = ImageMetadataReader.readMetadata(inputStream);
+    private Map<String, Integer> outdatedSizes(Photo photo) {
+        if (!"READY".equals(photo.getStatus())) {
+            return presets.sizes();
+        }
 
-            ExifIFD0Directory exifIFD0 = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
-            if (exifIFD0 != null) {
-                if (exifIFD0.containsTag(ExifIFD0Directory.TAG_MAKE)) {
-                    exifData.put("make", exifIFD0.getString(ExifIFD0Directory.TAG_MAKE));
-                }
-                if (exifIFD0.containsTag(ExifIFD0Directory.TAG_MODEL)) {
-                    exifData.put("model", exifIFD0.getString(ExifIFD0Directory.TAG_MODEL));
-                }
-                if (exifIFD0.containsTag(ExifIFD0Directory.TAG_ORIENTATION)) {
-                    exifData.put("orientation", exifIFD0.getInteger(ExifIFD0Directory.TAG_ORIENTATION));
-                }
-            }
-
-            ExifSubIFDDirectory exifSubIFD = metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
-            if (exifSubIFD != null) {
-                if (exifSubIFD.containsTag(ExifSubIFDDirectory.TAG_DATETIME_ORIGINAL)) {
-                    Date date = exifSubIFD.getDate(ExifSubIFDDirectory.TAG_DATETIME_ORIGINAL);
-                    if (date != null) {
-                        exifData.put("dateTimeOriginal", date.toInstant().toString());
-                    }
-                }
-                if (exifSubIFD.containsTag(ExifSubIFDDirectory.TAG_EXPOSURE_TIME)) {
-                    exifData.put("exposureTime", exifSubIFD.getString(ExifSubIFDDirectory.TAG_EXPOSURE_TIME));
-                }
-                if (exifSubIFD.containsTag(ExifSubIFDDirectory.TAG_FNUMBER)) {
-                    exifData.put("fNumber", exifSubIFD.getString(ExifSubIFDDirectory.TAG_FNUMBER));
-                }
-                if (exifSubIFD.containsTag(ExifSubIFDDirectory.TAG_ISO_EQUIVALENT)) {
-                    exifData.put("iso", exifSubIFD.getInteger(ExifSubIFDDirectory.TAG_ISO_EQUIVALENT));
-                }
-                if (exifSubIFD.containsTag(ExifSubIFDDirectory.TAG_FOCAL_LENGTH)) {
-                    exifData.put("focalLength", exifSubIFD.getString(ExifSubIFDDirectory.TAG_FOCAL_LENGTH));
-                }
+        Map<String, Integer> outdated = new HashMap<>(presets.sizes());
+        for (PhotoThumbnail thumbnail : photoThumbnailRepository.findByPhotoId(photo.getId())) {
+            if (presets.isCurrent(thumbnail.getSize(), thumbnail.getPreset())) {
+                outdated.remove(thumbnail.getSize());
             }
+        }
+        // The placeholder is computed from the smallest thumbnail
+        if (photo.getPlaceholder() == null) {
+            outdated.put(presets.smallestSize(), presets.sizes().get(presets.smallestSize()));
+        }
+        return outdated;
+    }
 
-            JpegDirectory jpegDirectory = metadata.getFirstDirectoryOfType(JpegDirectory.class);
-            if (jpegDirectory != null) {
-                if (jpegDirectory.containsTag(JpegDirectory.TAG_IMAGE_WIDTH)) {
-                    exifData.put("imageWidth", jpegDirectory.getInteger(JpegDirectory.TAG_IMAGE_WIDTH));
-                }
-                if (jpegDirectory.containsTag(JpegDirectory.TAG_IMAGE_HEIGHT)) {
-                    exifData.put("imageHeight", jpegDirectory.getInteger(JpegDirectory.TAG_IMAGE_HEIGHT));
-                }
+    private void deleteStoredThumbnails(List<PhotoThumbnail> thumbnails) {
+        for (PhotoThumbnail thumbnail : thumbnails) {
+            try {
+                storageService.deleteThumbnail(thumbnail.getStorageKey());
+            } catch (Exception e) {
+                log.error("Failed to delete thumbnail from storage: {}", thumbnail.getStorageKey(), e);
             }
-
-            log.debug("Extracted EXIF data: {}", exifData);
-        } catch (Exception e) {
-            log.warn("Failed to extract EXIF data: {}", e.getMessage());
         }
+    }
 
-        return exifData;
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete temporary original: {}", path, e);
+        }
     }
 
     private String getFileExtension(String filename) {
@@ -219,4 +251,25 @@ public class ThumbnailGenerationService {
         }
         return "";
     }
+
+    /**
+     * The original of a photo as a local file of this job's own, either a link to the copy staged by the upload
+     * or a download. Closing deletes it.
+     */
+    public record FetchedOriginal(Photo photo, Map<String, Integer> sizes, boolean tiles, Path path)
+            implements AutoCloseable {
+
+        @Override
+        public void close() {
+            deleteQuietly(path);
+        }
+    }
+
+    public record EncodedThumbnail(String sizeName, int width, int height, byte[] bytes) {
+    }
+
+    public record RenderedThumbnails(Photo photo, int width, int height, Map<String, Object> exifData,
+                                     String placeholder, List<EncodedThumbnail> thumbnails,
+                                     TilePyramidService.EncodedTiles tiles) {
+    }
 }
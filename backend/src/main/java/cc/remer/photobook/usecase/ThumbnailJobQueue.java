@@ -0,0 +1,148 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.persistence.PhotoRepository;
+import cc.remer.photobook.adapter.persistence.ThumbnailJobRepository;
+import cc.remer.photobook.config.ThumbnailQueueProperties;
+import cc.remer.photobook.domain.ThumbnailJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The thumbnail job table. Jobs are written in the same transaction as their photos, claimed with
+ * {@code FOR UPDATE SKIP LOCKED} under a lease that the worker renews while it holds the job, and retried with
+ * exponential backoff until they run out of attempts, at which point a photo without thumbnails is marked as
+ * ERROR. Images that are too large to decode fail immediately. Only the node holding a job's lease can complete
+ * or fail it.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ThumbnailJobQueue {
+
+    private final ThumbnailJobRepository thumbnailJobRepository;
+    private final PhotoRepository photoRepository;
+    private final ThumbnailQueueProperties properties;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    /**
+     * Joins the caller's transaction, so a job exists exactly when its photo does.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Collection<UUID> photoIds) {
+        thumbnailJobRepository.saveAll(photoIds.stream()
+                .map(photoId -> ThumbnailJob.builder().photoId(photoId).build())
+                .toList());
+    }
+
+    @Transactional
+    public List<ThumbnailJob> claim(int limit) {
+        Instant now = Instant.now();
+        List<ThumbnailJob> claimed = new ArrayList<>();
+
+        for (ThumbnailJob job : thumbnailJobRepository.lockDueJobs(now, limit)) {
+            if (job.getAttempts() >= properties.getMaxAttempts()) {
+                // The lease of the last attempt expired, its node died while working on it
+                giveUp(job, "Lease of the last attempt expired on " + job.getLockedBy());
+                continue;
+            }
+
+            job.setStatus(ThumbnailJob.STATUS_RUNNING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setLockedBy(nodeId);
+            job.setLockedUntil(now.plus(properties.getLease()));
+            claimed.add(job);
+        }
+
+        return claimed;
+    }
+
+    /**
+     * Extends the leases of jobs this node is still working on. Returns how many it still held.
+     */
+    @Transactional
+    public int renew(Collection<UUID> jobIds) {
+        if (jobIds.isEmpty()) {
+            return 0;
+        }
+        int renewed = thumbnailJobRepository.renewLeases(jobIds, nodeId, Instant.now().plus(properties.getLease()));
+        if (renewed < jobIds.size()) {
+            log.warn("Lost the lease of {} of {} thumbnail jobs", jobIds.size() - renewed, jobIds.size());
+        }
+        return renewed;
+    }
+
+    @Transactional
+    public void complete(UUID jobId) {
+        if (thumbnailJobRepository.deleteClaimed(jobId, nodeId) == 0) {
+            // Deleted with its photo, or the lease expired and another node owns the job now
+            log.debug("Thumbnail job {} is no longer held by this node", jobId);
+        }
+    }
+
+    @Transactional
+    public void fail(UUID jobId, Exception error) {
+        // The photo, and with it the job, may have been deleted in the meantime, or another node took it over
+        thumbnailJobRepository.lockClaimed(jobId, nodeId).ifPresent(job -> {
+            job.setLockedBy(null);
+            job.setLockedUntil(null);
+
+            // Decompression bombs fail the same way on every attempt
+            if (job.getAttempts() >= properties.getMaxAttempts()
+                    || error instanceof ThumbnailDecodeBudget.ImageTooLargeException) {
+                giveUp(job, error.getMessage());
+                return;
+            }
+
+            Duration backoff = backoff(job.getAttempts());
+            log.warn("Thumbnail job for photo {} failed (attempt {} of {}), retrying in {}",
+                    job.getPhotoId(), job.getAttempts(), properties.getMaxAttempts(), backoff);
+            job.setStatus(ThumbnailJob.STATUS_PENDING);
+            job.setLastError(error.getMessage());
+            job.setRunAfter(Instant.now().plus(backoff));
+        });
+    }
+
+    /**
+     * Photos whose jobs were never written, e.g. uploads that predate the queue.
+     */
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOrphanedPhotos() {
+        int enqueued = thumbnailJobRepository.enqueueOrphanedPhotos();
+        if (enqueued > 0) {
+            log.info("Enqueued thumbnail jobs for {} orphaned processing photos", enqueued);
+        }
+    }
+
+    private void giveUp(ThumbnailJob job, String error) {
+        log.error("Giving up on thumbnails for photo {} after {} attempts: {}",
+                job.getPhotoId(), job.getAttempts(), error);
+        job.setStatus(ThumbnailJob.STATUS_FAILED);
+        job.setLastError(error);
+        job.setLockedBy(null);
+        job.setLockedUntil(null);
+        // A READY photo only failed a backfill, its previous thumbnails are still there
+        photoRepository.findById(job.getPhotoId())
+                .filter(photo -> !"READY".equals(photo.getStatus()))
+                .ifPresent(photo -> photo.setStatus("ERROR"));
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = properties.getRetryBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(properties.getMaxBackoff()) > 0 ? properties.getMaxBackoff() : backoff;
+    }
+}
@@ -0,0 +1,89 @@
+package cc.remer.photobook.usecase;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One stage of the thumbnail pipeline: at most {@code concurrency} tasks run at once and at most
+ * {@code queueCapacity} more wait for a turn. Submitting to a full stage blocks, so a slow stage holds up the
+ * stage before it instead of piling up work in memory.
+ */
+public class ThumbnailPipelineStage {
+
+    private final String name;
+    private final Executor executor;
+    private final Semaphore slots;
+    private final Semaphore workers;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Timer serviceTimer;
+
+    public ThumbnailPipelineStage(String name, Executor executor, int concurrency, int queueCapacity,
+                                  MeterRegistry meterRegistry) {
+        this.name = name;
+        this.executor = executor;
+        this.slots = new Semaphore(concurrency + queueCapacity);
+        this.workers = new Semaphore(concurrency);
+
+        Gauge.builder("photobook.thumbnail.stage.queued", queued, AtomicInteger::get)
+                .description("Thumbnail jobs waiting for the stage")
+                .tag("stage", name)
+                .register(meterRegistry);
+        Gauge.builder("photobook.thumbnail.stage.active", active, AtomicInteger::get)
+                .description("Thumbnail jobs being processed by the stage")
+                .tag("stage", name)
+                .register(meterRegistry);
+        this.serviceTimer = Timer.builder("photobook.thumbnail.stage.service")
+                .description("Time the stage spent on one thumbnail job")
+                .tag("stage", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Waits for room in the stage, then hands the task to it.
+     */
+    public void submit(Runnable task) {
+        slots.acquireUninterruptibly();
+        queued.incrementAndGet();
+        try {
+            executor.execute(() -> run(task));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Tasks that can be submitted without waiting.
+     */
+    public int available() {
+        return slots.availablePermits();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private void run(Runnable task) {
+        workers.acquireUninterruptibly();
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            serviceTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            active.decrementAndGet();
+            workers.release();
+            slots.release();
+        }
+    }
+}
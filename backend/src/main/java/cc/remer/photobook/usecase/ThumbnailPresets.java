@@ -0,0 +1,104 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.image.JpegProfile;
+import cc.remer.photobook.config.ThumbnailEncodingProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The configured thumbnail sizes, quality and encoder profiles. Every stored thumbnail records its preset, so
+ * thumbnails that were generated with other settings can be found and regenerated.
+ */
+@Component
+public class ThumbnailPresets {
+
+    private final Map<String, Integer> sizes;
+    private final double quality;
+    private final Map<String, JpegProfile> profiles;
+    private final JpegProfile renditionProfile;
+    private final JpegProfile tileProfile;
+
+    public ThumbnailPresets(@Value("${thumbnail.sizes.small}") int smallSize,
+                            @Value("${thumbnail.sizes.medium}") int mediumSize,
+                            @Value("${thumbnail.sizes.large}") int largeSize,
+                            @Value("${thumbnail.quality}") double quality,
+                            ThumbnailEncodingProperties encoding) {
+        this.sizes = Map.of("SMALL", smallSize, "MEDIUM", mediumSize, "LARGE", largeSize);
+        this.quality = quality;
+        this.profiles = Map.of(
+                "SMALL", profile(quality, encoding, encoding.getSmall()),
+                "MEDIUM", profile(quality, encoding, encoding.getMedium()),
+                "LARGE", profile(quality, encoding, encoding.getLarge()));
+        this.renditionProfile = profile(quality, encoding, encoding.getRenditions());
+        this.tileProfile = profile(quality, encoding, encoding.getTiles());
+    }
+
+    /**
+     * Max width and height per size name.
+     */
+    public Map<String, Integer> sizes() {
+        return sizes;
+    }
+
+    /**
+     * The size the placeholder is computed from.
+     */
+    public String smallestSize() {
+        return Collections.min(sizes.entrySet(), Map.Entry.comparingByValue()).getKey();
+    }
+
+    public double quality() {
+        return quality;
+    }
+
+    public JpegProfile profile(String sizeName) {
+        JpegProfile profile = profiles.get(sizeName);
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown thumbnail size: " + sizeName);
+        }
+        return profile;
+    }
+
+    public JpegProfile renditionProfile() {
+        return renditionProfile;
+    }
+
+    public JpegProfile tileProfile() {
+        return tileProfile;
+    }
+
+    /**
+     * The preset a thumbnail of the given size is generated with, e.g. {@code 800@0.85/prog-420-opt-strip}.
+     */
+    public String preset(String sizeName) {
+        Integer size = sizes.get(sizeName);
+        if (size == null) {
+            throw new IllegalArgumentException("Unknown thumbnail size: " + sizeName);
+        }
+        return size + "@" + quality + "/" + profile(sizeName).key();
+    }
+
+    /**
+     * Every current variant as {@code SIZE:preset}, e.g. {@code LARGE:800@0.85/prog-420-opt-strip}.
+     */
+    public List<String> variants() {
+        return sizes.keySet().stream()
+                .sorted()
+                .map(sizeName -> sizeName + ":" + preset(sizeName))
+                .toList();
+    }
+
+    public boolean isCurrent(String sizeName, String preset) {
+        return sizes.containsKey(sizeName) && preset(sizeName).equals(preset);
+    }
+
+    private static JpegProfile profile(double quality, ThumbnailEncodingProperties encoding,
+                                       ThumbnailEncodingProperties.Profile profile) {
+        return new JpegProfile(quality, profile.isProgressive(), encoding.isOptimizeHuffman(),
+                JpegProfile.ChromaSubsampling.fromValue(profile.getChromaSubsampling()), encoding.isStripMetadata());
+    }
+}
@@ -0,0 +1,214 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.image.ImageResizer;
+import cc.remer.photobook.adapter.image.JpegEncoder;
+import cc.remer.photobook.adapter.image.JpegProfile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decodes originals and scales them to all thumbnail sizes.
+ * <p>
+ * Decoding reads the dimensions from the header first and then only every n-th pixel, so a 50MP JPEG never
+ * materializes at full resolution. The sizes are produced as a cascade, largest first and each from the
+ * previous result, so even the subsampled raster is only read once.
+ * <p>
+ * Thumbnail rasters are recycled per thread and size, so the images returned by {@link #scaleReusing} are only
+ * valid until the same thread scales the next photo.
+ */
+@Component
+@RequiredArgsConstructor
+public class ThumbnailScaler {
+
+    // The decoded image keeps at least this multiple of the largest thumbnail, so the filtered
+    // downscale afterwards still smooths out the aliasing of point subsampling
+    private static final int DECODE_MARGIN = 2;
+
+    // Packed RGB rasters and the resizer's float planes both take 4 bytes per pixel
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final DirectColorModel RGB = new DirectColorModel(24, 0xFF0000, 0x00FF00, 0x0000FF);
+    private static final int[] RGB_MASKS = {0xFF0000, 0x00FF00, 0x0000FF};
+
+    private final ImageResizer imageResizer;
+    private final JpegEncoder jpegEncoder = new JpegEncoder();
+    private final ThreadLocal<Map<String, int[]>> thumbnailPixels = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * Reads the dimensions of an image without decoding any pixels.
+     */
+    public ImageHeader readHeader(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = reader(input);
+            try {
+                reader.setInput(input, true, true);
+                return new ImageHeader(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Estimates the heap used while decoding and scaling an image of the given size: the subsampled raster,
+     * the resizer's working plane of it and the thumbnails of the cascade.
+     */
+    public static long estimateDecodeBytes(ImageHeader header, int largestSize) {
+        int subsampling = subsampling(header.width(), header.height(), largestSize);
+        long decodedPixels = (long) Math.ceilDiv(header.width(), subsampling)
+                * Math.ceilDiv(header.height(), subsampling);
+        int[] largest = targetSize(header.width(), header.height(), largestSize);
+        long thumbnailPixels = 2L * largest[0] * largest[1];
+        return BYTES_PER_PIXEL * (2 * decodedPixels + thumbnailPixels);
+    }
+
+    public DecodedImage decode(Path file, int largestSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = reader(input);
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                int subsampling = subsampling(width, height, largestSize);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                return new DecodedImage(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodes the image at full resolution in strips of the given height, top to bottom, and hands each strip
+     * to the consumer as packed RGB. The pixel array is reused for the next strip. Readers cannot resume a
+     * strip where the previous one ended, so every strip decodes the image from the top again, only keeping
+     * its own rows.
+     */
+    public void readStrips(Path file, int stripHeight, StripConsumer consumer) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = reader(input);
+            try {
+                reader.setInput(input, false, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                int[] pixels = new int[width * Math.min(stripHeight, height)];
+                ImageReadParam param = reader.getDefaultReadParam();
+                for (int y = 0; y < height; y += stripHeight) {
+                    int rows = Math.min(stripHeight, height - y);
+                    param.setSourceRegion(new Rectangle(0, y, width, rows));
+                    BufferedImage strip = reader.read(0, param);
+                    strip.getRGB(0, 0, width, rows, pixels, 0, width);
+                    consumer.accept(pixels, rows);
+                }
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Returns one image per size name, largest first. Dimensions are always derived from the original,
+     * so they do not depend on subsampling or on rounding in the intermediate steps.
+     * <p>
+     * The images are backed by this thread's recycled rasters: the next call on the same thread overwrites
+     * them, so they have to be encoded or copied before that.
+     */
+    public Map<String, BufferedImage> scaleReusing(DecodedImage decoded, Map<String, Integer> maxSizes)
+            throws IOException {
+        Map<String, BufferedImage> thumbnails = new LinkedHashMap<>();
+        BufferedImage source = decoded.image();
+
+        for (Map.Entry<String, Integer> size : maxSizes.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()))
+                .toList()) {
+            int[] target = targetSize(decoded.width(), decoded.height(), size.getValue());
+            BufferedImage thumbnail = recycledImage(size.getKey(), target[0], target[1]);
+            imageResizer.resize(source, thumbnail);
+            thumbnails.put(size.getKey(), thumbnail);
+            source = thumbnail;
+        }
+
+        return thumbnails;
+    }
+
+    public byte[] encodeJpeg(BufferedImage image, double quality) throws IOException {
+        return jpegEncoder.encode(image, quality);
+    }
+
+    public byte[] encodeJpeg(BufferedImage image, JpegProfile profile) throws IOException {
+        return jpegEncoder.encode(image, profile);
+    }
+
+    // Wraps this thread's pixel array for the size; it only grows, photos of other aspect ratios reuse it
+    private BufferedImage recycledImage(String sizeName, int width, int height) {
+        int length = width * height;
+        int[] pixels = thumbnailPixels.get().get(sizeName);
+        if (pixels == null || pixels.length < length) {
+            pixels = new int[length];
+            thumbnailPixels.get().put(sizeName, pixels);
+        }
+
+        WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(pixels, length), width, height, width,
+                RGB_MASKS, null);
+        return new BufferedImage(RGB, raster, false, null);
+    }
+
+    private static ImageReader reader(ImageInputStream input) {
+        Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+        if (readers == null || !readers.hasNext()) {
+            throw new IllegalArgumentException("Unable to read image file");
+        }
+        return readers.next();
+    }
+
+    static int subsampling(int width, int height, int largestSize) {
+        return Math.max(1, Math.max(width, height) / (DECODE_MARGIN * largestSize));
+    }
+
+    static int[] targetSize(int width, int height, int maxSize) {
+        if (width > height) {
+            return new int[]{maxSize, Math.max(1, (int) ((double) height / width * maxSize))};
+        }
+        return new int[]{Math.max(1, (int) ((double) width / height * maxSize)), maxSize};
+    }
+
+    public record ImageHeader(int width, int height) {
+    }
+
+    @FunctionalInterface
+    public interface StripConsumer {
+        void accept(int[] pixels, int rows) throws IOException;
+    }
+
+    /**
+     * A decoded image together with the dimensions of the original it was subsampled from.
+     */
+    public record DecodedImage(BufferedImage image, int width, int height) {
+
+        public static DecodedImage of(BufferedImage image) {
+            return new DecodedImage(image, image.getWidth(), image.getHeight());
+        }
+    }
+}
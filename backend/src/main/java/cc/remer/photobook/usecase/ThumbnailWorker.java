@@ -0,0 +1,157 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.config.AsyncConfig;
+import cc.remer.photobook.config.ThumbnailPipelineProperties;
+import cc.remer.photobook.domain.ThumbnailJob;
+import cc.remer.photobook.usecase.ThumbnailGenerationService.FetchedOriginal;
+import cc.remer.photobook.usecase.ThumbnailGenerationService.RenderedThumbnails;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Drains the thumbnail job queue on this node through three stages: fetch downloads the original on virtual
+ * threads, process decodes, scales and encodes it on one thread per core, and store puts the thumbnails to
+ * storage and records them on virtual threads again. Every stage has a bounded queue and a full stage blocks the
+ * one before it, so only as many jobs are claimed as the fetch stage has room for and claimed jobs never pile up
+ * in memory where a restart would strand them until their lease expires. Memory is not limited by the thread
+ * count but by {@link ThumbnailDecodeBudget}.
+ * <p>
+ * Runs on every node unless {@code thumbnail.worker.enabled} is false, as with the {@code api} profile; the
+ * {@code worker} profile runs nothing else.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "thumbnail.worker.enabled", havingValue = "true", matchIfMissing = true)
+public class ThumbnailWorker {
+
+    private final ThumbnailJobQueue thumbnailJobQueue;
+    private final ThumbnailGenerationService thumbnailService;
+    private final ThumbnailPipelineStage fetchStage;
+    private final ThumbnailPipelineStage processStage;
+    private final ThumbnailPipelineStage storeStage;
+    // Claimed jobs from the fetch queue up to the store, whose leases are renewed
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ThumbnailWorker(ThumbnailJobQueue thumbnailJobQueue,
+                           ThumbnailGenerationService thumbnailService,
+                           ThumbnailPipelineProperties properties,
+                           @Qualifier("thumbnailFetchExecutor") Executor fetchExecutor,
+                           @Qualifier("thumbnailProcessExecutor") Executor processExecutor,
+                           @Qualifier("thumbnailStoreExecutor") Executor storeExecutor,
+                           @Value("${async.thread-pool-size:0}") int threadPoolSize,
+                           MeterRegistry meterRegistry) {
+        this.thumbnailJobQueue = thumbnailJobQueue;
+        this.thumbnailService = thumbnailService;
+        this.fetchStage = new ThumbnailPipelineStage("fetch", fetchExecutor, properties.getFetchConcurrency(),
+                properties.getQueueCapacity(), meterRegistry);
+        this.processStage = new ThumbnailPipelineStage("process", processExecutor,
+                AsyncConfig.thumbnailThreads(threadPoolSize), properties.getQueueCapacity(), meterRegistry);
+        this.storeStage = new ThumbnailPipelineStage("store", storeExecutor, properties.getStoreConcurrency(),
+                properties.getQueueCapacity(), meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${thumbnail.queue.poll-interval:PT1S}")
+    public void poll() {
+        // Only this method submits to the fetch stage, so the claimed jobs fit without waiting
+        int free = fetchStage.available();
+        if (free == 0) {
+            return;
+        }
+
+        List<ThumbnailJob> jobs = thumbnailJobQueue.claim(free);
+        for (ThumbnailJob job : jobs) {
+            inFlight.add(job.getId());
+            submit(fetchStage, job, () -> fetch(job));
+        }
+    }
+
+    /**
+     * Jobs can wait in the stage queues and a tile pyramid can take a while, so the leases are extended for as
+     * long as this node holds the jobs instead of sizing the lease for the worst case.
+     */
+    @Scheduled(fixedDelayString = "${thumbnail.queue.renew-interval:PT2M}")
+    public void renewLeases() {
+        thumbnailJobQueue.renew(List.copyOf(inFlight));
+    }
+
+    private void fetch(ThumbnailJob job) {
+        log.info("Generating thumbnails for photo {} (attempt {})", job.getPhotoId(), job.getAttempts());
+        Optional<FetchedOriginal> fetched;
+        try {
+            fetched = thumbnailService.fetch(job.getPhotoId());
+        } catch (Exception e) {
+            failed(job, e);
+            return;
+        }
+
+        if (fetched.isEmpty()) {
+            completed(job);
+            return;
+        }
+        if (!submit(processStage, job, () -> process(job, fetched.get()))) {
+            fetched.get().close();
+        }
+    }
+
+    private void process(ThumbnailJob job, FetchedOriginal fetched) {
+        RenderedThumbnails rendered;
+        try {
+            rendered = thumbnailService.render(fetched);
+        } catch (Exception e) {
+            failed(job, e);
+            return;
+        }
+
+        submit(storeStage, job, () -> store(job, rendered));
+    }
+
+    private void store(ThumbnailJob job, RenderedThumbnails rendered) {
+        try {
+            thumbnailService.store(rendered);
+            completed(job);
+        } catch (Exception e) {
+            failed(job, e);
+        }
+    }
+
+    private boolean submit(ThumbnailPipelineStage stage, ThumbnailJob job, Runnable task) {
+        try {
+            // The job is about to wait in the stage's queue, and the scheduled renewal only runs every interval.
+            // Renewed before the hand-off, since the stage may complete the job before submit returns
+            if (stage != fetchStage) {
+                thumbnailJobQueue.renew(List.of(job.getId()));
+            }
+            stage.submit(task);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Failed to hand thumbnail job for photo {} to the {} stage", job.getPhotoId(), stage.getName(),
+                    e);
+            inFlight.remove(job.getId());
+            thumbnailJobQueue.fail(job.getId(), e);
+            return false;
+        }
+    }
+
+    private void completed(ThumbnailJob job) {
+        inFlight.remove(job.getId());
+        thumbnailJobQueue.complete(job.getId());
+    }
+
+    private void failed(ThumbnailJob job, Exception e) {
+        log.error("Failed to generate thumbnails for photo: {}", job.getPhotoId(), e);
+        inFlight.remove(job.getId());
+        thumbnailJobQueue.fail(job.getId(), e);
+    }
+}
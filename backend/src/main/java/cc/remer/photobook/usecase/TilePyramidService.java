@@ -0,0 +1,173 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.image.TilePyramid;
+import cc.remer.photobook.adapter.persistence.PhotoTilePyramidRepository;
+import cc.remer.photobook.adapter.storage.S3StorageService;
+import cc.remer.photobook.config.ThumbnailTileProperties;
+import cc.remer.photobook.domain.Photo;
+import cc.remer.photobook.domain.PhotoTilePyramid;
+import cc.remer.photobook.usecase.AlbumService.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Deep Zoom tile pyramids of very large originals, so the lightbox can zoom into a 100MP panorama without
+ * downloading it. The thumbnail pipeline's process stage builds and encodes the tiles from strips of the
+ * original, its store stage uploads them and records the pyramid once all of them are stored. Only the encoded
+ * tiles travel between the stages, a few megabytes even for a 100MP original, so the process stage never waits
+ * on storage while it holds decode budget. Long builds keep their job's lease through the worker's renewal.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TilePyramidService {
+
+    public static final String FORMAT = "jpeg";
+
+    // Packed RGB rasters take 4 bytes per pixel
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final PhotoService photoService;
+    private final PhotoTilePyramidRepository photoTilePyramidRepository;
+    private final S3StorageService storageService;
+    private final ThumbnailScaler thumbnailScaler;
+    private final ThumbnailDecodeBudget decodeBudget;
+    private final ThumbnailPresets presets;
+    private final ThumbnailTileProperties properties;
+    private final Executor thumbnailUploadExecutor;
+
+    public boolean isWanted(int width, int height) {
+        return properties.isEnabled() && (long) width * height >= properties.getMinPixels();
+    }
+
+    /**
+     * Whether the photo may still need a pyramid. Photos whose dimensions are not known yet are decided once
+     * the original's header has been read.
+     */
+    public boolean isMissing(Photo photo) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        if (photo.getWidth() != null && photo.getHeight() != null && !isWanted(photo.getWidth(), photo.getHeight())) {
+            return false;
+        }
+        return !photoTilePyramidRepository.existsById(photo.getId());
+    }
+
+    /**
+     * Builds and encodes the tiles of the original. Only a few strips of the image are on the heap at any time.
+     * The tiles still have to be {@linkplain #store stored} and the pyramid {@linkplain #record recorded}.
+     */
+    public EncodedTiles build(Photo photo, Path original, ThumbnailScaler.ImageHeader header) throws IOException {
+        int tileSize = properties.getTileSize();
+        int stripHeight = tileSize * properties.getStripTiles();
+        PhotoTilePyramid stored = PhotoTilePyramid.builder()
+                .photoId(photo.getId())
+                .storagePrefix(storagePrefix(photo))
+                .width(header.width())
+                .height(header.height())
+                .tileSize(tileSize)
+                .tileOverlap(0)
+                .format(FORMAT)
+                .build();
+
+        log.debug("Building tile pyramid of {}x{} for photo {}", header.width(), header.height(), photo.getId());
+        List<EncodedTile> tiles = new ArrayList<>();
+        TilePyramid pyramid = new TilePyramid(header.width(), header.height(), tileSize,
+                (level, column, row, tile) -> tiles.add(new EncodedTile(stored.tileKey(level, column, row),
+                        thumbnailScaler.encodeJpeg(tile, presets.tileProfile()))));
+
+        try (ThumbnailDecodeBudget.Lease lease = decodeBudget.admit(photo.getId(), header.width(), header.height(),
+                estimateBytes(header, stripHeight, tileSize))) {
+            thumbnailScaler.readStrips(original, stripHeight, pyramid::push);
+        }
+        if (!pyramid.isComplete()) {
+            throw new IOException("Original of photo " + photo.getId() + " ended before all rows were read");
+        }
+
+        log.info("Built {} tiles for photo {}", pyramid.getTileCount(), photo.getId());
+        stored.setTileCount(pyramid.getTileCount());
+        return new EncodedTiles(stored, tiles);
+    }
+
+    /**
+     * Blocking I/O. Puts the tiles to storage side by side. If any of them fails, the ones already stored are
+     * deleted again, so a retry starts from an empty prefix.
+     */
+    public void store(EncodedTiles encoded) {
+        List<CompletableFuture<Void>> uploads = encoded.tiles().stream()
+                .map(tile -> CompletableFuture.runAsync(() -> storageService.uploadThumbnail(tile.key(),
+                        new ByteArrayInputStream(tile.bytes()), tile.bytes().length), thumbnailUploadExecutor))
+                .toList();
+        try {
+            CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).join();
+        } catch (Exception e) {
+            // Let the remaining uploads finish first, so none of them lands after the cleanup
+            uploads.forEach(upload -> upload.exceptionally(failure -> null).join());
+            deleteTiles(encoded.pyramid().getStoragePrefix());
+            throw new RuntimeException("Failed to store tiles", e);
+        }
+    }
+
+    public void record(PhotoTilePyramid pyramid) {
+        photoTilePyramidRepository.save(pyramid);
+    }
+
+    public void deleteTiles(String storagePrefix) {
+        try {
+            storageService.deleteThumbnailsWithPrefix(storagePrefix);
+        } catch (Exception e) {
+            log.error("Failed to delete tiles from storage: {}", storagePrefix, e);
+        }
+    }
+
+    public PhotoTilePyramid getTilePyramid(UUID photoId, UUID currentUserId) {
+        // Checks access
+        photoService.getPhoto(photoId, currentUserId);
+
+        return photoTilePyramidRepository.findById(photoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Photo has no tiles"));
+    }
+
+    public InputStream getTile(UUID photoId, int level, int column, int row, UUID currentUserId) {
+        PhotoTilePyramid pyramid = getTilePyramid(photoId, currentUserId);
+        if (!pyramid.hasTile(level, column, row)) {
+            throw new ResourceNotFoundException("Tile not found");
+        }
+        return storageService.downloadThumbnail(pyramid.tileKey(level, column, row));
+    }
+
+    // A decoded strip, its packed copy and one row of tiles per level, which add up to about two
+    private static long estimateBytes(ThumbnailScaler.ImageHeader header, int stripHeight, int tileSize) {
+        long rows = Math.min(stripHeight, header.height());
+        return BYTES_PER_PIXEL * (long) header.width() * (2 * rows + 2L * tileSize);
+    }
+
+    // DZI convention: the tiles of image.jpg live in image_files/
+    private static String storagePrefix(Photo photo) {
+        String key = photo.getStorageKey();
+        int lastDot = key.lastIndexOf('.');
+        String base = lastDot > key.lastIndexOf('/') ? key.substring(0, lastDot) : key;
+        return base + "_files/";
+    }
+
+    public record EncodedTile(String key, byte[] bytes) {
+    }
+
+    /**
+     * A pyramid whose tiles are encoded but not stored yet.
+     */
+    public record EncodedTiles(PhotoTilePyramid pyramid, List<EncodedTile> tiles) {
+    }
+}
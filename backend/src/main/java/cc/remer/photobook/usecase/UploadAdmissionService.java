@@ -0,0 +1,119 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.config.UploadProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the upload bytes in flight, in total and per user. A request that does not fit waits for the queue
+ * timeout and is then rejected, so a burst of large imports degrades into 429s instead of exhausting memory,
+ * spool space and storage connections.
+ */
+@Slf4j
+@Service
+public class UploadAdmissionService {
+
+    private final UploadProperties.AdmissionConfig config;
+    private final InFlightBytesLimiter limiter;
+
+    private final Counter admittedCounter;
+    private final Counter rejectedCounter;
+    private final Timer waitTimer;
+
+    public UploadAdmissionService(UploadProperties uploadProperties, MeterRegistry meterRegistry) {
+        this.config = uploadProperties.getAdmission();
+        this.limiter = new InFlightBytesLimiter(config.getMaxInFlight().toBytes(),
+                config.getMaxInFlightPerUser().toBytes());
+
+        Gauge.builder("photobook.upload.inflight.bytes", limiter, InFlightBytesLimiter::getInFlightBytes)
+                .description("Upload bytes currently admitted")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("photobook.upload.inflight.limit", limiter, InFlightBytesLimiter::getLimit)
+                .description("Upload bytes that may be in flight at once")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("photobook.upload.inflight.users", limiter, InFlightBytesLimiter::getActiveKeys)
+                .description("Users with an admitted upload")
+                .register(meterRegistry);
+        Gauge.builder("photobook.upload.admission.waiting", limiter, InFlightBytesLimiter::getWaiting)
+                .description("Upload requests waiting for admission")
+                .register(meterRegistry);
+        this.admittedCounter = Counter.builder("photobook.upload.admission.admitted").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("photobook.upload.admission.rejected").register(meterRegistry);
+        this.waitTimer = Timer.builder("photobook.upload.admission.wait")
+                .description("Time upload requests waited for admission")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admits an upload of the given size, waiting up to the queue timeout. A request larger than a limit is
+     * charged at the limit, so it still gets through once nothing else is in flight.
+     */
+    public Permit admit(UUID userId, long requestedBytes) {
+        long start = System.nanoTime();
+        long bytes;
+        try {
+            bytes = limiter.acquire(userId, requestedBytes, config.getQueueTimeout().toNanos());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCounter.increment();
+            throw new UploadCapacityExceededException("Interrupted while waiting for upload capacity",
+                    config.getRetryAfter());
+        }
+        if (bytes < 0) {
+            rejectedCounter.increment();
+            log.warn("Rejecting upload of {} bytes by user {}: {} bytes in flight ({} by this user)",
+                    requestedBytes, userId, limiter.getInFlightBytes(), limiter.getInFlightBytes(userId));
+            throw new UploadCapacityExceededException("Too many uploads in progress, please retry later",
+                    config.getRetryAfter());
+        }
+
+        admittedCounter.increment();
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return new Permit(userId, bytes);
+    }
+
+    /**
+     * Admitted capacity, returned when closed. Closing twice is harmless.
+     */
+    public class Permit implements AutoCloseable {
+
+        private final UUID userId;
+        private final long bytes;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Permit(UUID userId, long bytes) {
+            this.userId = userId;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                limiter.release(userId, bytes);
+            }
+        }
+    }
+
+    @Getter
+    public static class UploadCapacityExceededException extends RuntimeException {
+
+        private final Duration retryAfter;
+
+        public UploadCapacityExceededException(String message, Duration retryAfter) {
+            super(message);
+            this.retryAfter = retryAfter;
+        }
+    }
+}
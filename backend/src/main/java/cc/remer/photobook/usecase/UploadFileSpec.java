@@ -0,0 +1,16 @@
+package cc.remer.photobook.usecase;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * A file the client announces before sending its bytes.
+ */
+@Getter
+@Builder
+public class UploadFileSpec {
+
+    private final String filename;
+    private final String contentType;
+    private final long size;
+}
@@ -0,0 +1,34 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.domain.UploadJob;
+import cc.remer.photobook.domain.UploadJobFile;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A snapshot of an upload job: its files and, per file, how many of the created photos have thumbnails.
+ */
+@Getter
+@Builder
+public class UploadJobProgress {
+
+    private final UploadJob job;
+    private final List<UploadJobFile> files;
+    private final Map<UUID, Long> thumbnailsReady;
+    private final Map<UUID, Long> thumbnailsPending;
+
+    public long getThumbnailsReady(UUID fileId) {
+        return thumbnailsReady.getOrDefault(fileId, 0L);
+    }
+
+    /**
+     * Nothing will change anymore: the job is finished and no thumbnail is still being generated.
+     */
+    public boolean isSettled() {
+        return job.isFinished() && thumbnailsPending.values().stream().allMatch(pending -> pending == 0);
+    }
+}
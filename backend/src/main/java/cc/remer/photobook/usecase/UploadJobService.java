@@ -0,0 +1,322 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.persistence.AlbumRepository;
+import cc.remer.photobook.adapter.persistence.PhotoRepository;
+import cc.remer.photobook.adapter.persistence.UploadJobFileRepository;
+import cc.remer.photobook.adapter.persistence.UploadJobRepository;
+import cc.remer.photobook.config.UploadProperties;
+import cc.remer.photobook.domain.Album;
+import cc.remer.photobook.domain.UploadJob;
+import cc.remer.photobook.domain.UploadJobFile;
+import cc.remer.photobook.usecase.AlbumService.ForbiddenException;
+import cc.remer.photobook.usecase.AlbumService.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Uploads that are processed in the background. Submitting only spools the files to local disk and returns
+ * the job; storing, deduplication and registration run on the upload job executor while the client follows
+ * the per-file progress.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UploadJobService {
+
+    private final UploadJobRepository uploadJobRepository;
+    private final UploadJobFileRepository uploadJobFileRepository;
+    private final AlbumRepository albumRepository;
+    private final PhotoRepository photoRepository;
+    private final AlbumService albumService;
+    private final PhotoUploadService photoUploadService;
+    private final PhotoRegistrationService photoRegistrationService;
+    private final UploadProperties uploadProperties;
+    private final Executor uploadJobExecutor;
+
+    public UploadJob submit(UUID albumId, List<MultipartFile> files, UUID currentUserId) {
+        log.debug("Submitting upload job with {} files to album: {} by user: {}", files.size(), albumId, currentUserId);
+
+        Album album = albumRepository.findById(albumId)
+                .orElseThrow(() -> new ResourceNotFoundException("Album not found"));
+        if (!albumService.isOwner(album, currentUserId)) {
+            throw new ForbiddenException("Only the album owner can upload photos");
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("At least one file is required");
+        }
+
+        UploadJob job = uploadJobRepository.save(UploadJob.builder()
+                .ownerId(currentUserId)
+                .albumId(albumId)
+                .status(UploadJob.STATUS_PENDING)
+                .build());
+
+        Path spoolDir = spoolDir(job.getId());
+        try {
+            Files.createDirectories(spoolDir);
+            List<UploadJobFile> jobFiles = new ArrayList<>(files.size());
+            for (int position = 0; position < files.size(); position++) {
+                MultipartFile file = files.get(position);
+                String filename = file.getOriginalFilename();
+                boolean supported = filename != null && !filename.isEmpty()
+                        && photoUploadService.isSupportedFile(filename);
+
+                // Spooled under the position, client supplied names never become paths
+                if (supported) {
+                    file.transferTo(spoolDir.resolve(spoolName(position)));
+                }
+                jobFiles.add(UploadJobFile.builder()
+                        .jobId(job.getId())
+                        .position(position)
+                        .filename(filename == null || filename.isEmpty() ? "unnamed" : filename)
+                        .contentType(file.getContentType())
+                        .fileSize(file.getSize())
+                        .status(supported ? UploadJobFile.STATUS_PENDING : UploadJobFile.STATUS_SKIPPED)
+                        .build());
+            }
+            uploadJobFileRepository.saveAll(jobFiles);
+        } catch (IOException | RuntimeException e) {
+            deleteSpoolDir(job.getId());
+            uploadJobRepository.deleteById(job.getId());
+            if (e instanceof IOException ioException) {
+                throw new UncheckedIOException("Failed to spool upload", ioException);
+            }
+            throw (RuntimeException) e;
+        }
+
+        UUID jobId = job.getId();
+        uploadJobExecutor.execute(() -> process(jobId));
+
+        log.info("Submitted upload job {} with {} files to album {}", jobId, files.size(), albumId);
+        return job;
+    }
+
+    public UploadJobProgress getProgress(UUID jobId, UUID currentUserId) {
+        UploadJob job = uploadJobRepository.findById(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload job not found"));
+        if (!job.getOwnerId().equals(currentUserId)) {
+            throw new ForbiddenException("You don't have access to this upload job");
+        }
+
+        Map<UUID, Long> ready = new HashMap<>();
+        Map<UUID, Long> pending = new HashMap<>();
+        for (PhotoRepository.ThumbnailProgress progress : photoRepository.findThumbnailProgressByUploadJobId(jobId)) {
+            ready.put(progress.getFileId(), progress.getReady());
+            pending.put(progress.getFileId(), progress.getPending());
+        }
+
+        return UploadJobProgress.builder()
+                .job(job)
+                .files(uploadJobFileRepository.findByJobIdOrderByPositionAsc(jobId))
+                .thumbnailsReady(ready)
+                .thumbnailsPending(pending)
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${upload.jobs.watchdog-interval:PT1M}")
+    public void failStaleJobs() {
+        int failed = uploadJobRepository.failStaleJobs(Instant.now().minus(uploadProperties.getJobs().getStaleAfter()));
+        if (failed > 0) {
+            log.warn("Failed {} upload jobs that stopped making progress", failed);
+        }
+        removeFinishedSpoolDirs();
+    }
+
+    /**
+     * Removes the spooled files of jobs that have finished or no longer exist. Jobs that ran on this node before
+     * a restart can never be processed anymore; their files go once the watchdog has failed them. Jobs that are
+     * still pending or running keep their files, the spool directory may be shared with nodes working on them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void removeFinishedSpoolDirs() {
+        Path root = Paths.get(uploadProperties.getJobs().getSpoolDir());
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        Set<UUID> jobIds = new HashSet<>();
+        try (Stream<Path> dirs = Files.list(root)) {
+            dirs.map(dir -> dir.getFileName().toString()).forEach(name -> {
+                try {
+                    jobIds.add(UUID.fromString(name));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Ignoring unexpected entry in upload job spool directory: {}", name);
+                }
+            });
+        } catch (IOException e) {
+            log.error("Failed to list upload job spool directory: {}", root, e);
+            return;
+        }
+        if (jobIds.isEmpty()) {
+            return;
+        }
+
+        Set<UUID> unfinished = new HashSet<>();
+        uploadJobRepository.findAllById(jobIds).forEach(job -> {
+            if (!job.isFinished()) {
+                unfinished.add(job.getId());
+            }
+        });
+        jobIds.removeAll(unfinished);
+        jobIds.forEach(this::deleteSpoolDir);
+        if (!jobIds.isEmpty()) {
+            log.info("Removed spooled files of {} finished upload jobs", jobIds.size());
+        }
+    }
+
+    void process(UUID jobId) {
+        UploadJob job = uploadJobRepository.findById(jobId).orElse(null);
+        if (job == null || !UploadJob.STATUS_PENDING.equals(job.getStatus())) {
+            deleteSpoolDir(jobId);
+            return;
+        }
+
+        log.info("Processing upload job {}", jobId);
+        job.setStatus(UploadJob.STATUS_RUNNING);
+        job = uploadJobRepository.save(job);
+
+        try {
+            for (UploadJobFile file : uploadJobFileRepository.findByJobIdOrderByPositionAsc(jobId)) {
+                if (UploadJobFile.STATUS_PENDING.equals(file.getStatus())) {
+                    processFile(job, file);
+                }
+            }
+            job.setStatus(UploadJob.STATUS_COMPLETED);
+        } catch (RuntimeException e) {
+            log.error("Upload job {} failed", jobId, e);
+            job.setStatus(UploadJob.STATUS_FAILED);
+            job.setErrorMessage(e.getMessage());
+        } finally {
+            deleteSpoolDir(jobId);
+        }
+
+        job.setCompletedAt(Instant.now());
+        uploadJobRepository.save(job);
+        log.info("Upload job {} finished with status {}", jobId, job.getStatus());
+    }
+
+    private void processFile(UploadJob job, UploadJobFile file) {
+        file.setStatus(UploadJobFile.STATUS_STORING);
+        file = uploadJobFileRepository.save(file);
+        uploadJobRepository.touch(job.getId());
+
+        Path spooled = spoolDir(job.getId()).resolve(spoolName(file.getPosition()));
+        ProgressTracker progress = new ProgressTracker(job.getId(), file.getId());
+        try {
+            List<StagedPhoto> stagedPhotos = photoUploadService.stageSpooledFile(job.getOwnerId(),
+                    file.getFilename(), file.getContentType(), spooled, progress);
+            List<UploadedPhoto> uploadedPhotos = register(job, file, stagedPhotos);
+
+            long deduplicated = uploadedPhotos.stream().filter(UploadedPhoto::isDeduplicated).count();
+            file.setPhotosCreated(Math.toIntExact(uploadedPhotos.size() - deduplicated));
+            file.setPhotosDeduplicated(Math.toIntExact(deduplicated));
+            file.setBytesStored(stagedPhotos.stream().mapToLong(StagedPhoto::getFileSize).sum());
+            file.setStatus(UploadJobFile.STATUS_DONE);
+        } catch (Exception e) {
+            log.error("Failed to process {} of upload job {}", file.getFilename(), job.getId(), e);
+            file.setBytesStored(progress.total());
+            file.setStatus(UploadJobFile.STATUS_FAILED);
+            file.setErrorMessage(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(spooled);
+            } catch (IOException e) {
+                log.warn("Failed to delete spooled file: {}", spooled, e);
+            }
+        }
+
+        uploadJobFileRepository.save(file);
+        uploadJobRepository.touch(job.getId());
+    }
+
+    private List<UploadedPhoto> register(UploadJob job, UploadJobFile file, List<StagedPhoto> stagedPhotos) {
+        if (stagedPhotos.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return photoRegistrationService.registerPhotos(job.getOwnerId(), job.getAlbumId(), stagedPhotos,
+                    file.getId());
+        } catch (RuntimeException e) {
+            photoUploadService.discardStagedPhotos(stagedPhotos);
+            throw e;
+        }
+    }
+
+    private Path spoolDir(UUID jobId) {
+        return Paths.get(uploadProperties.getJobs().getSpoolDir(), jobId.toString());
+    }
+
+    private static String spoolName(int position) {
+        return position + ".upload";
+    }
+
+    private void deleteSpoolDir(UUID jobId) {
+        try {
+            FileSystemUtils.deleteRecursively(spoolDir(jobId));
+        } catch (IOException e) {
+            log.warn("Failed to delete spool directory of upload job {}", jobId, e);
+        }
+    }
+
+    /**
+     * Counts stored bytes and writes them through at most once per progress interval, which doubles as the
+     * job's heartbeat. Hashed bytes only keep the heartbeat going. ZIP entries report from several workers at once.
+     */
+    private class ProgressTracker implements UploadProgressListener {
+
+        private final UUID jobId;
+        private final UUID fileId;
+        private final long intervalNanos = uploadProperties.getJobs().getProgressInterval().toNanos();
+        private final AtomicLong bytesStored = new AtomicLong();
+        private final AtomicLong lastFlush = new AtomicLong(System.nanoTime());
+
+        ProgressTracker(UUID jobId, UUID fileId) {
+            this.jobId = jobId;
+            this.fileId = fileId;
+        }
+
+        @Override
+        public void bytesStored(long bytes) {
+            long total = bytesStored.addAndGet(bytes);
+            if (isFlushDue()) {
+                uploadJobFileRepository.updateBytesStored(fileId, total);
+                uploadJobRepository.touch(jobId);
+            }
+        }
+
+        // Hashing a large archive can take longer than the watchdog allows without a single byte stored
+        @Override
+        public void bytesHashed(long bytes) {
+            if (isFlushDue()) {
+                uploadJobRepository.touch(jobId);
+            }
+        }
+
+        private boolean isFlushDue() {
+            long now = System.nanoTime();
+            long last = lastFlush.get();
+            return now - last >= intervalNanos && lastFlush.compareAndSet(last, now);
+        }
+
+        long total() {
+            return bytesStored.get();
+        }
+    }
+}
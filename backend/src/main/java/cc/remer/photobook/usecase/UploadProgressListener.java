@@ -0,0 +1,19 @@
+package cc.remer.photobook.usecase;
+
+/**
+ * Notified while originals are hashed and written to storage. May be called from several threads at once.
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+
+    UploadProgressListener NONE = bytes -> {
+    };
+
+    void bytesStored(long bytes);
+
+    /**
+     * Bytes read while hashing, before the original is stored or recognized as a duplicate.
+     */
+    default void bytesHashed(long bytes) {
+    }
+}
@@ -0,0 +1,17 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.domain.Photo;
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * The outcome of one uploaded file. A deduplicated file was not stored again; its photo is the one the owner
+ * already had, now linked into the target album.
+ */
+@Getter
+@Builder
+public class UploadedPhoto {
+
+    private final Photo photo;
+    private final boolean deduplicated;
+}
@@ -0,0 +1,17 @@
+-- Deep zoom tiles
+-- Version: 10
+-- Description: Deep Zoom (DZI) tile pyramids of very large originals, stored in the thumbnails bucket
+
+CREATE TABLE photo_tile_pyramids (
+    photo_id UUID PRIMARY KEY,
+    -- Tiles are stored as <prefix><level>/<column>_<row>.jpg
+    storage_prefix VARCHAR(500) NOT NULL,
+    width INTEGER NOT NULL,
+    height INTEGER NOT NULL,
+    tile_size INTEGER NOT NULL,
+    tile_overlap INTEGER NOT NULL,
+    format VARCHAR(10) NOT NULL,
+    tile_count INTEGER NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_tile_pyramids_photo FOREIGN KEY (photo_id) REFERENCES photos(id) ON DELETE CASCADE
+);
@@ -0,0 +1,21 @@
+-- Unique content hashes
+-- Version: 11
+-- Description: At most one linkable photo per owner and content, so concurrent uploads of the same file
+-- cannot both be stored. Photos in ERROR are never linked and may share their hash.
+
+-- Earlier duplicates stay as they are, only the oldest photo remains a de-duplication target
+UPDATE photos p
+SET content_hash = NULL
+WHERE p.content_hash IS NOT NULL
+  AND p.status <> 'ERROR'
+  AND EXISTS (SELECT 1
+              FROM photos q
+              WHERE q.owner_id = p.owner_id
+                AND q.content_hash = p.content_hash
+                AND q.status <> 'ERROR'
+                AND (q.created_at, q.id) < (p.created_at, p.id));
+
+DROP INDEX idx_photos_owner_content_hash;
+
+CREATE UNIQUE INDEX uk_photos_owner_content_hash ON photos(owner_id, content_hash)
+    WHERE content_hash IS NOT NULL AND status <> 'ERROR';
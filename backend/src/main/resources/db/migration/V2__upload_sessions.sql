@@ -0,0 +1,35 @@
+-- Resumable upload sessions
+-- Version: 2
+-- Description: Track chunked uploads that are assembled as S3 multipart uploads
+
+CREATE TABLE upload_sessions (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    owner_id UUID NOT NULL,
+    album_id UUID NOT NULL,
+    photo_id UUID NOT NULL,
+    original_filename VARCHAR(255) NOT NULL,
+    mime_type VARCHAR(100) NOT NULL,
+    total_size BIGINT NOT NULL,
+    chunk_size BIGINT NOT NULL,
+    storage_key VARCHAR(500) NOT NULL,
+    multipart_upload_id VARCHAR(1024) NOT NULL,
+    bytes_received BIGINT NOT NULL DEFAULT 0,
+    parts JSONB NOT NULL DEFAULT '{}',
+    photo_ids JSONB,
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE',
+    -- Identifies the completion attempt holding a COMPLETING session
+    completion_token UUID,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_upload_sessions_owner FOREIGN KEY (owner_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_upload_sessions_album FOREIGN KEY (album_id) REFERENCES albums(id) ON DELETE CASCADE,
+    CONSTRAINT chk_upload_session_status CHECK (status IN ('ACTIVE', 'COMPLETING', 'COMPLETED')),
+    CONSTRAINT chk_upload_session_progress CHECK (bytes_received >= 0 AND bytes_received <= total_size)
+);
+
+CREATE INDEX idx_upload_sessions_owner ON upload_sessions(owner_id);
+CREATE INDEX idx_upload_sessions_expires ON upload_sessions(expires_at);
+
+CREATE TRIGGER update_upload_sessions_updated_at BEFORE UPDATE ON upload_sessions
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
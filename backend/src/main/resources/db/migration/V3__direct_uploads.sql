@@ -0,0 +1,13 @@
+-- Direct-to-storage uploads
+-- Version: 3
+-- Description: Upload sessions whose bytes are PUT straight to storage via presigned URLs
+
+ALTER TABLE upload_sessions
+    ADD COLUMN upload_mode VARCHAR(20) NOT NULL DEFAULT 'CHUNKED',
+    ADD CONSTRAINT chk_upload_session_mode CHECK (upload_mode IN ('CHUNKED', 'DIRECT'));
+
+-- Small direct uploads are a single presigned PUT without a multipart upload
+ALTER TABLE upload_sessions
+    ALTER COLUMN multipart_upload_id DROP NOT NULL;
+
+CREATE INDEX idx_upload_sessions_album ON upload_sessions(album_id);
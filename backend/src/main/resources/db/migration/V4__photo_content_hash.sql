@@ -0,0 +1,8 @@
+-- Content-hash deduplication
+-- Version: 4
+-- Description: Store the SHA-256 of every original so re-uploads can be linked instead of stored again
+
+ALTER TABLE photos
+    ADD COLUMN content_hash VARCHAR(64);
+
+CREATE INDEX idx_photos_owner_content_hash ON photos(owner_id, content_hash) WHERE content_hash IS NOT NULL;
@@ -0,0 +1,49 @@
+-- Asynchronous upload jobs
+-- Version: 5
+-- Description: Track background imports and the progress of each of their files
+
+CREATE TABLE upload_jobs (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    owner_id UUID NOT NULL,
+    album_id UUID NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP,
+    CONSTRAINT fk_upload_jobs_owner FOREIGN KEY (owner_id) REFERENCES users(id) ON DELETE CASCADE,
+    CONSTRAINT fk_upload_jobs_album FOREIGN KEY (album_id) REFERENCES albums(id) ON DELETE CASCADE,
+    CONSTRAINT chk_upload_job_status CHECK (status IN ('PENDING', 'RUNNING', 'COMPLETED', 'FAILED'))
+);
+
+CREATE INDEX idx_upload_jobs_owner ON upload_jobs(owner_id);
+CREATE INDEX idx_upload_jobs_status ON upload_jobs(status, updated_at);
+
+CREATE TABLE upload_job_files (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    job_id UUID NOT NULL,
+    position INTEGER NOT NULL,
+    filename VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100),
+    file_size BIGINT NOT NULL,
+    bytes_stored BIGINT NOT NULL DEFAULT 0,
+    photos_created INTEGER NOT NULL DEFAULT 0,
+    photos_deduplicated INTEGER NOT NULL DEFAULT 0,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    error_message TEXT,
+    CONSTRAINT fk_upload_job_files_job FOREIGN KEY (job_id) REFERENCES upload_jobs(id) ON DELETE CASCADE,
+    CONSTRAINT chk_upload_job_file_status CHECK (status IN ('PENDING', 'STORING', 'DONE', 'SKIPPED', 'FAILED'))
+);
+
+CREATE INDEX idx_upload_job_files_job ON upload_job_files(job_id, position);
+
+-- Photos remember the job file they came from, so thumbnail progress can be reported per file
+ALTER TABLE photos
+    ADD COLUMN upload_job_file_id UUID,
+    ADD CONSTRAINT fk_photos_upload_job_file FOREIGN KEY (upload_job_file_id)
+        REFERENCES upload_job_files(id) ON DELETE SET NULL;
+
+CREATE INDEX idx_photos_upload_job_file ON photos(upload_job_file_id) WHERE upload_job_file_id IS NOT NULL;
+
+CREATE TRIGGER update_upload_jobs_updated_at BEFORE UPDATE ON upload_jobs
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
@@ -0,0 +1,30 @@
+-- Durable thumbnail job queue
+-- Version: 6
+-- Description: Thumbnail jobs are enqueued in the upload transaction and claimed by workers on any node
+
+CREATE TABLE thumbnail_jobs (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    photo_id UUID NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    run_after TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    locked_by VARCHAR(255),
+    locked_until TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_thumbnail_jobs_photo FOREIGN KEY (photo_id) REFERENCES photos(id) ON DELETE CASCADE,
+    CONSTRAINT uk_thumbnail_jobs_photo UNIQUE (photo_id),
+    CONSTRAINT chk_thumbnail_job_status CHECK (status IN ('PENDING', 'RUNNING', 'FAILED'))
+);
+
+-- Claiming scans due pending jobs and running jobs with an expired lease
+CREATE INDEX idx_thumbnail_jobs_pending ON thumbnail_jobs(run_after) WHERE status = 'PENDING';
+CREATE INDEX idx_thumbnail_jobs_running ON thumbnail_jobs(locked_until) WHERE status = 'RUNNING';
+
+CREATE TRIGGER update_thumbnail_jobs_updated_at BEFORE UPDATE ON thumbnail_jobs
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
+
+-- Photos that were waiting for the in-memory executor
+INSERT INTO thumbnail_jobs (photo_id)
+SELECT id FROM photos WHERE status = 'PROCESSING';
@@ -0,0 +1,34 @@
+-- Thumbnail presets and backfills
+-- Version: 7
+-- Description: Thumbnails record the preset they were generated with, so existing photos can be brought up to date
+
+-- Max size and JPEG quality, e.g. '800@0.85'. NULL for thumbnails generated before presets were recorded.
+ALTER TABLE photo_thumbnails ADD COLUMN preset VARCHAR(50);
+
+-- Backfill jobs are only claimed when no upload job is due
+ALTER TABLE thumbnail_jobs ADD COLUMN priority INTEGER NOT NULL DEFAULT 0;
+
+DROP INDEX idx_thumbnail_jobs_pending;
+CREATE INDEX idx_thumbnail_jobs_pending ON thumbnail_jobs(priority, run_after) WHERE status = 'PENDING';
+
+CREATE TABLE thumbnail_backfills (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    status VARCHAR(20) NOT NULL DEFAULT 'RUNNING',
+    presets VARCHAR(500) NOT NULL,
+    -- Keyset checkpoint: all photos up to and including this id have been checked
+    last_photo_id UUID,
+    photos_scanned BIGINT NOT NULL DEFAULT 0,
+    photos_enqueued BIGINT NOT NULL DEFAULT 0,
+    created_by UUID,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP,
+    CONSTRAINT fk_thumbnail_backfills_created_by FOREIGN KEY (created_by) REFERENCES users(id) ON DELETE SET NULL,
+    CONSTRAINT chk_thumbnail_backfill_status CHECK (status IN ('RUNNING', 'COMPLETED', 'CANCELLED'))
+);
+
+-- At most one backfill runs at a time
+CREATE UNIQUE INDEX uk_thumbnail_backfills_running ON thumbnail_backfills(status) WHERE status = 'RUNNING';
+
+CREATE TRIGGER update_thumbnail_backfills_updated_at BEFORE UPDATE ON thumbnail_backfills
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
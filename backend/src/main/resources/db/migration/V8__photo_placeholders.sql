@@ -0,0 +1,7 @@
+-- Photo placeholders
+-- Version: 8
+-- Description: A BlurHash of every photo, computed with its thumbnails, so grids can paint before thumbnails load
+
+-- Sized for the longest BlurHash the encoder produces (9x9 components, 166 characters), photos use 4x3 (28)
+ALTER TABLE photos
+    ADD COLUMN placeholder VARCHAR(166);
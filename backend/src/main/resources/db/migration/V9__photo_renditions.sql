@@ -0,0 +1,20 @@
+-- On-demand photo renditions
+-- Version: 9
+-- Description: Renditions of whitelisted widths, rendered on first access and cached in the thumbnails bucket
+
+CREATE TABLE photo_renditions (
+    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+    photo_id UUID NOT NULL,
+    -- The requested width; the rendition is narrower if the photo is
+    requested_width INTEGER NOT NULL,
+    format VARCHAR(10) NOT NULL,
+    storage_key VARCHAR(500) NOT NULL,
+    width INTEGER NOT NULL,
+    height INTEGER NOT NULL,
+    file_size BIGINT NOT NULL,
+    -- What it was rendered from: a thumbnail size, another rendition or the original
+    source VARCHAR(50) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT fk_renditions_photo FOREIGN KEY (photo_id) REFERENCES photos(id) ON DELETE CASCADE,
+    CONSTRAINT uk_rendition_photo_width_format UNIQUE (photo_id, requested_width, format)
+);
@@ -49,6 +49,12 @@ public abstract class BaseIntegrationTest {
     private void cleanupDatabase() {
         // Delete data in reverse order of dependencies
         // Don't delete users table as we need the admin user for authentication
+        jdbcTemplate.execute("DELETE FROM upload_sessions");
+        jdbcTemplate.execute("DELETE FROM upload_jobs");
+        jdbcTemplate.execute("DELETE FROM thumbnail_backfills");
+        jdbcTemplate.execute("DELETE FROM thumbnail_jobs");
+        jdbcTemplate.execute("DELETE FROM photo_tile_pyramids");
+        jdbcTemplate.execute("DELETE FROM photo_renditions");
         jdbcTemplate.execute("DELETE FROM photo_thumbnails");
         jdbcTemplate.execute("DELETE FROM album_photos");
         jdbcTemplate.execute("DELETE FROM photos");
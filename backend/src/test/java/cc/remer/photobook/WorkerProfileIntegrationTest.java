@@ -0,0 +1,50 @@
+package cc.remer.photobook;
+
+import cc.remer.photobook.adapter.web.GlobalExceptionHandler;
+import cc.remer.photobook.adapter.web.UploadAdmissionInterceptor;
+import cc.remer.photobook.usecase.ThumbnailWorker;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.WebApplicationContext;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the same artifact as a thumbnail worker, without a web server. The context is closed afterwards, so its
+ * worker does not claim the jobs of other tests.
+ */
+@DisplayName("Worker Profile Integration Tests")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles({"test", "worker"})
+@Testcontainers
+@DirtiesContext
+class WorkerProfileIntegrationTest {
+
+    @Container
+    static PhotobookPostgresContainer postgres = PhotobookPostgresContainer.getInstance();
+
+    @Container
+    static PhotobookSeaweedFSContainer seaweedfs = PhotobookSeaweedFSContainer.getInstance();
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    @DisplayName("Should start the thumbnail worker without any of the web layer")
+    void workerProfile_shouldStartWithoutWebLayer() {
+        assertThat(context).isNotInstanceOf(WebApplicationContext.class);
+        assertThat(context.getBeanNamesForType(ThumbnailWorker.class)).hasSize(1);
+
+        assertThat(context.getBeansWithAnnotation(RestController.class)).isEmpty();
+        assertThat(context.getBeanNamesForType(GlobalExceptionHandler.class)).isEmpty();
+        assertThat(context.getBeanNamesForType(UploadAdmissionInterceptor.class)).isEmpty();
+    }
+}
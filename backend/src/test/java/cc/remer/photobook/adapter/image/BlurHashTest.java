@@ -0,0 +1,72 @@
+package cc.remer.photobook.adapter.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("BlurHash Tests")
+class BlurHashTest {
+
+    private static BufferedImage filled(int width, int height, Color color) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return image;
+    }
+
+    @Test
+    @DisplayName("The DC component encodes the average color")
+    void encode_withSolidColor_shouldEncodeColorAsDcComponent() {
+        String hash = BlurHash.encode(filled(150, 100, Color.RED));
+
+        // 4x3 components: size flag, maximum AC value, sRGB #FF0000, then 11 AC components
+        assertThat(hash).hasSize(28).startsWith("L");
+        assertThat(hash.substring(2, 6)).isEqualTo("TI:j");
+    }
+
+    @Test
+    @DisplayName("Portrait images use more components vertically")
+    void encode_withPortraitImage_shouldUseThreeByFourComponents() {
+        String hash = BlurHash.encode(filled(100, 150, Color.BLUE));
+
+        // Size flag (3 - 1) + (4 - 1) * 9 = 29
+        assertThat(hash).startsWith("T").hasSize(28);
+    }
+
+    @Test
+    @DisplayName("Image detail shows up in the AC components")
+    void encode_withGradient_shouldEncodeAcComponents() {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < 64; x++) {
+            for (int y = 0; y < 64; y++) {
+                image.setRGB(x, y, new Color(x * 4, y * 4, 128).getRGB());
+            }
+        }
+
+        String hash = BlurHash.encode(image);
+
+        assertThat(hash).hasSize(28);
+        assertThat(hash).isNotEqualTo(BlurHash.encode(filled(64, 64, new Color(128, 128, 128))));
+    }
+
+    @Test
+    @DisplayName("The most components give a hash of MAX_LENGTH")
+    void encode_withNineByNineComponents_shouldFillMaxLength() {
+        assertThat(BlurHash.encode(filled(50, 50, Color.GREEN), 9, 9)).hasSize(BlurHash.MAX_LENGTH);
+    }
+
+    @Test
+    @DisplayName("Component counts outside 1 to 9 are rejected")
+    void encode_withTooManyComponents_shouldFail() {
+        assertThatThrownBy(() -> BlurHash.encode(filled(10, 10, Color.WHITE), 10, 3))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
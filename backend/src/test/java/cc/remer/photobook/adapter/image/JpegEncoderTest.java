@@ -0,0 +1,114 @@
+package cc.remer.photobook.adapter.image;
+
+import cc.remer.photobook.adapter.image.JpegProfile.ChromaSubsampling;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("JpegEncoder Tests")
+class JpegEncoderTest {
+
+    private final JpegEncoder encoder = new JpegEncoder();
+
+    private static BufferedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.BLUE, width, height, Color.ORANGE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        return image;
+    }
+
+    // Offset of the first occurrence of the marker, or -1
+    private static int marker(byte[] jpeg, int marker) {
+        for (int i = 0; i + 1 < jpeg.length; i++) {
+            if ((jpeg[i] & 0xFF) == 0xFF && (jpeg[i + 1] & 0xFF) == marker) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    @DisplayName("The baseline profile writes what the JDK writer does by default")
+    void encode_withBaselineProfile_shouldWriteJfifBaseline() throws IOException {
+        byte[] jpeg = encoder.encode(gradient(200, 150), JpegProfile.baseline(0.85));
+
+        assertThat(marker(jpeg, 0xE0)).isEqualTo(2);
+        assertThat(marker(jpeg, 0xC0)).isPositive();
+        assertThat(marker(jpeg, 0xC2)).isNegative();
+    }
+
+    @Test
+    @DisplayName("Progressive profiles write a progressive frame")
+    void encode_withProgressiveProfile_shouldWriteProgressiveFrame() throws IOException {
+        byte[] jpeg = encoder.encode(gradient(200, 150),
+                new JpegProfile(0.85, true, true, ChromaSubsampling.YUV420, false));
+
+        assertThat(marker(jpeg, 0xC2)).isPositive();
+        assertThat(ImageIO.read(new ByteArrayInputStream(jpeg)).getWidth()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Stripping metadata leaves out the JFIF header and saves bytes")
+    void encode_withStrippedMetadata_shouldOmitJfifHeader() throws IOException {
+        BufferedImage image = gradient(200, 150);
+        byte[] baseline = encoder.encode(image, JpegProfile.baseline(0.85));
+        byte[] stripped = encoder.encode(image, new JpegProfile(0.85, false, true, ChromaSubsampling.YUV420, true));
+
+        assertThat(marker(stripped, 0xE0)).isNegative();
+        assertThat(stripped.length).isLessThan(baseline.length);
+        assertThat(ImageIO.read(new ByteArrayInputStream(stripped)).getRGB(0, 0) & 0xFF)
+                .isGreaterThan(200);
+    }
+
+    @Test
+    @DisplayName("4:4:4 writes luma and chroma at the same sampling factor")
+    void encode_with444_shouldNotSubsampleChroma() throws IOException {
+        BufferedImage image = gradient(200, 150);
+        byte[] subsampled = encoder.encode(image, JpegProfile.baseline(0.85));
+        byte[] full = encoder.encode(image, new JpegProfile(0.85, false, false, ChromaSubsampling.YUV444, false));
+
+        // SOF0: marker, length (2), precision, height (2), width (2), components, then id and sampling factors
+        int sof = marker(full, 0xC0);
+        assertThat(full[sof + 11]).isEqualTo((byte) 0x11);
+        assertThat(subsampled[marker(subsampled, 0xC0) + 11]).isEqualTo((byte) 0x22);
+    }
+
+    @Test
+    @DisplayName("The pooled writer, buffer and metadata give the same bytes on every call")
+    void encode_repeatedWithOtherProfilesInBetween_shouldWriteIdenticalBytes() throws IOException {
+        BufferedImage image = gradient(200, 150);
+        JpegProfile stripped = new JpegProfile(0.85, true, true, ChromaSubsampling.YUV420, true);
+        byte[] first = encoder.encode(image, stripped);
+
+        encoder.encode(gradient(640, 480), JpegProfile.baseline(0.5));
+        encoder.encode(image, new JpegProfile(0.85, false, false, ChromaSubsampling.YUV444, true));
+
+        assertThat(encoder.encode(image, stripped)).isEqualTo(first);
+        assertThat(new JpegEncoder().encode(image, stripped)).isEqualTo(first);
+    }
+
+    @Test
+    @DisplayName("A failed encode discards the writer, the next encode is unaffected")
+    void encode_afterWriterFailure_shouldWriteIdenticalBytes() throws IOException {
+        BufferedImage image = gradient(200, 150);
+        JpegProfile profile = new JpegProfile(0.85, false, true, ChromaSubsampling.YUV420, true);
+        byte[] before = encoder.encode(image, profile);
+
+        assertThatThrownBy(() -> encoder.encode(image, JpegProfile.baseline(1.5)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(encoder.encode(image, profile)).isEqualTo(before);
+    }
+}
@@ -0,0 +1,228 @@
+package cc.remer.photobook.adapter.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@DisplayName("SeparableResizer Tests")
+class SeparableResizerTest {
+
+    private final SeparableResizer scalar = SeparableResizer.scalar(ResizeKernel.LANCZOS3);
+
+    // Gradients with low frequency waves, every channel different
+    private static BufferedImage pattern(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = (int) (255.0 * x / Math.max(1, width - 1));
+                int green = (int) (127.5 + 100 * Math.sin(2 * Math.PI * y / Math.max(8, height / 2.0)));
+                int blue = (int) (127.5 + 100 * Math.cos(2 * Math.PI * (x + y) / Math.max(8, width / 3.0)));
+                image.setRGB(x, y, red << 16 | green << 8 | blue);
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage solid(int width, int height, int rgb) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * The filter applied directly in two dimensions with doubles: the same taps as {@link ResizeWeights}, but
+     * none of the planes, transposes or float rounding.
+     */
+    private static int[] reference(BufferedImage source, ResizeKernel kernel, int width, int height) {
+        double[][] horizontal = taps(kernel, source.getWidth(), width);
+        double[][] vertical = taps(kernel, source.getHeight(), height);
+        int[] result = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double[] sums = new double[3];
+                for (int sy = 0; sy < source.getHeight(); sy++) {
+                    if (vertical[y][sy] == 0) {
+                        continue;
+                    }
+                    for (int sx = 0; sx < source.getWidth(); sx++) {
+                        double weight = vertical[y][sy] * horizontal[x][sx];
+                        int rgb = source.getRGB(sx, sy);
+                        sums[0] += weight * (rgb >> 16 & 0xFF);
+                        sums[1] += weight * (rgb >> 8 & 0xFF);
+                        sums[2] += weight * (rgb & 0xFF);
+                    }
+                }
+                int pixel = 0;
+                for (double sum : sums) {
+                    pixel = pixel << 8 | Math.clamp(Math.round(sum), 0, 255);
+                }
+                result[y * width + x] = pixel;
+            }
+        }
+        return result;
+    }
+
+    private static double[][] taps(ResizeKernel kernel, int inputLength, int outputLength) {
+        double scale = (double) inputLength / outputLength;
+        double filterScale = Math.max(1.0, scale);
+        double support = kernel.support() * filterScale;
+        double[][] taps = new double[outputLength][inputLength];
+        for (int i = 0; i < outputLength; i++) {
+            double center = (i + 0.5) * scale;
+            double sum = 0;
+            for (int j = 0; j < inputLength; j++) {
+                if (j + 0.5 > center - support - 1 && j + 0.5 < center + support + 1) {
+                    taps[i][j] = kernel.weight((j + 0.5 - center) / filterScale);
+                    sum += taps[i][j];
+                }
+            }
+            for (int j = 0; j < inputLength; j++) {
+                taps[i][j] /= sum;
+            }
+        }
+        return taps;
+    }
+
+    private static int maxChannelDifference(int[] expected, BufferedImage actual) {
+        int max = 0;
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                int a = expected[y * actual.getWidth() + x];
+                int b = actual.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    max = Math.max(max, Math.abs((a >> shift & 0xFF) - (b >> shift & 0xFF)));
+                }
+            }
+        }
+        return max;
+    }
+
+    private static double meanChannelDifference(BufferedImage expected, BufferedImage actual) {
+        long total = 0;
+        for (int y = 0; y < actual.getHeight(); y++) {
+            for (int x = 0; x < actual.getWidth(); x++) {
+                int a = expected.getRGB(x, y);
+                int b = actual.getRGB(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    total += Math.abs((a >> shift & 0xFF) - (b >> shift & 0xFF));
+                }
+            }
+        }
+        return (double) total / (3L * actual.getWidth() * actual.getHeight());
+    }
+
+    @ParameterizedTest(name = "{0}x{1} to {2}x{3}")
+    @DisplayName("Should match the reference filter within rounding")
+    @CsvSource({
+            "320, 240, 80, 60",
+            // Odd sizes and a non-integer scale
+            "333, 201, 37, 23",
+            // Upscaling
+            "5, 3, 17, 11",
+            // Single pixel rows, columns and results
+            "1, 50, 1, 10",
+            "50, 1, 7, 1",
+            "37, 23, 1, 1"
+    })
+    void resize_shouldMatchReference(int sourceWidth, int sourceHeight, int width, int height) throws IOException {
+        BufferedImage source = pattern(sourceWidth, sourceHeight, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage resized = scalar.resize(source, width, height);
+
+        assertThat(maxChannelDifference(reference(source, ResizeKernel.LANCZOS3, width, height), resized))
+                .isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should read BGR rasters as decoded from JPEG like packed ones")
+    void resize_withBgrSource_shouldMatchIntRgb() throws IOException {
+        BufferedImage packed = pattern(200, 150, BufferedImage.TYPE_INT_RGB);
+        BufferedImage bgr = pattern(200, 150, BufferedImage.TYPE_3BYTE_BGR);
+
+        BufferedImage fromPacked = scalar.resize(packed, 64, 48);
+        BufferedImage fromBgr = scalar.resize(bgr, 64, 48);
+
+        assertThat(fromBgr.getRaster().getDataElements(0, 0, 64, 48, null))
+                .isEqualTo(fromPacked.getRaster().getDataElements(0, 0, 64, 48, null));
+    }
+
+    @Test
+    @DisplayName("Should give the same result after the thread's scratch planes served other sizes")
+    void resize_afterOtherSizes_shouldMatchFirstResult() throws IOException {
+        BufferedImage source = pattern(320, 240, BufferedImage.TYPE_INT_RGB);
+        BufferedImage first = scalar.resize(source, 80, 60);
+
+        scalar.resize(pattern(1200, 300, BufferedImage.TYPE_3BYTE_BGR), 400, 100);
+        scalar.resize(pattern(7, 9, BufferedImage.TYPE_INT_RGB), 31, 40);
+        BufferedImage again = scalar.resize(source, 80, 60);
+
+        assertThat(again.getRaster().getDataElements(0, 0, 80, 60, null))
+                .isEqualTo(first.getRaster().getDataElements(0, 0, 80, 60, null));
+    }
+
+    @Test
+    @DisplayName("Should keep a solid color exactly, with both kernels")
+    void resize_solidColor_shouldKeepColor() throws IOException {
+        BufferedImage source = solid(97, 61, 0x3C8AE1);
+
+        for (ResizeKernel kernel : ResizeKernel.values()) {
+            BufferedImage resized = SeparableResizer.scalar(kernel).resize(source, 13, 9);
+            for (int y = 0; y < resized.getHeight(); y++) {
+                for (int x = 0; x < resized.getWidth(); x++) {
+                    assertThat(resized.getRGB(x, y) & 0xFFFFFF).isEqualTo(0x3C8AE1);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should stay close to Thumbnailator on a smooth photo-like image")
+    void resize_shouldStayCloseToThumbnailator() throws IOException {
+        BufferedImage source = pattern(800, 600, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage separable = scalar.resize(source, 200, 150);
+        BufferedImage thumbnailator = new ThumbnailatorResizer().resize(source, 200, 150);
+
+        assertThat(meanChannelDifference(thumbnailator, separable)).isLessThan(3.0);
+    }
+
+    @Test
+    @DisplayName("Should produce the same result with the vector and the scalar engine")
+    void resize_vectorAndScalar_shouldAgree() throws IOException {
+        assumeTrue(SeparableResizer.isVectorApiAvailable(), "Needs --add-modules jdk.incubator.vector");
+        SeparableResizer vector = SeparableResizer.vector(ResizeKernel.LANCZOS3);
+
+        for (int[] size : new int[][]{{800, 600, 150, 113}, {333, 201, 37, 23}, {5, 3, 17, 11}, {37, 23, 1, 1}}) {
+            BufferedImage source = pattern(size[0], size[1], BufferedImage.TYPE_INT_RGB);
+
+            BufferedImage fromScalar = scalar.resize(source, size[2], size[3]);
+            BufferedImage fromVector = vector.resize(source, size[2], size[3]);
+
+            int[] expected = new int[size[2] * size[3]];
+            fromScalar.getRGB(0, 0, size[2], size[3], expected, 0, size[2]);
+            assertThat(maxChannelDifference(expected, fromVector)).isLessThanOrEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject destinations that are not plain TYPE_INT_RGB")
+    void resize_withArgbDestination_shouldThrow() {
+        BufferedImage source = solid(10, 10, 0xFFFFFF);
+        BufferedImage destination = new BufferedImage(5, 5, BufferedImage.TYPE_INT_ARGB);
+
+        assertThatThrownBy(() -> scalar.resize(source, destination))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,143 @@
+package cc.remer.photobook.adapter.image;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TilePyramid Tests")
+class TilePyramidTest {
+
+    private record Tile(int level, int column, int row, int width, int height, int firstPixel) {
+    }
+
+    private static List<Tile> build(int width, int height, int tileSize, int stripHeight, int color)
+            throws IOException {
+        List<Tile> tiles = new ArrayList<>();
+        TilePyramid pyramid = new TilePyramid(width, height, tileSize, (level, column, row, tile) ->
+                tiles.add(new Tile(level, column, row, tile.getWidth(), tile.getHeight(), tile.getRGB(0, 0))));
+
+        int[] strip = new int[width * stripHeight];
+        Arrays.fill(strip, color);
+        for (int y = 0; y < height; y += stripHeight) {
+            pyramid.push(strip, Math.min(stripHeight, height - y));
+        }
+
+        assertThat(pyramid.isComplete()).isTrue();
+        assertThat(pyramid.getTileCount()).isEqualTo(tiles.size());
+        return tiles;
+    }
+
+    // Pixels of every level, for images that fit into a single tile; red and blue carry the value, green is 0
+    private static Map<Integer, int[]> levels(int[][] values, int stripHeight) throws IOException {
+        int height = values.length;
+        int width = values[0].length;
+        Map<Integer, int[]> levels = new HashMap<>();
+        TilePyramid pyramid = new TilePyramid(width, height, 16, (level, column, row, tile) ->
+                levels.put(level, tile.getRGB(0, 0, tile.getWidth(), tile.getHeight(), null, 0, tile.getWidth())));
+
+        for (int y = 0; y < height; y += stripHeight) {
+            int rows = Math.min(stripHeight, height - y);
+            int[] strip = new int[width * rows];
+            for (int row = 0; row < rows; row++) {
+                for (int x = 0; x < width; x++) {
+                    strip[row * width + x] = rgb(values[y + row][x]);
+                }
+            }
+            pyramid.push(strip, rows);
+        }
+
+        assertThat(pyramid.isComplete()).isTrue();
+        return levels;
+    }
+
+    private static int rgb(int value) {
+        return value << 16 | value;
+    }
+
+    private static int[] argb(int... values) {
+        return Arrays.stream(values).map(value -> 0xFF000000 | rgb(value)).toArray();
+    }
+
+    @Test
+    @DisplayName("Levels halve the image down to a single pixel")
+    void push_withOddDimensions_shouldBuildEveryLevel() throws IOException {
+        List<Tile> tiles = build(1000, 601, 256, 100, 0x336699);
+
+        // ceil(log2(1000)) = 10
+        assertThat(tiles).filteredOn(tile -> tile.level() == 10).hasSize(4 * 3);
+        assertThat(tiles).filteredOn(tile -> tile.level() == 9).hasSize(2 * 2);
+        assertThat(tiles).filteredOn(tile -> tile.level() == 8).hasSize(1);
+        assertThat(tiles).filteredOn(tile -> tile.level() == 0)
+                .containsExactly(new Tile(0, 0, 0, 1, 1, 0xFF336699));
+    }
+
+    @Test
+    @DisplayName("Edge tiles are cut to the remaining pixels")
+    void push_withPartialEdgeTiles_shouldCutToSize() throws IOException {
+        List<Tile> tiles = build(1000, 601, 256, 100, 0x336699);
+
+        assertThat(tiles).filteredOn(tile -> tile.level() == 10 && tile.column() == 3 && tile.row() == 2)
+                .singleElement()
+                .satisfies(tile -> {
+                    assertThat(tile.width()).isEqualTo(1000 - 3 * 256);
+                    assertThat(tile.height()).isEqualTo(601 - 2 * 256);
+                });
+        // Level 9 is 500x301
+        assertThat(tiles).filteredOn(tile -> tile.level() == 9 && tile.column() == 1 && tile.row() == 1)
+                .singleElement()
+                .satisfies(tile -> {
+                    assertThat(tile.width()).isEqualTo(500 - 256);
+                    assertThat(tile.height()).isEqualTo(301 - 256);
+                });
+    }
+
+    @Test
+    @DisplayName("Halving averages without shifting colors")
+    void push_withSolidColor_shouldKeepColorOnEveryLevel() throws IOException {
+        List<Tile> tiles = build(300, 200, 64, 64, 0x80FF10);
+
+        assertThat(tiles).allSatisfy(tile -> assertThat(tile.firstPixel()).isEqualTo(0xFF80FF10));
+    }
+
+    @Test
+    @DisplayName("Lower levels average 2x2 blocks of row pairs, rounding half up, whatever the strip height")
+    void push_withGradient_shouldAverageRowPairs() throws IOException {
+        int[][] values = {
+                {0, 1, 2, 3},
+                {4, 5, 6, 8},
+                {10, 20, 30, 41}
+        };
+
+        for (int stripHeight : new int[]{1, 2, 3}) {
+            Map<Integer, int[]> levels = levels(values, stripHeight);
+
+            // (0 + 1 + 4 + 5 + 2) >> 2 = 3 and (2 + 3 + 6 + 8 + 2) >> 2 = 5; the odd last row is halved on its
+            // own: (10 + 20 + 10 + 20 + 2) >> 2 = 15 and (30 + 41 + 30 + 41 + 2) >> 2 = 36
+            assertThat(levels.get(1)).as("strips of %d rows", stripHeight).containsExactly(argb(3, 5, 15, 36));
+            // (3 + 5 + 15 + 36 + 2) >> 2
+            assertThat(levels.get(0)).as("strips of %d rows", stripHeight).containsExactly(argb(15));
+        }
+    }
+
+    @Test
+    @DisplayName("An odd last column is averaged with itself")
+    void push_withOddWidth_shouldHalveLastColumnOnItsOwn() throws IOException {
+        Map<Integer, int[]> levels = levels(new int[][]{
+                {0, 10, 100},
+                {1, 11, 201}
+        }, 2);
+
+        // (0 + 10 + 1 + 11 + 2) >> 2 = 6 and (100 + 100 + 201 + 201 + 2) >> 2 = 151
+        assertThat(levels.get(1)).containsExactly(argb(6, 151));
+        // A single row, halved on its own: (6 + 151 + 6 + 151 + 2) >> 2
+        assertThat(levels.get(0)).containsExactly(argb(79));
+    }
+}
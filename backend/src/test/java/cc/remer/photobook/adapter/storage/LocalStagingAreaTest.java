@@ -0,0 +1,157 @@
+package cc.remer.photobook.adapter.storage;
+
+import cc.remer.photobook.config.UploadProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("LocalStagingArea Tests")
+class LocalStagingAreaTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private UploadProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new UploadProperties();
+        properties.getStaging().setDir(tempDir.resolve("staging").toString());
+        properties.getStaging().setMaxSize(DataSize.ofBytes(100));
+        properties.getStaging().setTtl(Duration.ofMinutes(30));
+    }
+
+    private LocalStagingArea stagingArea() {
+        LocalStagingArea stagingArea = new LocalStagingArea(properties, true);
+        stagingArea.initialize();
+        return stagingArea;
+    }
+
+    private Path stagedPath(UUID photoId) {
+        return Path.of(properties.getStaging().getDir()).resolve(photoId.toString());
+    }
+
+    private static UUID stage(LocalStagingArea stagingArea, int bytes) throws IOException {
+        LocalStagingArea.Reservation reservation = stagingArea.reserve(bytes).orElseThrow();
+        Files.write(reservation.getPath(), new byte[bytes]);
+        UUID photoId = UUID.randomUUID();
+        reservation.commit(photoId);
+        return photoId;
+    }
+
+    @Test
+    @DisplayName("Should drop copies left over from before a restart")
+    void initialize_shouldClearLeftovers() throws IOException {
+        Path root = Path.of(properties.getStaging().getDir());
+        Files.createDirectories(root);
+        Files.write(root.resolve(UUID.randomUUID().toString()), new byte[10]);
+
+        stagingArea();
+
+        assertThat(root).isEmptyDirectory();
+    }
+
+    @Test
+    @DisplayName("Should find a committed copy under its photo ID")
+    void commit_shouldMakeCopyFindable() throws IOException {
+        LocalStagingArea stagingArea = stagingArea();
+
+        UUID photoId = stage(stagingArea, 40);
+
+        assertThat(stagingArea.link(photoId)).get().satisfies(path -> assertThat(path).hasSize(40));
+    }
+
+    @Test
+    @DisplayName("Should not reserve beyond the maximum size until room is given back")
+    void reserve_whenFull_shouldBeEmptyUntilRemoved() throws IOException {
+        LocalStagingArea stagingArea = stagingArea();
+        UUID first = stage(stagingArea, 60);
+
+        assertThat(stagingArea.reserve(50)).isEmpty();
+        assertThat(stagingArea.reserve(101)).isEmpty();
+
+        stagingArea.remove(first);
+        assertThat(stagingArea.link(first)).isEmpty();
+        try (LocalStagingArea.Reservation reservation = stagingArea.reserve(100).orElseThrow()) {
+            assertThat(reservation.getPath()).exists();
+        }
+    }
+
+    @Test
+    @DisplayName("Should give the room back when a reservation is closed without commit")
+    void close_withoutCommit_shouldReleaseRoom() {
+        LocalStagingArea stagingArea = stagingArea();
+        Optional<LocalStagingArea.Reservation> reservation = stagingArea.reserve(100);
+        Path path = reservation.orElseThrow().getPath();
+
+        reservation.get().close();
+        reservation.get().close();
+
+        assertThat(path).doesNotExist();
+        assertThat(stagingArea.reserve(100)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should count a copy staged twice for the same photo only once")
+    void commit_samePhotoTwice_shouldReplacePreviousCopy() throws IOException {
+        LocalStagingArea stagingArea = stagingArea();
+        UUID photoId = stage(stagingArea, 50);
+
+        LocalStagingArea.Reservation again = stagingArea.reserve(50).orElseThrow();
+        Files.write(again.getPath(), new byte[50]);
+        again.commit(photoId);
+
+        assertThat(stagingArea.reserve(50)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should remove copies older than the TTL and give their room back")
+    void removeExpired_shouldDropOldCopies() throws Exception {
+        properties.getStaging().setTtl(Duration.ZERO);
+        LocalStagingArea stagingArea = stagingArea();
+        UUID photoId = stage(stagingArea, 100);
+        Path path = stagedPath(photoId);
+        Thread.sleep(10);
+
+        stagingArea.removeExpired();
+
+        assertThat(stagingArea.link(photoId)).isEmpty();
+        assertThat(path).doesNotExist();
+        assertThat(stagingArea.reserve(100)).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should keep a linked copy readable after the staged copy expired")
+    void link_thenRemoveExpired_shouldKeepLinkReadable() throws Exception {
+        properties.getStaging().setTtl(Duration.ZERO);
+        LocalStagingArea stagingArea = stagingArea();
+        UUID photoId = stage(stagingArea, 60);
+        Path link = stagingArea.link(photoId).orElseThrow();
+        Thread.sleep(10);
+
+        stagingArea.removeExpired();
+
+        assertThat(stagedPath(photoId)).doesNotExist();
+        assertThat(link).hasSize(60);
+    }
+
+    @Test
+    @DisplayName("Should not stage anything when no thumbnail worker runs in this JVM")
+    void reserve_withoutWorker_shouldBeEmpty() {
+        LocalStagingArea stagingArea = new LocalStagingArea(properties, false);
+        stagingArea.initialize();
+
+        assertThat(stagingArea.reserve(10)).isEmpty();
+    }
+}
@@ -0,0 +1,236 @@
+package cc.remer.photobook.adapter.web;
+
+import cc.remer.photobook.BaseIntegrationTest;
+import cc.remer.photobook.usecase.ThumbnailBackfillService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.*;
+
+@DisplayName("Admin API Integration Tests")
+class AdminControllerIntegrationTest extends BaseIntegrationTest {
+
+    private static final String PLACEHOLDER = "LEHV6nWB2yk8pyo0adR*.7kCMdnj";
+    // The presets of the default sizes, quality and encoder profiles
+    private static final String SMALL = "150@0.85/base-420-opt-strip";
+    private static final String MEDIUM = "400@0.85/base-420-opt-strip";
+    private static final String LARGE = "800@0.85/prog-420-opt-strip";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ThumbnailBackfillService thumbnailBackfillService;
+
+    private String createUserAndGetToken(String adminToken, String email) {
+        Map<String, String> createRequest = new HashMap<>();
+        createRequest.put("email", email);
+        createRequest.put("password", "password123");
+        createRequest.put("firstName", "Test");
+        createRequest.put("lastName", "User");
+        createRequest.put("role", "USER");
+
+        given()
+            .spec(withAuth(adminToken))
+            .body(createRequest)
+        .when()
+            .post("/api/users")
+        .then()
+            .statusCode(201);
+
+        Map<String, String> loginRequest = new HashMap<>();
+        loginRequest.put("email", email);
+        loginRequest.put("password", "password123");
+
+        return given()
+            .spec(requestSpec)
+            .body(loginRequest)
+        .when()
+            .post("/api/auth/login")
+        .then()
+            .statusCode(200)
+            .extract().path("accessToken");
+    }
+
+    private UUID insertReadyPhoto(String placeholder, String... thumbnailPresets) {
+        UUID photoId = UUID.randomUUID();
+        UUID ownerId = jdbcTemplate.queryForObject(
+                "SELECT id FROM users WHERE email = 'admin@photobook.local'", UUID.class);
+        jdbcTemplate.update("INSERT INTO photos (id, owner_id, storage_key, original_filename, mime_type, file_size, "
+                + "status, placeholder) VALUES (?, ?, ?, 'photo.jpg', 'image/jpeg', 1000, 'READY', ?)",
+                photoId, ownerId, "originals/" + photoId + ".jpg", placeholder);
+
+        String[] sizes = {"SMALL", "MEDIUM", "LARGE"};
+        for (int i = 0; i < thumbnailPresets.length; i++) {
+            jdbcTemplate.update("INSERT INTO photo_thumbnails (photo_id, size, storage_key, width, height, "
+                    + "file_size, preset) VALUES (?, ?, ?, 100, 100, 100, ?)",
+                    photoId, sizes[i], "thumbnails/" + photoId + "_" + i + ".jpg", thumbnailPresets[i]);
+        }
+        return photoId;
+    }
+
+    private String startBackfill(String adminToken) {
+        return given()
+            .spec(withAuth(adminToken))
+        .when()
+            .post("/api/admin/thumbnail-backfills")
+        .then()
+            .statusCode(201)
+            .extract().path("id");
+    }
+
+    // ========== POST /api/admin/thumbnail-backfills Tests ==========
+
+    @Test
+    @DisplayName("POST /api/admin/thumbnail-backfills - Success as admin")
+    void startThumbnailBackfill_asAdmin_shouldReturnRunningBackfill() {
+        String token = getAdminToken();
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .post("/api/admin/thumbnail-backfills")
+        .then()
+            .statusCode(201)
+            .body("id", notNullValue())
+            .body("status", equalTo("RUNNING"))
+            .body("presets", containsInAnyOrder("SMALL:" + SMALL, "MEDIUM:" + MEDIUM, "LARGE:" + LARGE))
+            .body("photosScanned", equalTo(0))
+            .body("photosEnqueued", equalTo(0));
+    }
+
+    @Test
+    @DisplayName("POST /api/admin/thumbnail-backfills - Failure while another backfill runs")
+    void startThumbnailBackfill_whileRunning_shouldReturn409() {
+        String token = getAdminToken();
+        startBackfill(token);
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .post("/api/admin/thumbnail-backfills")
+        .then()
+            .statusCode(409);
+    }
+
+    @Test
+    @DisplayName("POST /api/admin/thumbnail-backfills - Failure as regular user")
+    void startThumbnailBackfill_asUser_shouldReturn403() {
+        String userToken = createUserAndGetToken(getAdminToken(), "backfill-user@test.com");
+
+        given()
+            .spec(withAuth(userToken))
+        .when()
+            .post("/api/admin/thumbnail-backfills")
+        .then()
+            .statusCode(403);
+    }
+
+    // ========== GET /api/admin/thumbnail-backfills/{backfillId} Tests ==========
+
+    @Test
+    @DisplayName("GET /api/admin/thumbnail-backfills/{backfillId} - Failure with unknown backfill")
+    void getThumbnailBackfill_withUnknownId_shouldReturn404() {
+        given()
+            .spec(withAuth(getAdminToken()))
+        .when()
+            .get("/api/admin/thumbnail-backfills/" + UUID.randomUUID())
+        .then()
+            .statusCode(404);
+    }
+
+    @Test
+    @DisplayName("Backfill enqueues only photos with missing or outdated thumbnails or placeholders")
+    void processBatch_shouldEnqueueOutdatedPhotosAndComplete() {
+        String token = getAdminToken();
+        insertReadyPhoto(PLACEHOLDER, SMALL, MEDIUM, LARGE);
+        UUID outdated = insertReadyPhoto(PLACEHOLDER, SMALL, MEDIUM, "1024@0.9/prog-420-opt-strip");
+        UUID legacy = insertReadyPhoto(PLACEHOLDER, null, null, null);
+        UUID incomplete = insertReadyPhoto(PLACEHOLDER, SMALL);
+        UUID withoutPlaceholder = insertReadyPhoto(null, SMALL, MEDIUM, LARGE);
+        String backfillId = startBackfill(token);
+
+        // The first batch checks all photos, the second finds none left
+        thumbnailBackfillService.processBatch();
+        thumbnailBackfillService.processBatch();
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/admin/thumbnail-backfills/" + backfillId)
+        .then()
+            .statusCode(200)
+            .body("status", equalTo("COMPLETED"))
+            .body("photosScanned", equalTo(5))
+            .body("photosEnqueued", equalTo(4))
+            .body("lastPhotoId", notNullValue())
+            .body("completedAt", notNullValue());
+
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT photo_id FROM thumbnail_jobs WHERE priority = 1", UUID.class))
+                .containsExactlyInAnyOrder(outdated, legacy, incomplete, withoutPlaceholder);
+    }
+
+    @Test
+    @DisplayName("Backfill re-enqueues outdated photos whose earlier job was given up on")
+    void processBatch_withFailedJob_shouldEnqueueItAgain() {
+        String token = getAdminToken();
+        UUID outdated = insertReadyPhoto(PLACEHOLDER, SMALL);
+        jdbcTemplate.update("INSERT INTO thumbnail_jobs (photo_id, status, attempts, priority, last_error) "
+                + "VALUES (?, 'FAILED', 5, 1, 'Decode failed')", outdated);
+        String backfillId = startBackfill(token);
+
+        thumbnailBackfillService.processBatch();
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/admin/thumbnail-backfills/" + backfillId)
+        .then()
+            .statusCode(200)
+            .body("photosScanned", equalTo(1))
+            .body("photosEnqueued", equalTo(1));
+
+        // The worker of this context may already have claimed it
+        Map<String, Object> job = jdbcTemplate.queryForMap(
+                "SELECT status, attempts FROM thumbnail_jobs WHERE photo_id = ?", outdated);
+        assertThat(job.get("status")).isIn("PENDING", "RUNNING");
+        assertThat((Integer) job.get("attempts")).isLessThanOrEqualTo(1);
+    }
+
+    // ========== DELETE /api/admin/thumbnail-backfills/{backfillId} Tests ==========
+
+    @Test
+    @DisplayName("DELETE /api/admin/thumbnail-backfills/{backfillId} - Success cancelling a running backfill")
+    void cancelThumbnailBackfill_whenRunning_shouldCancel() {
+        String token = getAdminToken();
+        String backfillId = startBackfill(token);
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .delete("/api/admin/thumbnail-backfills/" + backfillId)
+        .then()
+            .statusCode(200)
+            .body("status", equalTo("CANCELLED"))
+            .body("completedAt", notNullValue());
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .delete("/api/admin/thumbnail-backfills/" + backfillId)
+        .then()
+            .statusCode(409);
+
+        // A new backfill can be started once the previous one stopped
+        startBackfill(token);
+    }
+}
@@ -4,20 +4,30 @@ import cc.remer.photobook.BaseIntegrationTest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 
 @DisplayName("Photo API Integration Tests")
 class PhotoControllerIntegrationTest extends BaseIntegrationTest {
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private String albumId;
     private File testImage;
 
@@ -86,6 +96,27 @@ class PhotoControllerIntegrationTest extends BaseIntegrationTest {
             .body("[0].uploadedAt", notNullValue());
     }
 
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/photos - Response carries dimensions read from the header")
+    void uploadPhotos_withRealJpeg_shouldReturnDimensions() throws IOException {
+        String token = getAdminToken();
+
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", "sized.jpg", jpeg.toByteArray(), "image/jpeg")
+        .when()
+            .post("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(201)
+            .body("[0].status", equalTo("PROCESSING"))
+            .body("[0].width", equalTo(64))
+            .body("[0].height", equalTo(48));
+    }
+
     @Test
     @DisplayName("POST /api/albums/{albumId}/photos - Success uploading multiple photos")
     void uploadPhotos_withMultiplePhotos_shouldUploadAllSuccessfully() throws IOException {
@@ -122,6 +153,79 @@ class PhotoControllerIntegrationTest extends BaseIntegrationTest {
         }
     }
 
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/photos - Duplicate content links the existing photo")
+    void uploadPhotos_withAlreadyUploadedContent_shouldDeduplicate() {
+        String token = getAdminToken();
+
+        String photoId = given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", testImage, "image/jpeg")
+        .when()
+            .post("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(201)
+            .body("[0].deduplicated", equalTo(false))
+            .extract().path("[0].id");
+
+        String otherAlbumId = createAlbum(token, "Second Album", "Same export again");
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", testImage, "image/jpeg")
+        .when()
+            .post("/api/albums/" + otherAlbumId + "/photos")
+        .then()
+            .statusCode(201)
+            .body("size()", equalTo(1))
+            .body("[0].id", equalTo(photoId))
+            .body("[0].albumId", equalTo(otherAlbumId))
+            .body("[0].deduplicated", equalTo(true));
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/albums/" + otherAlbumId + "/photos")
+        .then()
+            .statusCode(200)
+            .body("content.size()", equalTo(1))
+            .body("content[0].id", equalTo(photoId));
+    }
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/photos - Content of a failed photo is stored again")
+    void uploadPhotos_withContentOfFailedPhoto_shouldNotDeduplicate() {
+        String token = getAdminToken();
+
+        String failedPhotoId = given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", testImage, "image/jpeg")
+        .when()
+            .post("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(201)
+            .extract().path("[0].id");
+        jdbcTemplate.update("UPDATE photos SET status = 'ERROR' WHERE id = ?", UUID.fromString(failedPhotoId));
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", testImage, "image/jpeg")
+        .when()
+            .post("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(201)
+            .body("[0].id", not(equalTo(failedPhotoId)))
+            .body("[0].deduplicated", equalTo(false));
+
+        Integer linkable = jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM photos WHERE content_hash IS NOT NULL AND status <> 'ERROR'", Integer.class);
+        assertThat(linkable).isEqualTo(1);
+    }
+
     @Test
     @DisplayName("POST /api/albums/{albumId}/photos - Failure without authentication")
     void uploadPhotos_withoutAuth_shouldReturn403() {
@@ -150,6 +254,44 @@ class PhotoControllerIntegrationTest extends BaseIntegrationTest {
             .statusCode(404);
     }
 
+    // ========== POST /api/albums/{albumId}/photos/stream Tests ==========
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/photos/stream - Success streaming single photo")
+    void uploadPhotosStreaming_withSinglePhoto_shouldUploadSuccessfully() {
+        String token = getAdminToken();
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", testImage, "image/jpeg")
+        .when()
+            .post("/api/albums/" + albumId + "/photos/stream")
+        .then()
+            .statusCode(201)
+            .body("size()", equalTo(1))
+            .body("[0].id", notNullValue())
+            .body("[0].albumId", equalTo(albumId))
+            .body("[0].mimeType", equalTo("image/jpeg"))
+            .body("[0].fileSize", equalTo((int) testImage.length()))
+            .body("[0].status", equalTo("PROCESSING"));
+    }
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/photos/stream - Failure with invalid album ID")
+    void uploadPhotosStreaming_withInvalidAlbumId_shouldReturn404() {
+        String token = getAdminToken();
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", testImage, "image/jpeg")
+        .when()
+            .post("/api/albums/00000000-0000-0000-0000-000000000000/photos/stream")
+        .then()
+            .statusCode(404);
+    }
+
     // ========== GET /api/albums/{albumId}/photos Tests ==========
 
     @Test
@@ -495,4 +637,134 @@ class PhotoControllerIntegrationTest extends BaseIntegrationTest {
         .then()
             .statusCode(404);
     }
+
+    // ========== GET /api/photos/{photoId}/renditions/{width} Tests ==========
+
+    @Test
+    @DisplayName("GET /api/photos/{photoId}/renditions/{width} - Success rendering and reusing a rendition")
+    void getPhotoRendition_withAllowedWidth_shouldReturnCachedRenditionUrl() throws IOException {
+        String token = getAdminToken();
+
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+
+        String photoId = given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", "rendition.jpg", jpeg.toByteArray(), "image/jpeg")
+        .when()
+            .post("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(201)
+            .extract().path("[0].id");
+
+        // Rendered on the first request, served from storage on the second
+        for (int i = 0; i < 2; i++) {
+            given()
+                .spec(withAuth(token))
+            .when()
+                .get("/api/photos/" + photoId + "/renditions/320")
+            .then()
+                .statusCode(200)
+                .body("url", containsString("_w320.jpg"))
+                .body("expiresAt", notNullValue());
+        }
+    }
+
+    @Test
+    @DisplayName("GET /api/photos/{photoId}/renditions/{width} - Success rendering from a stored thumbnail")
+    void getPhotoRendition_belowLargeThumbnail_shouldRenderFromDerivative() throws Exception {
+        String token = getAdminToken();
+
+        // Wider than the LARGE thumbnail (800), so a 640 rendition never needs the original
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1200, 800, BufferedImage.TYPE_INT_RGB), "jpg", jpeg);
+
+        String photoId = given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", "wide.jpg", jpeg.toByteArray(), "image/jpeg")
+        .when()
+            .post("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(201)
+            .extract().path("[0].id");
+
+        String status = null;
+        for (int attempt = 0; attempt < 50 && !"READY".equals(status); attempt++) {
+            Thread.sleep(200);
+            status = jdbcTemplate.queryForObject("SELECT status FROM photos WHERE id = ?", String.class,
+                    UUID.fromString(photoId));
+        }
+        assertThat(status).isEqualTo("READY");
+
+        for (int i = 0; i < 2; i++) {
+            given()
+                .spec(withAuth(token))
+            .when()
+                .get("/api/photos/" + photoId + "/renditions/640")
+            .then()
+                .statusCode(200)
+                .body("url", containsString("_w640.jpg"));
+        }
+
+        assertThat(jdbcTemplate.queryForList("SELECT source FROM photo_renditions WHERE photo_id = ?",
+                String.class, UUID.fromString(photoId)))
+                .containsExactly("LARGE");
+    }
+
+    @Test
+    @DisplayName("GET /api/photos/{photoId}/renditions/{width} - Failure with a width that is not allowed")
+    void getPhotoRendition_withWidthNotAllowed_shouldReturn400() {
+        String token = getAdminToken();
+
+        String photoId = given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", testImage, "image/jpeg")
+        .when()
+            .post("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(201)
+            .extract().path("[0].id");
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/photos/" + photoId + "/renditions/321")
+        .then()
+            .statusCode(400);
+    }
+
+    // ========== GET /api/photos/{photoId}/tiles Tests ==========
+
+    @Test
+    @DisplayName("GET /api/photos/{photoId}/tiles - Failure for a photo without tiles")
+    void getPhotoTilePyramid_forSmallPhoto_shouldReturn404() {
+        String token = getAdminToken();
+
+        String photoId = given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", testImage, "image/jpeg")
+        .when()
+            .post("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(201)
+            .extract().path("[0].id");
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/photos/" + photoId + "/tiles")
+        .then()
+            .statusCode(404);
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/photos/" + photoId + "/tiles/0/0/0")
+        .then()
+            .statusCode(404);
+    }
 }
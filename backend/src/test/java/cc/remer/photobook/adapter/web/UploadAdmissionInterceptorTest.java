@@ -0,0 +1,133 @@
+package cc.remer.photobook.adapter.web;
+
+import cc.remer.photobook.adapter.security.UserPrincipal;
+import cc.remer.photobook.adapter.web.model.ErrorResponse;
+import cc.remer.photobook.config.UploadProperties;
+import cc.remer.photobook.usecase.UploadAdmissionService;
+import cc.remer.photobook.usecase.UploadAdmissionService.UploadCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+@DisplayName("UploadAdmissionInterceptor Tests")
+class UploadAdmissionInterceptorTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    private SimpleMeterRegistry meterRegistry;
+    private UploadAdmissionService admissionService;
+    private UploadAdmissionInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        UploadProperties properties = new UploadProperties();
+        properties.getAdmission().setMaxInFlight(DataSize.ofBytes(1000));
+        properties.getAdmission().setMaxInFlightPerUser(DataSize.ofBytes(1000));
+        properties.getAdmission().setQueueTimeout(Duration.ofMillis(20));
+        properties.getAdmission().setRetryAfter(Duration.ofSeconds(30));
+        properties.getAdmission().setUnknownLengthCharge(DataSize.ofBytes(700));
+        meterRegistry = new SimpleMeterRegistry();
+        admissionService = new UploadAdmissionService(properties, meterRegistry);
+        interceptor = new UploadAdmissionInterceptor(admissionService, properties);
+
+        UserPrincipal principal = new UserPrincipal(USER_ID, "user@photobook.local", "", "USER");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private double inFlightBytes() {
+        return meterRegistry.get("photobook.upload.inflight.bytes").gauge().value();
+    }
+
+    private static MockHttpServletRequest upload(String method, int contentLength) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/albums/1/photos");
+        if (contentLength >= 0) {
+            request.setContent(new byte[contentLength]);
+        }
+        return request;
+    }
+
+    @Test
+    @DisplayName("Should hold a permit for the Content-Length until the request completes")
+    void preHandle_withUpload_shouldHoldPermitUntilCompletion() {
+        MockHttpServletRequest request = upload("POST", 400);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, new Object())).isTrue();
+        assertThat(inFlightBytes()).isEqualTo(400);
+
+        interceptor.afterCompletion(request, response, new Object(), null);
+        assertThat(inFlightBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should release the permit when the handler failed")
+    void afterCompletion_withException_shouldReleasePermit() {
+        MockHttpServletRequest request = upload("PUT", 400);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, new Object());
+
+        interceptor.afterCompletion(request, response, new Object(), new IllegalStateException("Storage down"));
+
+        assertThat(inFlightBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should charge requests without Content-Length the configured amount")
+    void preHandle_withoutContentLength_shouldChargeUnknownLength() {
+        MockHttpServletRequest request = upload("POST", -1);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        interceptor.preHandle(request, response, new Object());
+
+        assertThat(inFlightBytes()).isEqualTo(700);
+        interceptor.afterCompletion(request, response, new Object(), null);
+    }
+
+    @Test
+    @DisplayName("Should not admit reads or anonymous requests")
+    void preHandle_withGetOrAnonymous_shouldNotAdmit() {
+        interceptor.preHandle(upload("GET", 0), new MockHttpServletResponse(), new Object());
+        SecurityContextHolder.clearContext();
+        interceptor.preHandle(upload("POST", 400), new MockHttpServletResponse(), new Object());
+
+        assertThat(inFlightBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should answer 429 with Retry-After when no capacity frees up")
+    void preHandle_withoutCapacity_shouldAnswer429() {
+        MockHttpServletRequest first = upload("POST", 800);
+        interceptor.preHandle(first, new MockHttpServletResponse(), new Object());
+
+        UploadCapacityExceededException rejected = catchThrowableOfType(UploadCapacityExceededException.class,
+                () -> interceptor.preHandle(upload("POST", 400), new MockHttpServletResponse(), new Object()));
+        ResponseEntity<ErrorResponse> answer = new GlobalExceptionHandler().handleUploadCapacityExceeded(rejected);
+
+        assertThat(answer.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(answer.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+        assertThat(answer.getBody().getError()).isEqualTo("UPLOAD_CAPACITY_EXCEEDED");
+        interceptor.afterCompletion(first, new MockHttpServletResponse(), new Object(), null);
+    }
+}
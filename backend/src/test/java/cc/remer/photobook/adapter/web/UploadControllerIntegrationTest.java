@@ -0,0 +1,742 @@
+package cc.remer.photobook.adapter.web;
+
+import cc.remer.photobook.BaseIntegrationTest;
+import cc.remer.photobook.config.UploadProperties;
+import cc.remer.photobook.usecase.PhotoRegistrationService;
+import cc.remer.photobook.usecase.ResumableUploadService;
+import cc.remer.photobook.usecase.ResumableUploadService.UploadSessionConflictException;
+import cc.remer.photobook.usecase.UploadJobService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.*;
+
+@DisplayName("Upload API Integration Tests")
+class UploadControllerIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+
+    @Autowired
+    private PhotoRegistrationService photoRegistrationService;
+
+    @Autowired
+    private UploadJobService uploadJobService;
+
+    @Autowired
+    private UploadProperties uploadProperties;
+
+    private String albumId;
+    private byte[] testImage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        String token = getAdminToken();
+        albumId = createAlbum(token, "Test Album for Uploads");
+
+        // Minimal JPEG (for testing purposes only)
+        ByteArrayOutputStream image = new ByteArrayOutputStream();
+        image.write(new byte[]{
+            (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0,
+            0x00, 0x10, 0x4A, 0x46, 0x49, 0x46, 0x00, 0x01,
+            0x01, 0x00, 0x00, 0x01, 0x00, 0x01, 0x00, 0x00
+        });
+        image.write(new byte[100]);
+        image.write(new byte[]{(byte) 0xFF, (byte) 0xD9});
+        testImage = image.toByteArray();
+    }
+
+    private String createAlbum(String token, String name) {
+        Map<String, String> createRequest = new HashMap<>();
+        createRequest.put("name", name);
+
+        return given()
+            .spec(withAuth(token))
+            .body(createRequest)
+        .when()
+            .post("/api/albums")
+        .then()
+            .statusCode(201)
+            .extract().path("id");
+    }
+
+    private static byte[] solidJpeg(Color color) throws IOException {
+        BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+        graphics.dispose();
+
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", jpeg);
+        return jpeg.toByteArray();
+    }
+
+    /**
+     * Builds an archive with three photos, a text file in between and an entry whose deflate data is corrupt, so
+     * reading it fails half way through the archive.
+     */
+    private static byte[] mixedZip() throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            putEntry(zip, "holiday/first.jpg", solidJpeg(Color.RED));
+            putEntry(zip, "holiday/notes.txt", "not a photo".getBytes(StandardCharsets.UTF_8));
+            putEntry(zip, "holiday/second.jpg", solidJpeg(Color.GREEN));
+            putEntry(zip, "holiday/broken.jpg", solidJpeg(Color.BLACK));
+            putEntry(zip, "holiday/third.jpg", solidJpeg(Color.BLUE));
+        }
+        byte[] bytes = archive.toByteArray();
+
+        // The local header of an entry comes before its central directory record, so the first match is the header
+        byte[] name = "holiday/broken.jpg".getBytes(StandardCharsets.UTF_8);
+        int nameOffset = indexOf(bytes, name);
+        int extraLength = (bytes[nameOffset - 2] & 0xFF) | (bytes[nameOffset - 1] & 0xFF) << 8;
+        // Block type 11 is reserved, the inflater rejects the entry on its first read
+        bytes[nameOffset + name.length + extraLength] = (byte) 0xFF;
+        return bytes;
+    }
+
+    private static void putEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= bytes.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        throw new IllegalArgumentException("Pattern not found");
+    }
+
+    private String createSession(String token, String filename, long size) {
+        Map<String, Object> createRequest = new HashMap<>();
+        createRequest.put("filename", filename);
+        createRequest.put("contentType", "image/jpeg");
+        createRequest.put("size", size);
+
+        return given()
+            .spec(withAuth(token))
+            .body(createRequest)
+        .when()
+            .post("/api/albums/" + albumId + "/upload-sessions")
+        .then()
+            .statusCode(201)
+            .extract().path("id");
+    }
+
+    // ========== POST /api/albums/{albumId}/upload-sessions Tests ==========
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/upload-sessions - Success creating session")
+    void createUploadSession_withValidRequest_shouldStartAtOffsetZero() {
+        String token = getAdminToken();
+
+        Map<String, Object> createRequest = new HashMap<>();
+        createRequest.put("filename", "large-photo.jpg");
+        createRequest.put("size", testImage.length);
+
+        given()
+            .spec(withAuth(token))
+            .body(createRequest)
+        .when()
+            .post("/api/albums/" + albumId + "/upload-sessions")
+        .then()
+            .statusCode(201)
+            .body("id", notNullValue())
+            .body("albumId", equalTo(albumId))
+            .body("filename", equalTo("large-photo.jpg"))
+            .body("contentType", equalTo("image/jpeg"))
+            .body("size", equalTo(testImage.length))
+            .body("chunkSize", greaterThan(0))
+            .body("offset", equalTo(0))
+            .body("status", equalTo("ACTIVE"))
+            .body("expiresAt", notNullValue());
+    }
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/upload-sessions - Failure with unsupported file")
+    void createUploadSession_withUnsupportedFile_shouldReturn400() {
+        String token = getAdminToken();
+
+        Map<String, Object> createRequest = new HashMap<>();
+        createRequest.put("filename", "notes.txt");
+        createRequest.put("size", 10);
+
+        given()
+            .spec(withAuth(token))
+            .body(createRequest)
+        .when()
+            .post("/api/albums/" + albumId + "/upload-sessions")
+        .then()
+            .statusCode(400);
+    }
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/upload-sessions - Failure with invalid album ID")
+    void createUploadSession_withInvalidAlbumId_shouldReturn404() {
+        String token = getAdminToken();
+
+        Map<String, Object> createRequest = new HashMap<>();
+        createRequest.put("filename", "photo.jpg");
+        createRequest.put("size", 10);
+
+        given()
+            .spec(withAuth(token))
+            .body(createRequest)
+        .when()
+            .post("/api/albums/00000000-0000-0000-0000-000000000000/upload-sessions")
+        .then()
+            .statusCode(404);
+    }
+
+    // ========== PUT /api/upload-sessions/{sessionId}/chunks Tests ==========
+
+    @Test
+    @DisplayName("PUT /api/upload-sessions/{sessionId}/chunks - Success advances offset")
+    void uploadChunk_atCurrentOffset_shouldAdvanceOffset() {
+        String token = getAdminToken();
+        String sessionId = createSession(token, "photo.jpg", testImage.length);
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.APPLICATION_OCTET_STREAM_VALUE)
+            .queryParam("offset", 0)
+            .body(testImage)
+        .when()
+            .put("/api/upload-sessions/" + sessionId + "/chunks")
+        .then()
+            .statusCode(200)
+            .body("offset", equalTo(testImage.length));
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/upload-sessions/" + sessionId)
+        .then()
+            .statusCode(200)
+            .body("offset", equalTo(testImage.length))
+            .body("status", equalTo("ACTIVE"));
+    }
+
+    @Test
+    @DisplayName("PUT /api/upload-sessions/{sessionId}/chunks - Failure with offset beyond received bytes")
+    void uploadChunk_withOffsetGap_shouldReturn409() {
+        String token = getAdminToken();
+        String sessionId = createSession(token, "photo.jpg", 20L * 1024 * 1024);
+
+        long chunkSize = given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/upload-sessions/" + sessionId)
+        .then()
+            .statusCode(200)
+            .extract().jsonPath().getLong("chunkSize");
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.APPLICATION_OCTET_STREAM_VALUE)
+            .queryParam("offset", chunkSize)
+            .body(testImage)
+        .when()
+            .put("/api/upload-sessions/" + sessionId + "/chunks")
+        .then()
+            .statusCode(409)
+            .body("error", equalTo("UPLOAD_SESSION_CONFLICT"));
+    }
+
+    @Test
+    @DisplayName("PUT /api/upload-sessions/{sessionId}/chunks - Failure when the session has expired")
+    void uploadChunk_afterExpiry_shouldReturn409() {
+        String token = getAdminToken();
+        String sessionId = createSession(token, "photo.jpg", testImage.length);
+        expire(sessionId);
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.APPLICATION_OCTET_STREAM_VALUE)
+            .queryParam("offset", 0)
+            .body(testImage)
+        .when()
+            .put("/api/upload-sessions/" + sessionId + "/chunks")
+        .then()
+            .statusCode(409)
+            .body("error", equalTo("UPLOAD_SESSION_CONFLICT"));
+    }
+
+    @Test
+    @DisplayName("PUT /api/upload-sessions/{sessionId}/chunks - Failure with wrong chunk length")
+    void uploadChunk_withWrongLength_shouldReturn400() {
+        String token = getAdminToken();
+        String sessionId = createSession(token, "photo.jpg", testImage.length + 10);
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.APPLICATION_OCTET_STREAM_VALUE)
+            .queryParam("offset", 0)
+            .body(testImage)
+        .when()
+            .put("/api/upload-sessions/" + sessionId + "/chunks")
+        .then()
+            .statusCode(400);
+    }
+
+    // ========== POST /api/upload-sessions/{sessionId}/complete Tests ==========
+
+    @Test
+    @DisplayName("POST /api/upload-sessions/{sessionId}/complete - Success creates photo once")
+    void completeUploadSession_afterAllChunks_shouldCreatePhoto() {
+        String token = getAdminToken();
+        String sessionId = createSession(token, "resumed.jpg", testImage.length);
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.APPLICATION_OCTET_STREAM_VALUE)
+            .queryParam("offset", 0)
+            .body(testImage)
+        .when()
+            .put("/api/upload-sessions/" + sessionId + "/chunks")
+        .then()
+            .statusCode(200);
+
+        String photoId = given()
+            .spec(withAuth(token))
+        .when()
+            .post("/api/upload-sessions/" + sessionId + "/complete")
+        .then()
+            .statusCode(201)
+            .body("size()", equalTo(1))
+            .body("[0].albumId", equalTo(albumId))
+            .body("[0].originalFilename", equalTo("resumed.jpg"))
+            .body("[0].fileSize", equalTo(testImage.length))
+            .extract().path("[0].id");
+
+        // Completing again is idempotent
+        given()
+            .spec(withAuth(token))
+        .when()
+            .post("/api/upload-sessions/" + sessionId + "/complete")
+        .then()
+            .statusCode(201)
+            .body("size()", equalTo(1))
+            .body("[0].id", equalTo(photoId));
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(200)
+            .body("totalElements", equalTo(1));
+    }
+
+    @Test
+    @DisplayName("POST /api/upload-sessions/{sessionId}/complete - Failure when bytes are missing")
+    void completeUploadSession_beforeAllChunks_shouldReturn409() {
+        String token = getAdminToken();
+        String sessionId = createSession(token, "photo.jpg", testImage.length);
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .post("/api/upload-sessions/" + sessionId + "/complete")
+        .then()
+            .statusCode(409);
+    }
+
+    // ========== DELETE /api/upload-sessions/{sessionId} Tests ==========
+
+    @Test
+    @DisplayName("DELETE /api/upload-sessions/{sessionId} - Success aborts session")
+    void abortUploadSession_shouldRemoveSession() {
+        String token = getAdminToken();
+        String sessionId = createSession(token, "photo.jpg", testImage.length);
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .delete("/api/upload-sessions/" + sessionId)
+        .then()
+            .statusCode(204);
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/upload-sessions/" + sessionId)
+        .then()
+            .statusCode(404);
+    }
+
+    @Test
+    @DisplayName("DELETE /api/upload-sessions/{sessionId} - Failure while the session is being completed")
+    void abortUploadSession_whileCompleting_shouldReturn409() {
+        String token = getAdminToken();
+        String sessionId = createSession(token, "photo.jpg", testImage.length);
+        jdbcTemplate.update("UPDATE upload_sessions SET status = 'COMPLETING' WHERE id = ?", UUID.fromString(sessionId));
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .delete("/api/upload-sessions/" + sessionId)
+        .then()
+            .statusCode(409)
+            .body("error", equalTo("UPLOAD_SESSION_CONFLICT"));
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/upload-sessions/" + sessionId)
+        .then()
+            .statusCode(200)
+            .body("status", equalTo("COMPLETING"));
+    }
+
+    @Test
+    @DisplayName("Expired sessions are removed, completions in progress are kept")
+    void removeExpiredSessions_shouldKeepCompletionsInProgress() {
+        String token = getAdminToken();
+        String expiredId = createSession(token, "expired.jpg", testImage.length);
+        String completingId = createSession(token, "completing.jpg", testImage.length);
+        expire(expiredId);
+        expire(completingId);
+        jdbcTemplate.update("UPDATE upload_sessions SET status = 'COMPLETING', updated_at = now() WHERE id = ?",
+            UUID.fromString(completingId));
+
+        resumableUploadService.removeExpiredSessions();
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/upload-sessions/" + expiredId)
+        .then()
+            .statusCode(404);
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/upload-sessions/" + completingId)
+        .then()
+            .statusCode(200);
+    }
+
+    @Test
+    @DisplayName("A completion whose claim was taken over does not close the session")
+    void completeUploadSession_afterClaimTakenOver_shouldRecordNothing() {
+        String token = getAdminToken();
+        UUID sessionId = UUID.fromString(createSession(token, "photo.jpg", testImage.length));
+        jdbcTemplate.update("UPDATE upload_sessions SET status = 'COMPLETING', completion_token = ?, " +
+            "bytes_received = total_size WHERE id = ?", UUID.randomUUID(), sessionId);
+
+        assertThatThrownBy(() -> photoRegistrationService.completeUploadSession(sessionId, UUID.randomUUID(),
+                List.of()))
+            .isInstanceOf(UploadSessionConflictException.class);
+
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM upload_sessions WHERE id = ?", String.class,
+            sessionId)).isEqualTo("COMPLETING");
+    }
+
+    private void expire(String sessionId) {
+        jdbcTemplate.update("UPDATE upload_sessions SET expires_at = now() - interval '1 minute' WHERE id = ?",
+            UUID.fromString(sessionId));
+    }
+
+    // ========== /api/albums/{albumId}/direct-uploads Tests ==========
+
+    private Map<String, Object> directUploadRequest(String filename, long size) {
+        Map<String, Object> file = new HashMap<>();
+        file.put("filename", filename);
+        file.put("contentType", "image/jpeg");
+        file.put("size", size);
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("files", List.of(file));
+        return request;
+    }
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/direct-uploads - Success uploading straight to storage")
+    void directUpload_withPresignedUrl_shouldCreatePhotoOnCompletion() {
+        String token = getAdminToken();
+
+        io.restassured.path.json.JsonPath upload = given()
+            .spec(withAuth(token))
+            .body(directUploadRequest("direct.jpg", testImage.length))
+        .when()
+            .post("/api/albums/" + albumId + "/direct-uploads")
+        .then()
+            .statusCode(201)
+            .body("size()", equalTo(1))
+            .body("[0].id", notNullValue())
+            .body("[0].uploadUrl", notNullValue())
+            .body("[0].partUrls", nullValue())
+            .extract().jsonPath();
+
+        // The client talks to storage directly, without the API token
+        given()
+            .urlEncodingEnabled(false)
+            .contentType("image/jpeg")
+            .body(testImage)
+        .when()
+            .put(upload.getString("[0].uploadUrl"))
+        .then()
+            .statusCode(200);
+
+        Map<String, Object> completeRequest = new HashMap<>();
+        completeRequest.put("uploadIds", List.of(upload.getString("[0].id")));
+
+        given()
+            .spec(withAuth(token))
+            .body(completeRequest)
+        .when()
+            .post("/api/albums/" + albumId + "/direct-uploads/complete")
+        .then()
+            .statusCode(201)
+            .body("size()", equalTo(1))
+            .body("[0].albumId", equalTo(albumId))
+            .body("[0].originalFilename", equalTo("direct.jpg"))
+            .body("[0].fileSize", equalTo(testImage.length));
+    }
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/direct-uploads/complete - Failure before the file was uploaded")
+    void completeDirectUploads_withoutStoredObject_shouldReturn409() {
+        String token = getAdminToken();
+
+        String uploadId = given()
+            .spec(withAuth(token))
+            .body(directUploadRequest("missing.jpg", testImage.length))
+        .when()
+            .post("/api/albums/" + albumId + "/direct-uploads")
+        .then()
+            .statusCode(201)
+            .extract().path("[0].id");
+
+        Map<String, Object> completeRequest = new HashMap<>();
+        completeRequest.put("uploadIds", List.of(uploadId));
+
+        given()
+            .spec(withAuth(token))
+            .body(completeRequest)
+        .when()
+            .post("/api/albums/" + albumId + "/direct-uploads/complete")
+        .then()
+            .statusCode(409)
+            .body("error", equalTo("UPLOAD_SESSION_CONFLICT"));
+    }
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/direct-uploads - Failure with ZIP archive")
+    void createDirectUploads_withZipArchive_shouldReturn400() {
+        String token = getAdminToken();
+
+        given()
+            .spec(withAuth(token))
+            .body(directUploadRequest("album.zip", 1024))
+        .when()
+            .post("/api/albums/" + albumId + "/direct-uploads")
+        .then()
+            .statusCode(400);
+    }
+
+    // ========== ZIP upload Tests ==========
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/photos - ZIP entries in archive order, without text and broken entries")
+    void uploadPhotos_withZipArchive_shouldKeepArchiveOrderAndSkipBadEntries() throws IOException {
+        String token = getAdminToken();
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", "holiday.zip", mixedZip(), "application/zip")
+        .when()
+            .post("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(201)
+            .body("originalFilename", contains("first.jpg", "second.jpg", "third.jpg"))
+            .body("status", everyItem(equalTo("PROCESSING")));
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(200)
+            .body("content.size()", equalTo(3));
+    }
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/photos/stream - ZIP entries in archive order, without text and broken entries")
+    void uploadPhotosStreaming_withZipArchive_shouldKeepArchiveOrderAndSkipBadEntries() throws IOException {
+        String token = getAdminToken();
+
+        given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", "holiday.zip", mixedZip(), "application/zip")
+        .when()
+            .post("/api/albums/" + albumId + "/photos/stream")
+        .then()
+            .statusCode(201)
+            .body("originalFilename", contains("first.jpg", "second.jpg", "third.jpg"))
+            .body("status", everyItem(equalTo("PROCESSING")));
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(200)
+            .body("content.size()", equalTo(3));
+    }
+
+    // ========== Upload job Tests ==========
+
+    @Test
+    @DisplayName("POST /api/albums/{albumId}/upload-jobs - Accepted and processed in the background")
+    void createUploadJob_withImageAndUnsupportedFile_shouldCompleteInBackground() throws InterruptedException {
+        String token = getAdminToken();
+
+        String jobId = given()
+            .spec(withAuth(token))
+            .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+            .multiPart("files", "job-photo.jpg", testImage, "image/jpeg")
+            .multiPart("files", "notes.txt", "not a photo".getBytes(), "text/plain")
+        .when()
+            .post("/api/albums/" + albumId + "/upload-jobs")
+        .then()
+            .statusCode(202)
+            .body("albumId", equalTo(albumId))
+            .body("totalFiles", equalTo(2))
+            .body("files[1].status", equalTo("SKIPPED"))
+            .extract().path("id");
+
+        String status = null;
+        for (int attempt = 0; attempt < 50 && !"COMPLETED".equals(status); attempt++) {
+            Thread.sleep(200);
+            status = given()
+                .spec(withAuth(token))
+            .when()
+                .get("/api/upload-jobs/" + jobId)
+            .then()
+                .statusCode(200)
+                .extract().path("status");
+        }
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/upload-jobs/" + jobId)
+        .then()
+            .statusCode(200)
+            .body("status", equalTo("COMPLETED"))
+            .body("filesProcessed", equalTo(2))
+            .body("photosCreated", equalTo(1))
+            .body("bytesStored", equalTo(testImage.length))
+            .body("files[0].status", equalTo("DONE"))
+            .body("files[0].filename", equalTo("job-photo.jpg"));
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/albums/" + albumId + "/photos")
+        .then()
+            .statusCode(200)
+            .body("content.size()", equalTo(1));
+    }
+
+    @Test
+    @DisplayName("GET /api/upload-jobs/{jobId}/events - Sends the progress of a finished job and closes the stream")
+    void streamUploadJobEvents_withFinishedJob_shouldSendProgressAndComplete() {
+        String token = getAdminToken();
+        UUID ownerId = jdbcTemplate.queryForObject("SELECT owner_id FROM albums WHERE id = ?", UUID.class,
+            UUID.fromString(albumId));
+        UUID jobId = jdbcTemplate.queryForObject(
+            "INSERT INTO upload_jobs (owner_id, album_id, status) VALUES (?, ?, 'COMPLETED') RETURNING id",
+            UUID.class, ownerId, UUID.fromString(albumId));
+
+        given()
+            .spec(withAuth(token))
+            .accept(MediaType.TEXT_EVENT_STREAM_VALUE)
+        .when()
+            .get("/api/upload-jobs/" + jobId + "/events")
+        .then()
+            .statusCode(200)
+            .contentType(startsWith(MediaType.TEXT_EVENT_STREAM_VALUE))
+            .body(containsString("event:progress"))
+            .body(containsString("\"status\":\"COMPLETED\""));
+    }
+
+    @Test
+    @DisplayName("GET /api/upload-jobs/{jobId} - Failure with unknown job")
+    void getUploadJob_withNonExistentId_shouldReturn404() {
+        String token = getAdminToken();
+
+        given()
+            .spec(withAuth(token))
+        .when()
+            .get("/api/upload-jobs/00000000-0000-0000-0000-000000000000")
+        .then()
+            .statusCode(404);
+    }
+
+    @Test
+    @DisplayName("Spooled files are removed only for finished upload jobs")
+    void removeFinishedSpoolDirs_shouldKeepRunningJobs() throws IOException {
+        UUID ownerId = jdbcTemplate.queryForObject("SELECT owner_id FROM albums WHERE id = ?", UUID.class,
+            UUID.fromString(albumId));
+        UUID runningJobId = jdbcTemplate.queryForObject(
+            "INSERT INTO upload_jobs (owner_id, album_id, status) VALUES (?, ?, 'RUNNING') RETURNING id",
+            UUID.class, ownerId, UUID.fromString(albumId));
+        UUID failedJobId = jdbcTemplate.queryForObject(
+            "INSERT INTO upload_jobs (owner_id, album_id, status) VALUES (?, ?, 'FAILED') RETURNING id",
+            UUID.class, ownerId, UUID.fromString(albumId));
+        UUID unknownJobId = UUID.randomUUID();
+
+        Path root = Path.of(uploadProperties.getJobs().getSpoolDir());
+        for (UUID jobId : List.of(runningJobId, failedJobId, unknownJobId)) {
+            Files.createDirectories(root.resolve(jobId.toString()));
+            Files.write(root.resolve(jobId.toString()).resolve("0.upload"), testImage);
+        }
+
+        uploadJobService.removeFinishedSpoolDirs();
+
+        assertThat(root.resolve(runningJobId.toString())).exists();
+        assertThat(root.resolve(failedJobId.toString())).doesNotExist();
+        assertThat(root.resolve(unknownJobId.toString())).doesNotExist();
+        FileSystemUtils.deleteRecursively(root.resolve(runningJobId.toString()));
+    }
+}
@@ -0,0 +1,99 @@
+package cc.remer.photobook.benchmark;
+
+import cc.remer.photobook.adapter.image.JpegEncoder;
+import cc.remer.photobook.adapter.image.JpegProfile;
+import cc.remer.photobook.adapter.image.JpegProfile.ChromaSubsampling;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes against encode time of the JPEG encoder profiles for each thumbnail size. The encode time is the primary
+ * score; the size of each profile's output and the percentage it saves against the JDK defaults are reported as
+ * the secondary scores {@code encode:bytes} and {@code encode:savedPercent}.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=JpegProfileBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JpegProfileBenchmark {
+
+    private static final double QUALITY = 0.85;
+
+    private static final Map<String, JpegProfile> PROFILES = Map.of(
+            "baseline", JpegProfile.baseline(QUALITY),
+            "optimized", new JpegProfile(QUALITY, false, true, ChromaSubsampling.YUV420, false),
+            "stripped", new JpegProfile(QUALITY, false, true, ChromaSubsampling.YUV420, true),
+            "progressive", new JpegProfile(QUALITY, true, true, ChromaSubsampling.YUV420, true),
+            "full-chroma", new JpegProfile(QUALITY, false, true, ChromaSubsampling.YUV444, true),
+            "progressive-full-chroma", new JpegProfile(QUALITY, true, true, ChromaSubsampling.YUV444, true));
+
+    @Param({"150", "400", "800"})
+    private int maxSize;
+
+    @Param({"baseline", "optimized", "stripped", "progressive", "full-chroma", "progressive-full-chroma"})
+    private String profileName;
+
+    private final JpegEncoder jpegEncoder = new JpegEncoder();
+    private BufferedImage thumbnail;
+    private JpegProfile profile;
+    private int bytes;
+    private int baselineBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        thumbnail = BenchmarkImages.photoLike(maxSize, maxSize * 2 / 3, BufferedImage.TYPE_INT_RGB);
+        profile = PROFILES.get(profileName);
+
+        // The output does not vary between invocations, so it is measured once per trial
+        baselineBytes = jpegEncoder.encode(thumbnail, PROFILES.get("baseline")).length;
+        bytes = jpegEncoder.encode(thumbnail, profile).length;
+    }
+
+    @Benchmark
+    public byte[] encode(EncodedSize size) throws IOException {
+        return jpegEncoder.encode(thumbnail, profile);
+    }
+
+    /**
+     * The size of the profile's output as secondary scores. JMH sums event counters over the measurement
+     * iterations, so every iteration reports its share.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+
+        public double bytes;
+        public double savedPercent;
+
+        @Setup(Level.Iteration)
+        public void report(JpegProfileBenchmark benchmark, IterationParams iteration) {
+            if (iteration.getType() != IterationType.MEASUREMENT) {
+                bytes = 0;
+                savedPercent = 0;
+                return;
+            }
+            double share = 1.0 / iteration.getCount();
+            bytes = share * benchmark.bytes;
+            savedPercent = share * 100.0 * (benchmark.baselineBytes - benchmark.bytes) / benchmark.baselineBytes;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JpegProfileBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,73 @@
+package cc.remer.photobook.benchmark;
+
+import cc.remer.photobook.adapter.image.ThumbnailatorResizer;
+import cc.remer.photobook.usecase.ThumbnailScaler;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a JPEG original at full resolution with the subsampled decode of {@link ThumbnailScaler}.
+ * Runs with the GC profiler, so {@code gc.alloc.rate.norm} shows the bytes allocated per decode.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ThumbnailDecodeBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ThumbnailDecodeBenchmark {
+
+    private static final int LARGEST_THUMBNAIL = 800;
+
+    // 12, 24 and 48 megapixels at 3:2
+    @Param({"4240x2832", "6000x4000", "8484x5656"})
+    private String resolution;
+
+    private final ThumbnailScaler scaler = new ThumbnailScaler(new ThumbnailatorResizer());
+    private Path jpeg;
+
+    @Setup
+    public void writeOriginal() throws IOException {
+        String[] dimensions = resolution.split("x");
+        int width = Integer.parseInt(dimensions[0]);
+        int height = Integer.parseInt(dimensions[1]);
+
+        BufferedImage image = BenchmarkImages.photoLike(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        jpeg = Files.createTempFile("photobook-benchmark-", ".jpg");
+        ImageIO.write(image, "jpg", jpeg.toFile());
+    }
+
+    @TearDown
+    public void deleteOriginal() throws IOException {
+        Files.deleteIfExists(jpeg);
+    }
+
+    @Benchmark
+    public BufferedImage fullResolution() throws IOException {
+        return ImageIO.read(jpeg.toFile());
+    }
+
+    @Benchmark
+    public ThumbnailScaler.DecodedImage subsampled() throws IOException {
+        return scaler.decode(jpeg, LARGEST_THUMBNAIL);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ThumbnailDecodeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+package cc.remer.photobook.benchmark;
+
+import cc.remer.photobook.adapter.image.JpegEncoder;
+import cc.remer.photobook.adapter.image.ResizeKernel;
+import cc.remer.photobook.adapter.image.SeparableResizer;
+import cc.remer.photobook.usecase.ThumbnailScaler;
+import net.coobird.thumbnailator.Thumbnails;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the allocations of the thumbnail encode path: Thumbnailator with a fresh stream per image against
+ * the pooled {@link JpegEncoder}, and the whole cascade of scaling and encoding. Runs with the GC profiler;
+ * for the pooled path {@code gc.alloc.rate.norm} should be close to the size of the returned JPEG bytes.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ThumbnailEncodeBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ThumbnailEncodeBenchmark {
+
+    private static final Map<String, Integer> SIZES = Map.of("SMALL", 150, "MEDIUM", 400, "LARGE", 800);
+    private static final double QUALITY = 0.85;
+
+    @Param({"150", "400", "800"})
+    private int maxSize;
+
+    private final JpegEncoder jpegEncoder = new JpegEncoder();
+    private final ThumbnailScaler scaler = new ThumbnailScaler(SeparableResizer.vector(ResizeKernel.LANCZOS3));
+    private BufferedImage thumbnail;
+    private ThumbnailScaler.DecodedImage decoded;
+
+    @Setup
+    public void setUp() {
+        thumbnail = BenchmarkImages.photoLike(maxSize, maxSize * 2 / 3, BufferedImage.TYPE_3BYTE_BGR);
+        // 6000x4000 subsampled by 3
+        decoded = new ThumbnailScaler.DecodedImage(
+                BenchmarkImages.photoLike(2000, 1334, BufferedImage.TYPE_3BYTE_BGR), 6000, 4000);
+    }
+
+    @Benchmark
+    public byte[] thumbnailatorEncode() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Thumbnails.of(thumbnail)
+                .scale(1.0)
+                .outputFormat("jpg")
+                .outputQuality(QUALITY)
+                .toOutputStream(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] pooledEncode() throws IOException {
+        return jpegEncoder.encode(thumbnail, QUALITY);
+    }
+
+    // Independent of maxSize, scales and encodes all three sizes
+    @Benchmark
+    public int pooledCascade() throws IOException {
+        int bytes = 0;
+        for (BufferedImage image : scaler.scaleReusing(decoded, SIZES).values()) {
+            bytes += scaler.encodeJpeg(image, QUALITY).length;
+        }
+        return bytes;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ThumbnailEncodeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
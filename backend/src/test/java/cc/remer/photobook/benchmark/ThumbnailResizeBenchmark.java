@@ -0,0 +1,68 @@
+package cc.remer.photobook.benchmark;
+
+import cc.remer.photobook.adapter.image.ImageResizer;
+import cc.remer.photobook.adapter.image.ResizeKernel;
+import cc.remer.photobook.adapter.image.SeparableResizer;
+import cc.remer.photobook.adapter.image.ThumbnailatorResizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the resize engines on a subsampled decode, as produced for the LARGE thumbnail of a 24MP photo,
+ * scaled to each configured thumbnail size. Scores are milliseconds of CPU per resize.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ThumbnailResizeBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ThumbnailResizeBenchmark {
+
+    @Param({"thumbnailator", "scalar-bicubic", "scalar-lanczos3", "vector-bicubic", "vector-lanczos3"})
+    private String engine;
+
+    @Param({"150", "400", "800"})
+    private int maxSize;
+
+    private ImageResizer resizer;
+    private BufferedImage decoded;
+    private BufferedImage destination;
+
+    @Setup
+    public void setUp() {
+        resizer = switch (engine) {
+            case "thumbnailator" -> new ThumbnailatorResizer();
+            case "scalar-bicubic" -> SeparableResizer.scalar(ResizeKernel.BICUBIC);
+            case "scalar-lanczos3" -> SeparableResizer.scalar(ResizeKernel.LANCZOS3);
+            case "vector-bicubic" -> SeparableResizer.vector(ResizeKernel.BICUBIC);
+            case "vector-lanczos3" -> SeparableResizer.vector(ResizeKernel.LANCZOS3);
+            default -> throw new IllegalArgumentException(engine);
+        };
+
+        // 6000x4000 subsampled by 3
+        decoded = BenchmarkImages.photoLike(2000, 1334, BufferedImage.TYPE_3BYTE_BGR);
+        int height = Math.max(1, (int) ((double) decoded.getHeight() / decoded.getWidth() * maxSize));
+        destination = new BufferedImage(maxSize, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Benchmark
+    public BufferedImage resize() throws IOException {
+        resizer.resize(decoded, destination);
+        return destination;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ThumbnailResizeBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
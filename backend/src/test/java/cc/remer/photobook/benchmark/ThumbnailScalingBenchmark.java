@@ -0,0 +1,67 @@
+package cc.remer.photobook.benchmark;
+
+import cc.remer.photobook.adapter.image.ThumbnailatorResizer;
+import cc.remer.photobook.usecase.ThumbnailScaler;
+import net.coobird.thumbnailator.Thumbnails;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares scaling one decoded photo to the three thumbnail sizes independently from the original with the
+ * cascade used by {@link ThumbnailScaler}. Scores are milliseconds of CPU per photo.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ThumbnailScalingBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ThumbnailScalingBenchmark {
+
+    private static final Map<String, Integer> SIZES = Map.of("SMALL", 150, "MEDIUM", 400, "LARGE", 800);
+
+    // 12, 24 and 48 megapixels at 3:2
+    @Param({"4240x2832", "6000x4000", "8484x5656"})
+    private String resolution;
+
+    private final ThumbnailScaler scaler = new ThumbnailScaler(new ThumbnailatorResizer());
+    private BufferedImage original;
+
+    @Setup
+    public void decodeOriginal() {
+        String[] dimensions = resolution.split("x");
+        original = BenchmarkImages.photoLike(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]),
+                BufferedImage.TYPE_3BYTE_BGR);
+    }
+
+    @Benchmark
+    public List<BufferedImage> independent() throws IOException {
+        List<BufferedImage> thumbnails = new ArrayList<>(SIZES.size());
+        for (int maxSize : SIZES.values()) {
+            thumbnails.add(Thumbnails.of(original).size(maxSize, maxSize).asBufferedImage());
+        }
+        return thumbnails;
+    }
+
+    @Benchmark
+    public Map<String, BufferedImage> cascade() throws IOException {
+        return scaler.scaleReusing(ThumbnailScaler.DecodedImage.of(original), SIZES);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ThumbnailScalingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,120 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.BaseIntegrationTest;
+import cc.remer.photobook.domain.PhotoThumbnail;
+import cc.remer.photobook.usecase.ResumableUploadService.UploadSessionConflictException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs without a thumbnail worker, so only the tests record thumbnails.
+ */
+@DisplayName("Photo Registration Service Integration Tests")
+@TestPropertySource(properties = "thumbnail.worker.enabled=false")
+class PhotoRegistrationServiceIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PhotoRegistrationService photoRegistrationService;
+
+    private UUID adminId() {
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = 'admin@photobook.local'", UUID.class);
+    }
+
+    private UUID insertAlbum(UUID ownerId) {
+        return jdbcTemplate.queryForObject("INSERT INTO albums (name, owner_id) VALUES ('Album', ?) RETURNING id",
+                UUID.class, ownerId);
+    }
+
+    private static StagedPhoto staged(String contentHash) {
+        UUID photoId = UUID.randomUUID();
+        return StagedPhoto.builder()
+                .photoId(photoId)
+                .storageKey("originals/" + photoId + ".jpg")
+                .originalFilename("photo.jpg")
+                .mimeType("image/jpeg")
+                .fileSize(1000L)
+                .contentHash(contentHash)
+                .metadata(PhotoMetadata.EMPTY)
+                .build();
+    }
+
+    private UUID insertPhotoWithSmallThumbnail(String status) {
+        UUID photoId = UUID.randomUUID();
+        UUID ownerId = adminId();
+        jdbcTemplate.update("INSERT INTO photos (id, owner_id, storage_key, original_filename, mime_type, file_size, "
+                + "status) VALUES (?, ?, ?, 'photo.jpg', 'image/jpeg', 1000, ?)",
+                photoId, ownerId, "originals/" + photoId + ".jpg", status);
+        jdbcTemplate.update("INSERT INTO photo_thumbnails (photo_id, size, storage_key, width, height, file_size, "
+                + "preset) VALUES (?, 'SMALL', ?, 100, 100, 100, 'old')",
+                photoId, "thumbnails/" + photoId + "_old.jpg");
+        return photoId;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"READY", "PROCESSING", "ERROR"})
+    @DisplayName("Should replace existing thumbnails of the same size whatever the photo's status")
+    void recordThumbnails_withExistingSize_shouldReplaceRow(String status) {
+        UUID photoId = insertPhotoWithSmallThumbnail(status);
+        PhotoThumbnail small = PhotoThumbnail.builder()
+                .photoId(photoId)
+                .size("SMALL")
+                .storageKey("thumbnails/" + photoId + "_new.jpg")
+                .width(150)
+                .height(100)
+                .fileSize(2000L)
+                .preset("new")
+                .build();
+
+        boolean recorded = photoRegistrationService.recordThumbnails(photoId, 3000, 2000, null, null,
+                List.of(small));
+
+        assertThat(recorded).isTrue();
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT storage_key, preset FROM photo_thumbnails WHERE photo_id = ?", photoId);
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row.get("storage_key")).isEqualTo("thumbnails/" + photoId + "_new.jpg");
+            assertThat(row.get("preset")).isEqualTo("new");
+        });
+        assertThat(jdbcTemplate.queryForObject("SELECT status FROM photos WHERE id = ?", String.class, photoId))
+                .isEqualTo("READY");
+    }
+
+    @Test
+    @DisplayName("Should report content stored concurrently by another upload as a conflict")
+    void registerPhotos_withContentHashTaken_shouldThrowConflict() {
+        UUID ownerId = adminId();
+        UUID albumId = insertAlbum(ownerId);
+        photoRegistrationService.registerPhotos(ownerId, albumId, List.of(staged("same-content")));
+
+        assertThatThrownBy(() -> photoRegistrationService.registerPhotos(ownerId, albumId,
+                List.of(staged("same-content"))))
+                .isInstanceOf(UploadSessionConflictException.class);
+    }
+
+    @Test
+    @DisplayName("Should pass on integrity violations other than a taken content hash")
+    void registerPhotos_withOtherViolation_shouldRethrow() {
+        UUID albumId = insertAlbum(adminId());
+
+        // No such owner, violates fk_photos_owner
+        assertThatThrownBy(() -> photoRegistrationService.registerPhotos(UUID.randomUUID(), albumId,
+                List.of(staged("other-content"))))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+}
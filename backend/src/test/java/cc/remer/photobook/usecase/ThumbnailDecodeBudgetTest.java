@@ -0,0 +1,100 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.config.ThumbnailDecodeProperties;
+import cc.remer.photobook.usecase.ThumbnailDecodeBudget.DecodeBudgetExhaustedException;
+import cc.remer.photobook.usecase.ThumbnailDecodeBudget.ImageTooLargeException;
+import cc.remer.photobook.usecase.ThumbnailDecodeBudget.Lease;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("ThumbnailDecodeBudget Tests")
+class ThumbnailDecodeBudgetTest {
+
+    private static final UUID PHOTO_ID = UUID.randomUUID();
+
+    private SimpleMeterRegistry meterRegistry;
+    private ThumbnailDecodeBudget budget;
+
+    @BeforeEach
+    void setUp() {
+        ThumbnailDecodeProperties properties = new ThumbnailDecodeProperties();
+        properties.setHeapBudget(DataSize.ofBytes(1000));
+        properties.setMaxPixels(10_000);
+        properties.setQueueTimeout(Duration.ofMillis(50));
+        meterRegistry = new SimpleMeterRegistry();
+        budget = new ThumbnailDecodeBudget(properties, meterRegistry);
+    }
+
+    private double usedBytes() {
+        return meterRegistry.get("photobook.thumbnail.decode.budget.used").gauge().value();
+    }
+
+    @Test
+    @DisplayName("Should admit decodes side by side while they fit")
+    void admit_withinBudget_shouldChargeEstimate() {
+        try (Lease first = budget.admit(PHOTO_ID, 10, 10, 400);
+             Lease second = budget.admit(PHOTO_ID, 10, 10, 600)) {
+            assertThat(usedBytes()).isEqualTo(1000);
+        }
+        assertThat(usedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject images above the pixel limit without charging them")
+    void admit_overPixelLimit_shouldReject() {
+        assertThatThrownBy(() -> budget.admit(PHOTO_ID, 101, 100, 10))
+                .isInstanceOf(ImageTooLargeException.class);
+
+        assertThat(usedBytes()).isZero();
+        assertThat(meterRegistry.get("photobook.thumbnail.decode.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should charge a decode larger than the budget at the budget")
+    void admit_largerThanBudget_shouldRunAlone() {
+        try (Lease ignored = budget.admit(PHOTO_ID, 100, 100, 50_000)) {
+            assertThat(usedBytes()).isEqualTo(1000);
+        }
+    }
+
+    @Test
+    @DisplayName("Should give up once the budget stays exhausted for the queue timeout")
+    void admit_whileExhausted_shouldTimeOut() {
+        try (Lease ignored = budget.admit(PHOTO_ID, 10, 10, 800)) {
+            assertThatThrownBy(() -> budget.admit(PHOTO_ID, 10, 10, 300))
+                    .isInstanceOfSatisfying(DecodeBudgetExhaustedException.class,
+                            e -> assertThat(e.getRetryAfter()).isEqualTo(Duration.ofMillis(50)));
+        }
+        assertThat(meterRegistry.get("photobook.thumbnail.decode.timed-out").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("photobook.thumbnail.decode.waiting").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should admit a waiting decode as soon as budget is released")
+    void admit_whileExhausted_shouldProceedOnRelease() throws Exception {
+        Lease first = budget.admit(PHOTO_ID, 10, 10, 800);
+
+        CompletableFuture<Lease> waiting = CompletableFuture.supplyAsync(
+                () -> budget.admit(PHOTO_ID, 10, 10, 300, Duration.ofSeconds(10)));
+        Thread.sleep(100);
+        assertThat(waiting).isNotDone();
+
+        first.close();
+        first.close();
+        try (Lease second = waiting.get(5, TimeUnit.SECONDS)) {
+            assertThat(usedBytes()).isEqualTo(300);
+        }
+        assertThat(usedBytes()).isZero();
+    }
+}
@@ -0,0 +1,209 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.BaseIntegrationTest;
+import cc.remer.photobook.adapter.persistence.ThumbnailJobRepository;
+import cc.remer.photobook.config.ThumbnailQueueProperties;
+import cc.remer.photobook.domain.ThumbnailJob;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Runs without a thumbnail worker, so the tests claim the jobs themselves.
+ */
+@DisplayName("Thumbnail Job Queue Integration Tests")
+@TestPropertySource(properties = "thumbnail.worker.enabled=false")
+class ThumbnailJobQueueIntegrationTest extends BaseIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ThumbnailJobQueue thumbnailJobQueue;
+
+    @Autowired
+    private ThumbnailJobRepository thumbnailJobRepository;
+
+    @Autowired
+    private ThumbnailQueueProperties properties;
+
+    private UUID insertProcessingPhoto() {
+        UUID photoId = UUID.randomUUID();
+        UUID ownerId = jdbcTemplate.queryForObject(
+                "SELECT id FROM users WHERE email = 'admin@photobook.local'", UUID.class);
+        jdbcTemplate.update("INSERT INTO photos (id, owner_id, storage_key, original_filename, mime_type, file_size, "
+                + "status) VALUES (?, ?, ?, 'photo.jpg', 'image/jpeg', 1000, 'PROCESSING')",
+                photoId, ownerId, "originals/" + photoId + ".jpg");
+        return photoId;
+    }
+
+    private ThumbnailJob enqueue(UUID photoId) {
+        return thumbnailJobRepository.save(ThumbnailJob.builder().photoId(photoId).build());
+    }
+
+    private ThumbnailJob job(UUID jobId) {
+        return thumbnailJobRepository.findById(jobId).orElseThrow();
+    }
+
+    private String photoStatus(UUID photoId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM photos WHERE id = ?", String.class, photoId);
+    }
+
+    @Test
+    @DisplayName("Should skip jobs that are locked by another transaction")
+    void claim_withLockedJob_shouldSkipIt() throws Exception {
+        ThumbnailJob locked = enqueue(insertProcessingPhoto());
+        ThumbnailJob free = enqueue(insertProcessingPhoto());
+
+        List<ThumbnailJob> claimed = transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForList("SELECT id FROM thumbnail_jobs WHERE id = ? FOR UPDATE", locked.getId());
+            try {
+                // A different connection, as another node would use
+                return CompletableFuture.supplyAsync(() -> thumbnailJobQueue.claim(10)).get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThat(claimed).extracting(ThumbnailJob::getId).containsExactly(free.getId());
+        assertThat(job(free.getId()).getStatus()).isEqualTo(ThumbnailJob.STATUS_RUNNING);
+        assertThat(job(free.getId()).getAttempts()).isEqualTo(1);
+        assertThat(job(locked.getId()).getStatus()).isEqualTo(ThumbnailJob.STATUS_PENDING);
+    }
+
+    @Test
+    @DisplayName("Should retry failed jobs with exponential backoff")
+    void fail_shouldBackOffExponentially() {
+        ThumbnailJob enqueued = enqueue(insertProcessingPhoto());
+
+        thumbnailJobQueue.claim(10);
+        thumbnailJobQueue.fail(enqueued.getId(), new IllegalStateException("Storage unavailable"));
+
+        ThumbnailJob first = job(enqueued.getId());
+        assertThat(first.getStatus()).isEqualTo(ThumbnailJob.STATUS_PENDING);
+        assertThat(first.getLockedBy()).isNull();
+        assertThat(first.getLastError()).isEqualTo("Storage unavailable");
+        assertThat(first.getRunAfter()).isCloseTo(Instant.now().plus(properties.getRetryBackoff()),
+                within(5, ChronoUnit.SECONDS));
+        // Not due yet
+        assertThat(thumbnailJobQueue.claim(10)).isEmpty();
+
+        jdbcTemplate.update("UPDATE thumbnail_jobs SET run_after = run_after - interval '1 hour' WHERE id = ?",
+                enqueued.getId());
+        assertThat(thumbnailJobQueue.claim(10)).hasSize(1);
+        thumbnailJobQueue.fail(enqueued.getId(), new IllegalStateException("Storage unavailable"));
+
+        ThumbnailJob second = job(enqueued.getId());
+        assertThat(second.getAttempts()).isEqualTo(2);
+        assertThat(second.getRunAfter()).isCloseTo(Instant.now().plus(properties.getRetryBackoff().multipliedBy(2)),
+                within(5, ChronoUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should give up after the last attempt and mark the photo as ERROR")
+    void fail_onLastAttempt_shouldGiveUp() {
+        UUID photoId = insertProcessingPhoto();
+        ThumbnailJob enqueued = enqueue(photoId);
+        jdbcTemplate.update("UPDATE thumbnail_jobs SET attempts = ? WHERE id = ?",
+                properties.getMaxAttempts() - 1, enqueued.getId());
+
+        assertThat(thumbnailJobQueue.claim(10)).hasSize(1);
+        thumbnailJobQueue.fail(enqueued.getId(), new IllegalStateException("Corrupt original"));
+
+        assertThat(job(enqueued.getId()).getStatus()).isEqualTo(ThumbnailJob.STATUS_FAILED);
+        assertThat(photoStatus(photoId)).isEqualTo("ERROR");
+        assertThat(thumbnailJobQueue.claim(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should give up immediately on images that are too large to decode")
+    void fail_withImageTooLarge_shouldGiveUpImmediately() {
+        UUID photoId = insertProcessingPhoto();
+        ThumbnailJob enqueued = enqueue(photoId);
+
+        thumbnailJobQueue.claim(10);
+        thumbnailJobQueue.fail(enqueued.getId(),
+                new ThumbnailDecodeBudget.ImageTooLargeException("50000x50000 pixels exceed the decode budget"));
+
+        assertThat(job(enqueued.getId()).getStatus()).isEqualTo(ThumbnailJob.STATUS_FAILED);
+        assertThat(photoStatus(photoId)).isEqualTo("ERROR");
+    }
+
+    @Test
+    @DisplayName("Should reclaim jobs whose node died while holding the lease")
+    void claim_withExpiredLease_shouldReclaimJob() {
+        ThumbnailJob enqueued = enqueue(insertProcessingPhoto());
+        thumbnailJobQueue.claim(10);
+        jdbcTemplate.update("UPDATE thumbnail_jobs SET locked_by = 'dead-node', "
+                + "locked_until = locked_until - interval '1 day' WHERE id = ?", enqueued.getId());
+
+        List<ThumbnailJob> reclaimed = thumbnailJobQueue.claim(10);
+
+        assertThat(reclaimed).extracting(ThumbnailJob::getId).containsExactly(enqueued.getId());
+        assertThat(job(enqueued.getId()).getAttempts()).isEqualTo(2);
+        assertThat(job(enqueued.getId()).getLockedBy()).isNotEqualTo("dead-node");
+    }
+
+    @Test
+    @DisplayName("Should enqueue processing photos that have no job")
+    void recoverOrphanedPhotos_shouldEnqueueMissingJobs() {
+        UUID orphan = insertProcessingPhoto();
+        enqueue(insertProcessingPhoto());
+
+        thumbnailJobQueue.recoverOrphanedPhotos();
+
+        assertThat(thumbnailJobRepository.findAll()).hasSize(2)
+                .anySatisfy(job -> assertThat(job.getPhotoId()).isEqualTo(orphan));
+    }
+
+    @Test
+    @DisplayName("Should not let a node complete or fail a job it no longer holds")
+    void completeAndFail_afterLosingLease_shouldLeaveJobAlone() {
+        ThumbnailJob enqueued = enqueue(insertProcessingPhoto());
+        thumbnailJobQueue.claim(10);
+        // The lease expired and another node claimed the job
+        jdbcTemplate.update("UPDATE thumbnail_jobs SET locked_by = 'other-node', attempts = 2 WHERE id = ?",
+                enqueued.getId());
+
+        thumbnailJobQueue.fail(enqueued.getId(), new IllegalStateException("Late failure"));
+        thumbnailJobQueue.complete(enqueued.getId());
+
+        ThumbnailJob job = job(enqueued.getId());
+        assertThat(job.getStatus()).isEqualTo(ThumbnailJob.STATUS_RUNNING);
+        assertThat(job.getLockedBy()).isEqualTo("other-node");
+        assertThat(job.getLastError()).isNull();
+        assertThat(thumbnailJobQueue.renew(List.of(enqueued.getId()))).isZero();
+    }
+
+    @Test
+    @DisplayName("Should extend the lease of jobs this node holds")
+    void renew_shouldExtendLease() {
+        ThumbnailJob enqueued = enqueue(insertProcessingPhoto());
+        thumbnailJobQueue.claim(10);
+        jdbcTemplate.update("UPDATE thumbnail_jobs SET locked_until = locked_until - interval '9 minutes' "
+                + "WHERE id = ?", enqueued.getId());
+
+        assertThat(thumbnailJobQueue.renew(List.of(enqueued.getId()))).isEqualTo(1);
+
+        assertThat(job(enqueued.getId()).getLockedUntil()).isAfter(Instant.now().plus(Duration.ofMinutes(9)));
+        thumbnailJobQueue.complete(enqueued.getId());
+        assertThat(thumbnailJobRepository.existsById(enqueued.getId())).isFalse();
+    }
+}
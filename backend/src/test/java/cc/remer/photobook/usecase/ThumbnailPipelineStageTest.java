@@ -0,0 +1,93 @@
+package cc.remer.photobook.usecase;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("ThumbnailPipelineStage Tests")
+class ThumbnailPipelineStageTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("stage", "process").gauge().value();
+    }
+
+    private static Runnable awaiting(CountDownLatch started, CountDownLatch release) {
+        return () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Should queue beyond the concurrency and block submits once the queue is full")
+    void submit_whenFull_shouldBlockUntilTaskCompletes() throws Exception {
+        ThumbnailPipelineStage stage = new ThumbnailPipelineStage("process", executor, 1, 1, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        stage.submit(awaiting(started, release));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        stage.submit(() -> { });
+        assertThat(stage.available()).isZero();
+        assertThat(gauge("photobook.thumbnail.stage.active")).isEqualTo(1);
+        assertThat(gauge("photobook.thumbnail.stage.queued")).isEqualTo(1);
+
+        CountDownLatch ran = new CountDownLatch(1);
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> stage.submit(ran::countDown));
+        Thread.sleep(100);
+        assertThat(blocked).isNotDone();
+
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Slots are released after the task's metrics, so the last one may still be on its way out
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stage.available() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(stage.available()).isEqualTo(2);
+        assertThat(gauge("photobook.thumbnail.stage.active")).isZero();
+        assertThat(gauge("photobook.thumbnail.stage.queued")).isZero();
+    }
+
+    @Test
+    @DisplayName("Should give the slot back when the executor rejects the task")
+    void submit_whenRejected_shouldReleaseSlot() {
+        ThumbnailPipelineStage stage = new ThumbnailPipelineStage("process", command -> {
+            throw new RejectedExecutionException("Shutting down");
+        }, 1, 1, meterRegistry);
+
+        assertThatThrownBy(() -> stage.submit(() -> { }))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThatThrownBy(() -> stage.submit(() -> { }))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        assertThat(stage.available()).isEqualTo(2);
+        assertThat(gauge("photobook.thumbnail.stage.queued")).isZero();
+        assertThat(gauge("photobook.thumbnail.stage.active")).isZero();
+    }
+}
@@ -0,0 +1,83 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.adapter.image.ResizeKernel;
+import cc.remer.photobook.adapter.image.SeparableResizer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ThumbnailScaler Tests")
+class ThumbnailScalerTest {
+
+    private static final Map<String, Integer> SIZES = Map.of("SMALL", 15, "MEDIUM", 40, "LARGE", 80);
+
+    private final ThumbnailScaler scaler = new ThumbnailScaler(SeparableResizer.scalar(ResizeKernel.LANCZOS3));
+
+    private static ThumbnailScaler.DecodedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setPaint(new GradientPaint(0, 0, Color.BLUE, width, height, Color.ORANGE));
+        graphics.fillRect(0, 0, width, height);
+        graphics.setColor(Color.WHITE);
+        graphics.fillOval(width / 4, height / 4, width / 3, height / 3);
+        graphics.dispose();
+        return ThumbnailScaler.DecodedImage.of(image);
+    }
+
+    private static Map<String, int[]> pixels(Map<String, BufferedImage> images) {
+        Map<String, int[]> pixels = new LinkedHashMap<>();
+        images.forEach((size, image) -> pixels.put(size,
+                image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth())));
+        return pixels;
+    }
+
+    private static int[] backingArray(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    @Test
+    @DisplayName("Should return the sizes largest first, with dimensions from the original")
+    void scaleReusing_shouldReturnLargestFirst() throws IOException {
+        Map<String, BufferedImage> images = scaler.scaleReusing(
+                new ThumbnailScaler.DecodedImage(gradient(200, 100).image(), 4000, 2000), SIZES);
+
+        assertThat(images.keySet()).containsExactly("LARGE", "MEDIUM", "SMALL");
+        assertThat(images.get("LARGE").getWidth()).isEqualTo(80);
+        assertThat(images.get("LARGE").getHeight()).isEqualTo(40);
+        assertThat(images.get("SMALL").getHeight()).isEqualTo(7);
+    }
+
+    @Test
+    @DisplayName("Should give identical pixels after the recycled rasters served a photo of another shape")
+    void scaleReusing_afterOtherPhoto_shouldMatchFirstResult() throws IOException {
+        ThumbnailScaler.DecodedImage landscape = gradient(320, 200);
+        Map<String, int[]> first = pixels(scaler.scaleReusing(landscape, SIZES));
+
+        scaler.scaleReusing(gradient(90, 300), SIZES);
+        Map<String, int[]> again = pixels(scaler.scaleReusing(landscape, SIZES));
+
+        assertThat(again).containsOnlyKeys(first.keySet());
+        first.forEach((size, expected) -> assertThat(again.get(size)).as(size).isEqualTo(expected));
+    }
+
+    @Test
+    @DisplayName("The next scale on the same thread overwrites the images of the previous one")
+    void scaleReusing_shouldRecycleRastersOfPreviousCall() throws IOException {
+        Map<String, BufferedImage> previous = scaler.scaleReusing(gradient(320, 200), SIZES);
+
+        Map<String, BufferedImage> next = scaler.scaleReusing(gradient(200, 320), SIZES);
+
+        assertThat(backingArray(next.get("LARGE"))).isSameAs(backingArray(previous.get("LARGE")));
+        assertThat(previous.get("LARGE").getRGB(0, 0)).isEqualTo(next.get("LARGE").getRGB(0, 0));
+    }
+}
@@ -0,0 +1,138 @@
+package cc.remer.photobook.usecase;
+
+import cc.remer.photobook.config.UploadProperties;
+import cc.remer.photobook.usecase.UploadAdmissionService.Permit;
+import cc.remer.photobook.usecase.UploadAdmissionService.UploadCapacityExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("UploadAdmissionService Tests")
+class UploadAdmissionServiceTest {
+
+    private static final UUID ALICE = UUID.randomUUID();
+    private static final UUID BOB = UUID.randomUUID();
+
+    private UploadProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new UploadProperties();
+        properties.getAdmission().setMaxInFlight(DataSize.ofBytes(1000));
+        properties.getAdmission().setMaxInFlightPerUser(DataSize.ofBytes(600));
+        properties.getAdmission().setQueueTimeout(Duration.ofMillis(50));
+        properties.getAdmission().setRetryAfter(Duration.ofSeconds(30));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private UploadAdmissionService service() {
+        return new UploadAdmissionService(properties, meterRegistry);
+    }
+
+    private double inFlightBytes() {
+        return meterRegistry.get("photobook.upload.inflight.bytes").gauge().value();
+    }
+
+    @Test
+    @DisplayName("Should admit uploads within the limits and count their bytes")
+    void admit_withinLimits_shouldCountBytes() {
+        UploadAdmissionService service = service();
+
+        try (Permit alice = service.admit(ALICE, 400); Permit bob = service.admit(BOB, 500)) {
+            assertThat(inFlightBytes()).isEqualTo(900);
+            assertThat(meterRegistry.get("photobook.upload.inflight.users").gauge().value()).isEqualTo(2);
+        }
+
+        assertThat(inFlightBytes()).isZero();
+        assertThat(meterRegistry.get("photobook.upload.inflight.users").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should reject a user over the per-user cap while others are still admitted")
+    void admit_overUserCap_shouldRejectOnlyThatUser() {
+        UploadAdmissionService service = service();
+
+        try (Permit ignored = service.admit(ALICE, 500)) {
+            assertThatThrownBy(() -> service.admit(ALICE, 200))
+                    .isInstanceOf(UploadCapacityExceededException.class)
+                    .extracting(e -> ((UploadCapacityExceededException) e).getRetryAfter())
+                    .isEqualTo(Duration.ofSeconds(30));
+
+            try (Permit bob = service.admit(BOB, 200)) {
+                assertThat(inFlightBytes()).isEqualTo(700);
+            }
+        }
+        assertThat(meterRegistry.get("photobook.upload.admission.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should reject once the global limit stays exhausted for the queue timeout")
+    void admit_overGlobalLimit_shouldRejectAfterQueueTimeout() {
+        UploadAdmissionService service = service();
+
+        try (Permit alice = service.admit(ALICE, 600); Permit bob = service.admit(BOB, 300)) {
+            UUID carol = UUID.randomUUID();
+            long start = System.nanoTime();
+
+            assertThatThrownBy(() -> service.admit(carol, 200))
+                    .isInstanceOf(UploadCapacityExceededException.class);
+            assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+    }
+
+    @Test
+    @DisplayName("Should admit a waiting request as soon as a permit is released")
+    void admit_whileFull_shouldProceedOnRelease() throws Exception {
+        properties.getAdmission().setQueueTimeout(Duration.ofSeconds(10));
+        UploadAdmissionService service = service();
+        Permit alice = service.admit(ALICE, 600);
+        Permit bob = service.admit(BOB, 400);
+
+        CompletableFuture<Permit> waiting = CompletableFuture.supplyAsync(() -> service.admit(UUID.randomUUID(), 300));
+        Thread.sleep(100);
+        assertThat(waiting).isNotDone();
+        assertThat(meterRegistry.get("photobook.upload.admission.waiting").gauge().value()).isEqualTo(1);
+
+        bob.close();
+        try (Permit admitted = waiting.get(5, TimeUnit.SECONDS)) {
+            assertThat(inFlightBytes()).isEqualTo(900);
+        }
+        alice.close();
+        assertThat(inFlightBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should charge an oversized upload at the limit so it gets through alone")
+    void admit_largerThanLimit_shouldBeChargedAtTheLimit() {
+        UploadAdmissionService service = service();
+
+        try (Permit ignored = service.admit(ALICE, 5000)) {
+            assertThat(inFlightBytes()).isEqualTo(600);
+        }
+    }
+
+    @Test
+    @DisplayName("Should release a permit only once")
+    void close_twice_shouldReleaseOnce() {
+        UploadAdmissionService service = service();
+        Permit alice = service.admit(ALICE, 300);
+        Permit bob = service.admit(BOB, 300);
+
+        alice.close();
+        alice.close();
+
+        assertThat(inFlightBytes()).isEqualTo(300);
+        bob.close();
+    }
+}